@@ -15,13 +15,13 @@
  */
 package com.github.rjeschke.neetutils.audio;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import com.github.rjeschke.neetutils.io.NInputStreamLE;
+import com.github.rjeschke.neetutils.io.ReadAheadInputStream;
 
 /**
  *
@@ -79,7 +79,7 @@ public final class WavReader
     {
         try (final FileInputStream fis = new FileInputStream(file))
         {
-            return load(new BufferedInputStream(fis));
+            return load(new ReadAheadInputStream(fis));
         }
     }
 
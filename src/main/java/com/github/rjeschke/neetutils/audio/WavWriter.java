@@ -15,15 +15,16 @@
  */
 package com.github.rjeschke.neetutils.audio;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import com.github.rjeschke.neetutils.io.BufferPool;
 import com.github.rjeschke.neetutils.io.NOutputStream;
 import com.github.rjeschke.neetutils.io.NOutputStreamLE;
+import com.github.rjeschke.neetutils.io.WriteBehindOutputStream;
 import com.github.rjeschke.neetutils.math.NMath;
 
 /**
@@ -93,7 +94,7 @@ public final class WavWriter
     {
         this.tempFile = File.createTempFile("wavwrite", "bin");
         this.tempFile.deleteOnExit();
-        this.tempStream = new NOutputStreamLE(new BufferedOutputStream(new FileOutputStream(this.tempFile)));
+        this.tempStream = new NOutputStreamLE(new WriteBehindOutputStream(new FileOutputStream(this.tempFile)));
     }
 
     /**
@@ -119,7 +120,7 @@ public final class WavWriter
      */
     public void save(final File file) throws IOException
     {
-        try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+        try (final OutputStream out = new WriteBehindOutputStream(new FileOutputStream(file)))
         {
             this.save(out);
         }
@@ -237,13 +238,20 @@ public final class WavWriter
 
             try (final FileInputStream in = new FileInputStream(this.tempFile))
             {
-                final byte[] b = new byte[8192];
-                int todo = dLen;
-                while (todo > 0)
+                final byte[] b = BufferPool.lease(65536);
+                try
                 {
-                    final int read = in.read(b);
-                    out.write(b, 0, read);
-                    todo -= read;
+                    int todo = dLen;
+                    while (todo > 0)
+                    {
+                        final int read = in.read(b, 0, Math.min(b.length, todo));
+                        out.write(b, 0, read);
+                        todo -= read;
+                    }
+                }
+                finally
+                {
+                    BufferPool.release(b);
                 }
             }
         }
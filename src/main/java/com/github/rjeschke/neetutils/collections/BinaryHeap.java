@@ -16,6 +16,8 @@
 package com.github.rjeschke.neetutils.collections;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.NoSuchElementException;
 
 /**
@@ -29,10 +31,22 @@ public class BinaryHeap<T extends Comparable<T>>
     public final static double DEFAULT_GROWTH_FACTOR = 0.5;
     public final static int    DEFAULT_INITIAL_SIZE  = 16;
 
-    private Object[]           data;
-    private int                size;
-    private final int          compMod;
-    private final double       growthFactor;
+    /** Natural ordering comparator. */
+    private final static Comparator<Object> NATURAL_ORDER = new Comparator<Object>()
+    {
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compare(final Object a, final Object b)
+        {
+            return ((Comparable<Object>)a).compareTo(b);
+        }
+    };
+
+    private Object[]                    data;
+    private int                         size;
+    /** Orders elements by priority, highest priority first. */
+    private final Comparator<? super T> comparator;
+    private final double                growthFactor;
 
     public BinaryHeap(final Type type)
     {
@@ -45,10 +59,61 @@ public class BinaryHeap<T extends Comparable<T>>
     }
 
     public BinaryHeap(final Type type, final int initialSize, final double growthFactor)
+    {
+        this(type, null, initialSize, growthFactor);
+    }
+
+    /**
+     * Creates a heap ordered by the given comparator.
+     *
+     * @param type
+     *            Whether the least (MIN) or greatest (MAX) element is on top.
+     * @param comparator
+     *            The comparator, <code>null</code> for natural ordering.
+     */
+    public BinaryHeap(final Type type, final Comparator<? super T> comparator)
+    {
+        this(type, comparator, DEFAULT_INITIAL_SIZE, DEFAULT_GROWTH_FACTOR);
+    }
+
+    /**
+     * Creates a heap ordered by the given comparator.
+     *
+     * @param type
+     *            Whether the least (MIN) or greatest (MAX) element is on top.
+     * @param comparator
+     *            The comparator, <code>null</code> for natural ordering.
+     * @param initialSize
+     *            Initial capacity.
+     * @param growthFactor
+     *            Growth factor.
+     */
+    public BinaryHeap(final Type type, final Comparator<? super T> comparator, final int initialSize, final double growthFactor)
     {
         this.data = new Object[Math.max(initialSize, 1)];
         this.growthFactor = growthFactor;
-        this.compMod = type == Type.MAX ? 1 : -1;
+        this.comparator = order(type, comparator);
+    }
+
+    /**
+     * Returns a comparator ordering higher priority elements first.
+     *
+     * @param type
+     *            Heap type.
+     * @param comparator
+     *            The comparator, <code>null</code> for natural ordering.
+     * @return The comparator.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Comparator<? super T> order(final Type type, final Comparator<? super T> comparator)
+    {
+        if (comparator == null)
+        {
+            if (type == Type.MIN) return (Comparator<? super T>)NATURAL_ORDER;
+            return Collections.<T> reverseOrder((Comparator<T>)NATURAL_ORDER);
+        }
+        if (type == Type.MIN) return comparator;
+        return Collections.<T> reverseOrder((Comparator<T>)comparator);
     }
 
     public int size()
@@ -103,11 +168,11 @@ public class BinaryHeap<T extends Comparable<T>>
         int child, pos = 0;
         while ((child = 2 * pos + 1) < this.size)
         {
-            if (child + 1 < this.size && ((T)this.data[child]).compareTo((T)this.data[child + 1]) * this.compMod < 0) child++;
+            if (child + 1 < this.size && this.comparator.compare((T)this.data[child], (T)this.data[child + 1]) > 0) child++;
 
             final T a = (T)this.data[pos];
             final T b = (T)this.data[child];
-            if (a.compareTo(b) * this.compMod >= 0) break;
+            if (this.comparator.compare(a, b) <= 0) break;
 
             this.data[pos] = b;
             this.data[child] = a;
@@ -127,7 +192,7 @@ public class BinaryHeap<T extends Comparable<T>>
         {
             final T a = (T)this.data[pos];
             final T b = (T)this.data[parent];
-            if (a.compareTo(b) * this.compMod <= 0) break;
+            if (this.comparator.compare(a, b) >= 0) break;
             this.data[pos] = b;
             this.data[parent] = a;
             pos = parent;
@@ -127,6 +127,7 @@ public final class Colls
      */
     public final static <A> List<A> ilist(final Collection<A> coll)
     {
+        if (coll instanceof ImmutableList) return (ImmutableList<A>)coll;
         return new ImmutableList<>(coll);
     }
 
@@ -139,6 +140,7 @@ public final class Colls
      */
     public final static <A> List<A> ilist(final Iterable<A> coll)
     {
+        if (coll instanceof ImmutableList) return (ImmutableList<A>)coll;
         return new ImmutableList<>(coll);
     }
 
@@ -438,6 +440,9 @@ public final class Colls
     /**
      * Returns a new List containing all but the first element of 'coll'.
      *
+     * If 'coll' is an {@link ImmutableList} an immutable view is returned
+     * in O(1).
+     *
      * @param coll
      *            The collection.
      * @return The list.
@@ -463,6 +468,9 @@ public final class Colls
      * Returns a new list containing the first 'amount' elements of the given
      * collection.
      *
+     * If 'coll' is an {@link ImmutableList} an immutable view is returned
+     * in O(1).
+     *
      * @param coll
      *            The collection.
      * @param amount
@@ -471,6 +479,7 @@ public final class Colls
      */
     public final static <A> List<A> take(final Collection<A> coll, final int amount)
     {
+        if (coll instanceof ImmutableList) return ((ImmutableList<A>)coll).subList(0, Math.max(0, Math.min(amount, coll.size())));
         if (amount >= coll.size()) return list(coll);
 
         final List<A> ret = list(amount);
@@ -495,6 +504,7 @@ public final class Colls
      */
     public final static <A> List<A> take(final Iterable<A> coll, final int amount)
     {
+        if (coll instanceof ImmutableList) return take((ImmutableList<A>)coll, amount);
         final List<A> ret = list();
         final Iterator<A> it = coll.iterator();
         int i = 0;
@@ -510,6 +520,9 @@ public final class Colls
      * Returns a new List containing all but the first 'amount' elements of
      * 'coll'.
      *
+     * If 'coll' is an {@link ImmutableList} an immutable view is returned
+     * in O(1).
+     *
      * @param coll
      *            The collection.
      * @param amount
@@ -518,6 +531,7 @@ public final class Colls
      */
     public final static <A> List<A> drop(final Collection<A> coll, final int amount)
     {
+        if (coll instanceof ImmutableList) return ((ImmutableList<A>)coll).subList(Math.max(0, Math.min(amount, coll.size())), coll.size());
         if (amount >= coll.size()) return list();
 
         final int toTake = coll.size() - amount;
@@ -547,6 +561,7 @@ public final class Colls
      */
     public final static <A> List<A> drop(final Iterable<A> coll, final int amount)
     {
+        if (coll instanceof ImmutableList) return drop((ImmutableList<A>)coll, amount);
         final List<A> ret = list();
         final Iterator<A> it = coll.iterator();
         int i = 0;
@@ -562,6 +577,21 @@ public final class Colls
         return ret;
     }
 
+    /**
+     * Returns a lazily evaluated view of 'coll'. Chained map, filter, take,
+     * drop and zip stages are fused and run in a single pass when a terminal
+     * operation is called.
+     *
+     * @param coll
+     *            The collection.
+     * @return The view.
+     * @see Lazy
+     */
+    public final static <A> Lazy<A> lazy(final Iterable<A> coll)
+    {
+        return new Lazy<>(coll);
+    }
+
     public final static <A, B> List<B> map(final Collection<A> coll, final FnMapping<A, B> fn)
     {
         final List<B> l = list(coll.size());
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.github.rjeschke.neetutils.collections.BinaryHeap.Type;
+
+/**
+ * 4-ary heap with {@code double} priorities.
+ *
+ * <p>
+ * Priorities and elements are stored in parallel arrays, there are no
+ * per-element objects and no {@code compareTo} calls. MAX heaps store
+ * negated priorities.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ *
+ * @param <T>
+ */
+public class DoubleHeap<T>
+{
+    public final static int DEFAULT_INITIAL_SIZE = 16;
+
+    private double[]        keys;
+    private Object[]        values;
+    private int             size;
+    private final boolean   max;
+
+    public DoubleHeap(final Type type)
+    {
+        this(type, DEFAULT_INITIAL_SIZE);
+    }
+
+    public DoubleHeap(final Type type, final int initialSize)
+    {
+        this.keys = new double[Math.max(initialSize, 1)];
+        this.values = new Object[this.keys.length];
+        this.max = type == Type.MAX;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.values, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Gets the top element without removing it.
+     *
+     * @return The top element or <code>null</code> if this heap is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public T get()
+    {
+        return this.size != 0 ? (T)this.values[0] : null;
+    }
+
+    /**
+     * Gets the priority of the top element.
+     *
+     * @return The priority.
+     * @throws NoSuchElementException
+     *             if this heap is empty
+     */
+    public double getPriority()
+    {
+        if (this.size == 0) throw new NoSuchElementException("Heap is empty");
+        return this.decode(this.keys[0]);
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param priority
+     *            The priority.
+     * @param e
+     *            The element.
+     */
+    public void put(final double priority, final T e)
+    {
+        if (this.size == this.keys.length)
+        {
+            final int len = this.size + (this.size >> 1) + 1;
+            this.keys = Arrays.copyOf(this.keys, len);
+            this.values = Arrays.copyOf(this.values, len);
+        }
+        final double[] k = this.keys;
+        final Object[] v = this.values;
+        final double key = this.encode(priority);
+        int pos = this.size++;
+        while (pos > 0)
+        {
+            final int parent = (pos - 1) >> 2;
+            if (key >= k[parent]) break;
+            k[pos] = k[parent];
+            v[pos] = v[parent];
+            pos = parent;
+        }
+        k[pos] = key;
+        v[pos] = e;
+    }
+
+    /**
+     * Removes the top element.
+     *
+     * @return The top element.
+     * @throws NoSuchElementException
+     *             if this heap is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T remove()
+    {
+        if (this.size == 0) throw new NoSuchElementException("Heap is empty");
+        final double[] k = this.keys;
+        final Object[] v = this.values;
+        final T removed = (T)v[0];
+        final int n = --this.size;
+        final double key = k[n];
+        final Object value = v[n];
+        v[n] = null;
+        int pos = 0;
+        for (;;)
+        {
+            final int first = (pos << 2) + 1;
+            if (first >= n) break;
+            final int end = Math.min(first + 4, n);
+            int best = first;
+            for (int c = first + 1; c < end; c++)
+            {
+                if (k[c] < k[best]) best = c;
+            }
+            if (k[best] >= key) break;
+            k[pos] = k[best];
+            v[pos] = v[best];
+            pos = best;
+        }
+        if (n > 0)
+        {
+            k[pos] = key;
+            v[pos] = value;
+        }
+        return removed;
+    }
+
+    public void shrinkToFit()
+    {
+        if (this.size != this.keys.length)
+        {
+            this.keys = Arrays.copyOf(this.keys, Math.max(this.size, 1));
+            this.values = Arrays.copyOf(this.values, this.keys.length);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < this.size; i++)
+        {
+            if (i > 0) sb.append(", ");
+            sb.append(this.decode(this.keys[i]));
+            sb.append('=');
+            sb.append(this.values[i]);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private double encode(final double p)
+    {
+        return this.max ? -p : p;
+    }
+
+    private double decode(final double k)
+    {
+        return this.max ? -k : k;
+    }
+}
@@ -27,6 +27,21 @@ import java.util.RandomAccess;
 import com.github.rjeschke.neetutils.Objects;
 
 /**
+ * Persistent (structurally shared) immutable list.
+ *
+ * <p>
+ * Elements are stored in a 32-way trie with the last (up to) 32 elements kept
+ * in a separate tail array. Nodes may carry a size table (relaxed radix
+ * balanced tree), which allows concatenation and slicing in O(log n).
+ * </p>
+ *
+ * <p>
+ * {@link #append(Object)} and {@link #with(int, Object)} return new lists in
+ * (effectively) O(1), sharing all but one path with this list.
+ * {@link #subList(int, int)} and {@link #tail()} are O(1) views, these keep
+ * the whole backing structure alive. Use a {@link Builder} for bulk
+ * construction.
+ * </p>
  *
  * @author René Jeschke (rene_jeschke@yahoo.de)
  *
@@ -34,45 +49,229 @@ import com.github.rjeschke.neetutils.Objects;
  */
 public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Serializable
 {
-    private static final long serialVersionUID = 634340469636541150L;
-
-    final Object[]            data;
-    final int                 size;
-    int                       hashCode         = 0;
-
-    ImmutableList(final Object[] data, final int size)
+    private static final long              serialVersionUID = -1873618546270713413L;
+
+    private final static int               BITS             = 5;
+    private final static int               WIDTH            = 1 << BITS;
+    private final static int               MASK             = WIDTH - 1;
+    /** Rebalancing slack for concatenation. */
+    private final static int               EXTRAS           = 2;
+    private final static Object[]          EMPTY_NODE       = new Object[0];
+    private final static ImmutableList<?>  EMPTY            = new ImmutableList<>(EMPTY_NODE, 0, 0, EMPTY_NODE, 0, 0);
+
+    /** Trie root, a leaf if {@code shift == 0}. */
+    private final Object[]                 root;
+    private final int                      shift;
+    /** Number of elements in the trie. */
+    private final int                      treeSize;
+    private final Object[]                 tail;
+    /** First element of this (view) list. */
+    private final int                      start;
+    private final int                      size;
+    private int                            hashCode         = 0;
+
+    private ImmutableList(final Object[] root, final int shift, final int treeSize, final Object[] tail, final int start, final int size)
     {
-        this.data = data;
+        this.root = root;
+        this.shift = shift;
+        this.treeSize = treeSize;
+        this.tail = tail;
+        this.start = start;
         this.size = size;
     }
 
+    private ImmutableList(final ImmutableList<? extends A> list)
+    {
+        this(list.root, list.shift, list.treeSize, list.tail, list.start, list.size);
+    }
+
+    /**
+     * Constructor. Shares the structure of {@code coll} if it is an
+     * {@code ImmutableList}.
+     *
+     * @param coll
+     *            The elements.
+     */
     public ImmutableList(final Collection<? extends A> coll)
     {
-        this.data = new Object[coll.size()];
-        int i = 0;
-        for (final A a : coll)
-            this.data[i++] = a;
-        this.size = this.data.length;
+        this(copyOf(coll));
     }
 
     @SafeVarargs
     public ImmutableList(final A... coll)
     {
-        this.data = Arrays.copyOf(coll, coll.length);
-        this.size = this.data.length;
+        this(new Builder<A>().add(coll, 0, coll.length).build());
     }
 
+    /**
+     * Constructor. Shares the structure of {@code coll} if it is an
+     * {@code ImmutableList}.
+     *
+     * @param coll
+     *            The elements.
+     */
     public ImmutableList(final Iterable<? extends A> coll)
     {
-        Object[] d = new Object[8];
-        int i = 0;
-        for (final A a : coll)
+        this(copyOf(coll));
+    }
+
+    /**
+     * Returns the empty list.
+     *
+     * @return The empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <A> ImmutableList<A> empty()
+    {
+        return (ImmutableList<A>)EMPTY;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return The builder.
+     */
+    public static <A> Builder<A> builder()
+    {
+        return new Builder<>();
+    }
+
+    private static <A> ImmutableList<A> copyOf(final Iterable<? extends A> coll)
+    {
+        if (coll instanceof ImmutableList)
+        {
+            @SuppressWarnings("unchecked")
+            final ImmutableList<A> l = (ImmutableList<A>)coll;
+            return l;
+        }
+        if (coll instanceof Collection)
+        {
+            final Object[] arr = ((Collection<? extends A>)coll).toArray();
+            return new Builder<A>().add(arr, 0, arr.length).build();
+        }
+        return new Builder<A>().addAll(coll).build();
+    }
+
+    /**
+     * Returns a new list with {@code a} appended.
+     *
+     * @param a
+     *            The element.
+     * @return The new list.
+     */
+    public ImmutableList<A> append(final A a)
+    {
+        final int count = this.treeSize + this.tail.length;
+        if (this.start + this.size != count) return this.trimmed().append(a);
+
+        if (this.tail.length < WIDTH)
+        {
+            final Object[] t = new Object[this.tail.length + 1];
+            System.arraycopy(this.tail, 0, t, 0, this.tail.length);
+            t[this.tail.length] = a;
+            return new ImmutableList<>(this.root, this.shift, this.treeSize, t, this.start, this.size + 1);
+        }
+
+        Object[] r;
+        int sh = this.shift;
+        if (this.treeSize == 0)
+        {
+            r = this.tail;
+        }
+        else if (sh == 0)
+        {
+            r = node(new Object[] { this.root, this.tail }, 2, BITS);
+            sh = BITS;
+        }
+        else
+        {
+            r = pushLeaf(this.root, sh, this.tail);
+            if (r == null)
+            {
+                r = node(new Object[] { this.root, newPath(sh, this.tail) }, 2, sh + BITS);
+                sh += BITS;
+            }
+        }
+
+        return new ImmutableList<>(r, sh, count, new Object[] { a }, this.start, this.size + 1);
+    }
+
+    /**
+     * Returns a new list with the element at {@code index} replaced by
+     * {@code a}.
+     *
+     * @param index
+     *            The index.
+     * @param a
+     *            The element.
+     * @return The new list.
+     */
+    public ImmutableList<A> with(final int index, final A a)
+    {
+        this.checkIndex(index);
+        final int i = this.start + index;
+        if (i >= this.treeSize)
+        {
+            final Object[] t = this.tail.clone();
+            t[i - this.treeSize] = a;
+            return new ImmutableList<>(this.root, this.shift, this.treeSize, t, this.start, this.size);
+        }
+        return new ImmutableList<>(assoc(this.root, this.shift, i, a), this.shift, this.treeSize, this.tail, this.start, this.size);
+    }
+
+    /**
+     * Returns a new list consisting of this list followed by {@code list} in
+     * O(log n).
+     *
+     * @param list
+     *            The list to append.
+     * @return The new list.
+     */
+    public ImmutableList<A> concat(final ImmutableList<? extends A> list)
+    {
+        if (list.size == 0) return this;
+        if (this.size == 0) return new ImmutableList<>(list);
+        if (list.size <= WIDTH)
+        {
+            ImmutableList<A> ret = this;
+            for (int i = 0; i < list.size; i++)
+                ret = ret.append(list.get(i));
+            return ret;
+        }
+
+        final ImmutableList<A> a = this.trimmed();
+        final ImmutableList<? extends A> b = list.trimmed();
+
+        Object[] r = a.root;
+        final int[] sh = { a.shift };
+        if (a.treeSize == 0)
+        {
+            r = a.tail;
+            sh[0] = 0;
+        }
+        else if (a.tail.length > 0)
+        {
+            r = concatTrees(r, sh, a.tail, 0);
+        }
+        if (b.treeSize > 0)
         {
-            if (i == d.length) d = Arrays.copyOf(d, (d.length * 3) >> 1);
-            d[i++] = a;
+            r = concatTrees(r, sh, b.root, b.shift);
         }
-        this.data = Arrays.copyOf(d, i);
-        this.size = i;
+
+        return new ImmutableList<>(r, sh[0], this.size + list.size - b.tail.length, b.tail, 0, this.size + list.size);
+    }
+
+    /**
+     * Returns a view of this list without its first element.
+     *
+     * @return The view.
+     * @throws NoSuchElementException
+     *             if this list is empty
+     */
+    public ImmutableList<A> tail()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        return this.subList(1, this.size);
     }
 
     @Override
@@ -90,45 +289,31 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     @Override
     public boolean contains(final Object o)
     {
-        if (o == null)
-        {
-            for (int i = 0; i < this.size; i++)
-            {
-                if (this.data[i] == null) return true;
-            }
-        }
-        else
-        {
-            for (int i = 0; i < this.size; i++)
-            {
-                if (o.equals(this.data[i])) return true;
-            }
-        }
-        return false;
+        return this.indexOf(o) != -1;
     }
 
     @Override
     public Iterator<A> iterator()
     {
-        return new IIterator<>(this.data, 0, this.size);
+        return new Itr<>(this, 0);
     }
 
     @Override
     public Object[] toArray()
     {
-        return Arrays.copyOf(this.data, this.data.length);
+        final Object[] ret = new Object[this.size];
+        this.copyTo(ret);
+        return ret;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public <T> T[] toArray(final T[] a)
     {
-        if (a.length >= this.size)
-        {
-            System.arraycopy(this.data, 0, a, 0, this.size);
-            return a;
-        }
-
-        return (T[])Arrays.copyOf(this.data, this.size, a.getClass());
+        final T[] ret = a.length >= this.size ? a : (T[])java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), this.size);
+        this.copyTo(ret);
+        if (ret.length > this.size) ret[this.size] = null;
+        return ret;
     }
 
     @Override
@@ -187,8 +372,30 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     @Override
     public A get(final int index)
     {
-        if (index > this.size) throw new NoSuchElementException();
-        return (A)this.data[index];
+        this.checkIndex(index);
+        int i = this.start + index;
+        if (i >= this.treeSize) return (A)this.tail[i - this.treeSize];
+
+        Object[] node = this.root;
+        for (int sh = this.shift; sh > 0; sh -= BITS)
+        {
+            final int[] sizes = sizes(node);
+            int slot;
+            if (sizes == null)
+            {
+                slot = (i >>> sh) & MASK;
+                i &= (1 << sh) - 1;
+            }
+            else
+            {
+                slot = i >>> sh;
+                while (sizes[slot] <= i)
+                    slot++;
+                if (slot > 0) i -= sizes[slot - 1];
+            }
+            node = (Object[])node[slot];
+        }
+        return (A)node[i];
     }
 
     @Override
@@ -212,9 +419,10 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     @Override
     public int indexOf(final Object o)
     {
-        for (int i = 0; i < this.size; i++)
+        final Itr<A> it = new Itr<>(this, 0);
+        while (it.hasNext())
         {
-            if (Objects.equals(this.data[i], o)) return i;
+            if (Objects.equals(it.next(), o)) return it.previousIndex();
         }
         return -1;
     }
@@ -222,9 +430,10 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     @Override
     public int lastIndexOf(final Object o)
     {
-        for (int i = this.size - 1; i >= 0; i--)
+        final Itr<A> it = new Itr<>(this, this.size);
+        while (it.hasPrevious())
         {
-            if (Objects.equals(this.data[i], o)) return i;
+            if (Objects.equals(it.previous(), o)) return it.nextIndex();
         }
         return -1;
     }
@@ -232,19 +441,28 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     @Override
     public ListIterator<A> listIterator()
     {
-        return new ImmutableListIterator<>(this.data, 0, this.size);
+        return new Itr<>(this, 0);
     }
 
     @Override
     public ListIterator<A> listIterator(final int index)
     {
-        return new ImmutableListIterator<>(this.data, index, this.size - index);
+        if (index < 0 || index > this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        return new Itr<>(this, index);
     }
 
+    /**
+     * Returns a view of the given range in O(1).
+     */
     @Override
-    public List<A> subList(final int fromIndex, final int toIndex)
+    public ImmutableList<A> subList(final int fromIndex, final int toIndex)
     {
-        return new SubList<>(this, fromIndex, toIndex);
+        if (fromIndex < 0 || toIndex > this.size || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + this.size);
+        }
+        if (fromIndex == 0 && toIndex == this.size) return this;
+        return new ImmutableList<>(this.root, this.shift, this.treeSize, this.tail, this.start + fromIndex, toIndex - fromIndex);
     }
 
     @Override
@@ -253,8 +471,8 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
         if (this.hashCode == 0 && this.size > 0)
         {
             int h = 0;
-            for (int i = 0; i < this.size; i++)
-                h = h * 31 + (this.data[i] != null ? this.data[i].hashCode() : 0);
+            for (final A a : this)
+                h = h * 31 + (a != null ? a.hashCode() : 0);
             this.hashCode = h;
         }
         return this.hashCode;
@@ -270,9 +488,11 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
         final ImmutableList<?> l = (ImmutableList<?>)obj;
         if (l.size != this.size) return false;
 
-        for (int i = 0; i < this.size; i++)
+        final Iterator<?> a = this.iterator();
+        final Iterator<?> b = l.iterator();
+        while (a.hasNext())
         {
-            if (!Objects.equals(this.data[i], l.data[i])) return false;
+            if (!Objects.equals(a.next(), b.next())) return false;
         }
 
         return true;
@@ -283,10 +503,11 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
     {
         final StringBuilder sb = new StringBuilder();
         sb.append('[');
-        for (int i = 0; i < this.data.length; i++)
+        final Iterator<A> it = this.iterator();
+        while (it.hasNext())
         {
-            if (i != 0) sb.append(", ");
-            sb.append(this.data[i].toString());
+            sb.append(it.next());
+            if (it.hasNext()) sb.append(", ");
         }
         sb.append(']');
         return sb.toString();
@@ -298,268 +519,651 @@ public class ImmutableList<A> implements List<A>, RandomAccess, Cloneable, Seria
         return this;
     }
 
-    private final static class IIterator<A> implements Iterator<A>
+    private void checkIndex(final int index)
     {
-        private final Object[] data;
-        private int            index;
-        private final int      end;
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
 
-        public IIterator(final Object[] data, final int index, final int size)
+    /**
+     * Gets the leaf containing the absolute index {@code i}, stores the
+     * absolute index of the leaf's first element in {@code leafStart[0]}.
+     */
+    Object[] leafAt(final int i, final int[] leafStart)
+    {
+        if (i >= this.treeSize)
         {
-            this.data = data;
-            this.index = index;
-            this.end = index + size;
+            leafStart[0] = this.treeSize;
+            return this.tail;
         }
 
-        @Override
-        public boolean hasNext()
+        int idx = i;
+        Object[] node = this.root;
+        for (int sh = this.shift; sh > 0; sh -= BITS)
         {
-            return this.index != this.end;
+            final int[] sizes = sizes(node);
+            int slot;
+            if (sizes == null)
+            {
+                slot = (idx >>> sh) & MASK;
+                idx &= (1 << sh) - 1;
+            }
+            else
+            {
+                slot = idx >>> sh;
+                while (sizes[slot] <= idx)
+                    slot++;
+                if (slot > 0) idx -= sizes[slot - 1];
+            }
+            node = (Object[])node[slot];
         }
+        leafStart[0] = i - idx;
+        return node;
+    }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public A next()
+    private void copyTo(final Object[] dest)
+    {
+        final int[] leafStart = new int[1];
+        final int end = this.start + this.size;
+        int i = this.start;
+        while (i < end)
         {
-            if (this.index >= this.end) throw new NoSuchElementException();
-            return (A)this.data[this.index++];
+            final Object[] leaf = this.leafAt(i, leafStart);
+            final int n = Math.min(leafStart[0] + leaf.length, end) - i;
+            System.arraycopy(leaf, i - leafStart[0], dest, i - this.start, n);
+            i += n;
         }
+    }
 
-        @Override
-        public void remove()
+    /**
+     * Returns an equivalent list which isn't a view, i.e. without any
+     * elements before {@code start} or after {@code start + size}.
+     */
+    private ImmutableList<A> trimmed()
+    {
+        final int count = this.treeSize + this.tail.length;
+        if (this.start == 0 && this.size == count) return this;
+        if (this.size == 0) return empty();
+
+        final int end = this.start + this.size;
+        Object[] r = this.root;
+        int sh = this.shift;
+        int ts = this.treeSize;
+        Object[] t = this.tail;
+
+        if (end <= ts)
         {
-            throw new UnsupportedOperationException();
+            r = sliceRight(r, sh, end);
+            ts = end;
+            t = EMPTY_NODE;
+        }
+        else if (end < count)
+        {
+            t = Arrays.copyOf(t, end - ts, Object[].class);
         }
 
+        if (this.start >= ts)
+        {
+            t = Arrays.copyOfRange(t, this.start - ts, t.length, Object[].class);
+            r = EMPTY_NODE;
+            sh = 0;
+            ts = 0;
+        }
+        else if (this.start > 0)
+        {
+            r = sliceLeft(r, sh, this.start);
+            ts -= this.start;
+        }
+
+        while (sh > 0 && childCount(r) == 1)
+        {
+            r = (Object[])r[0];
+            sh -= BITS;
+        }
+
+        return new ImmutableList<>(r, sh, ts, t, 0, this.size);
     }
 
-    private final static class ImmutableListIterator<A> implements ListIterator<A>
+    /**
+     * Concatenates two trees, {@code shift[0]} holds the shift of the left
+     * tree on entry and the shift of the resulting tree on return.
+     */
+    private static Object[] concatTrees(final Object[] left, final int[] shift, final Object[] right, final int rightShift)
     {
-        private final Object[] data;
-        private final int      end;
-        private final int      start;
-        private int            index;
+        Object[] r = concatSubTree(left, shift[0], right, rightShift);
+        int sh = Math.max(shift[0], rightShift) + BITS;
+        while (sh > 0 && childCount(r) == 1)
+        {
+            r = (Object[])r[0];
+            sh -= BITS;
+        }
+        shift[0] = sh;
+        return r;
+    }
 
-        public ImmutableListIterator(final Object[] data, final int index, final int size)
+    /**
+     * Concatenates two subtrees, returns a node one level above the higher of
+     * both holding one or two children.
+     */
+    private static Object[] concatSubTree(final Object[] left, final int leftShift, final Object[] right, final int rightShift)
+    {
+        if (leftShift > rightShift)
+        {
+            final Object[] mid = concatSubTree((Object[])left[childCount(left) - 1], leftShift - BITS, right, rightShift);
+            return rebalance(left, mid, null, leftShift);
+        }
+        if (leftShift < rightShift)
         {
-            this.data = data;
-            this.index = this.start = index;
-            this.end = this.start + size;
+            final Object[] mid = concatSubTree(left, leftShift, (Object[])right[0], rightShift - BITS);
+            return rebalance(null, mid, right, rightShift);
+        }
+        if (leftShift == 0)
+        {
+            if (left.length + right.length <= WIDTH)
+            {
+                final Object[] leaf = new Object[left.length + right.length];
+                System.arraycopy(left, 0, leaf, 0, left.length);
+                System.arraycopy(right, 0, leaf, left.length, right.length);
+                return new Object[] { leaf };
+            }
+            return node(new Object[] { left, right }, 2, BITS);
         }
+        final Object[] mid = concatSubTree((Object[])left[childCount(left) - 1], leftShift - BITS, (Object[])right[0], rightShift - BITS);
+        return rebalance(left, mid, right, leftShift);
+    }
 
-        @Override
-        public boolean hasNext()
+    /**
+     * Merges all but the last child of {@code left}, the children of
+     * {@code mid} and all but the first child of {@code right}, redistributes
+     * them to keep the tree shallow and returns a node one level above
+     * {@code shift} holding the result.
+     */
+    private static Object[] rebalance(final Object[] left, final Object[] mid, final Object[] right, final int shift)
+    {
+        final int nl = left != null ? childCount(left) - 1 : 0;
+        final int nm = childCount(mid);
+        final int nr = right != null ? childCount(right) - 1 : 0;
+        final Object[] all = new Object[nl + nm + nr];
+        if (left != null) System.arraycopy(left, 0, all, 0, nl);
+        System.arraycopy(mid, 0, all, nl, nm);
+        if (right != null) System.arraycopy(right, 1, all, nl + nm, nr);
+
+        final int cs = shift - BITS;
+        final int[] plan = new int[all.length];
+        int total = 0;
+        for (int i = 0; i < all.length; i++)
         {
-            return this.index != this.end;
+            plan[i] = slotCount((Object[])all[i], cs);
+            total += plan[i];
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public A next()
+        final int optimal = (total + WIDTH - 1) >>> BITS;
+        int n = all.length;
+        int i = 0;
+        while (optimal + EXTRAS < n)
         {
-            if (this.index >= this.end) throw new NoSuchElementException();
-            return (A)this.data[this.index++];
+            while (plan[i] >= WIDTH - 1)
+                i++;
+            int remaining = plan[i];
+            do
+            {
+                final int min = Math.min(remaining + plan[i + 1], WIDTH);
+                plan[i] = min;
+                remaining = remaining + plan[i + 1] - min;
+                i++;
+            } while (remaining > 0);
+            for (int j = i; j < n - 1; j++)
+                plan[j] = plan[j + 1];
+            n--;
+            i--;
         }
 
-        @Override
-        public boolean hasPrevious()
+        final Object[] nodes = new Object[n];
+        int src = 0, offs = 0;
+        for (int k = 0; k < n; k++)
         {
-            return this.index > 0;
+            final int want = plan[k];
+            final Object[] s = (Object[])all[src];
+            if (offs == 0 && slotCount(s, cs) == want)
+            {
+                nodes[k] = s;
+                src++;
+                continue;
+            }
+            final Object[] buf = new Object[want];
+            int fill = 0;
+            while (fill < want)
+            {
+                final Object[] from = (Object[])all[src];
+                final int slots = slotCount(from, cs);
+                final int take = Math.min(slots - offs, want - fill);
+                System.arraycopy(from, offs, buf, fill, take);
+                fill += take;
+                offs += take;
+                if (offs == slots)
+                {
+                    src++;
+                    offs = 0;
+                }
+            }
+            nodes[k] = cs == 0 ? buf : node(buf, want, cs);
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public A previous()
+        if (n <= WIDTH) return new Object[] { node(nodes, n, shift) };
+        return node(new Object[] { node(nodes, WIDTH, shift), node(Arrays.copyOfRange(nodes, WIDTH, n, Object[].class), n - WIDTH, shift) }, 2,
+                shift + BITS);
+    }
+
+    /**
+     * Appends a leaf to the given tree.
+     *
+     * @return The new node or <code>null</code> if there's no room left.
+     */
+    private static Object[] pushLeaf(final Object[] node, final int shift, final Object[] leaf)
+    {
+        final int n = childCount(node);
+        if (shift == BITS) return n == WIDTH ? null : appendChild(node, n, shift, leaf);
+
+        final Object[] last = pushLeaf((Object[])node[n - 1], shift - BITS, leaf);
+        if (last != null)
         {
-            return (A)this.data[this.index - 1];
+            final Object[] copy = node.clone();
+            copy[n - 1] = last;
+            final int[] sizes = sizes(node);
+            if (sizes != null)
+            {
+                final int[] s = sizes.clone();
+                s[n - 1] += leaf.length;
+                copy[n] = s;
+            }
+            return copy;
         }
 
-        @Override
-        public int nextIndex()
+        return n == WIDTH ? null : appendChild(node, n, shift, newPath(shift - BITS, leaf));
+    }
+
+    private static Object[] appendChild(final Object[] node, final int n, final int shift, final Object[] child)
+    {
+        final int[] sizes = sizes(node);
+        if (sizes == null)
         {
-            return this.index;
+            if (sizeOf((Object[])node[n - 1], shift - BITS) == 1 << shift)
+            {
+                final Object[] copy = Arrays.copyOf(node, n + 1, Object[].class);
+                copy[n] = child;
+                return copy;
+            }
+            final Object[] children = Arrays.copyOf(node, n + 1, Object[].class);
+            children[n] = child;
+            return node(children, n + 1, shift);
         }
+        final Object[] copy = new Object[n + 2];
+        System.arraycopy(node, 0, copy, 0, n);
+        copy[n] = child;
+        final int[] s = Arrays.copyOf(sizes, n + 1);
+        s[n] = sizes[n - 1] + sizeOf(child, shift - BITS);
+        copy[n + 1] = s;
+        return copy;
+    }
 
-        @Override
-        public int previousIndex()
+    private static Object[] newPath(final int shift, final Object[] leaf)
+    {
+        Object[] node = leaf;
+        for (int sh = shift; sh > 0; sh -= BITS)
+            node = new Object[] { node };
+        return node;
+    }
+
+    private static Object[] assoc(final Object[] node, final int shift, final int index, final Object value)
+    {
+        final Object[] copy = node.clone();
+        if (shift == 0)
         {
-            return this.index - 1;
+            copy[index] = value;
+            return copy;
+        }
+        final int[] sizes = sizes(node);
+        int i = index, slot;
+        if (sizes == null)
+        {
+            slot = (i >>> shift) & MASK;
+            i &= (1 << shift) - 1;
         }
+        else
+        {
+            slot = i >>> shift;
+            while (sizes[slot] <= i)
+                slot++;
+            if (slot > 0) i -= sizes[slot - 1];
+        }
+        copy[slot] = assoc((Object[])node[slot], shift - BITS, i, value);
+        return copy;
+    }
 
-        @Override
-        public void remove()
+    /**
+     * Keeps the first {@code end} elements of the given subtree.
+     */
+    private static Object[] sliceRight(final Object[] node, final int shift, final int end)
+    {
+        if (shift == 0) return end == node.length ? node : Arrays.copyOf(node, end, Object[].class);
+
+        final int[] sizes = sizes(node);
+        final int i = end - 1;
+        int slot, before;
+        if (sizes == null)
         {
-            throw new UnsupportedOperationException();
+            slot = (i >>> shift) & MASK;
+            before = slot << shift;
+        }
+        else
+        {
+            slot = i >>> shift;
+            while (sizes[slot] <= i)
+                slot++;
+            before = slot > 0 ? sizes[slot - 1] : 0;
         }
 
-        @Override
-        public void set(final A e)
+        final Object[] child = sliceRight((Object[])node[slot], shift - BITS, end - before);
+        if (sizes == null)
         {
-            throw new UnsupportedOperationException();
+            final Object[] copy = Arrays.copyOf(node, slot + 1, Object[].class);
+            copy[slot] = child;
+            return copy;
         }
+        final Object[] copy = new Object[slot + 2];
+        System.arraycopy(node, 0, copy, 0, slot);
+        copy[slot] = child;
+        final int[] s = Arrays.copyOf(sizes, slot + 1);
+        s[slot] = end;
+        copy[slot + 1] = s;
+        return copy;
+    }
 
-        @Override
-        public void add(final A e)
+    /**
+     * Drops the first {@code from} elements of the given subtree.
+     */
+    private static Object[] sliceLeft(final Object[] node, final int shift, final int from)
+    {
+        if (from == 0) return node;
+        if (shift == 0) return Arrays.copyOfRange(node, from, node.length, Object[].class);
+
+        final int[] sizes = sizes(node);
+        int slot, before;
+        if (sizes == null)
         {
-            throw new UnsupportedOperationException();
+            slot = (from >>> shift) & MASK;
+            before = slot << shift;
         }
+        else
+        {
+            slot = from >>> shift;
+            while (sizes[slot] <= from)
+                slot++;
+            before = slot > 0 ? sizes[slot - 1] : 0;
+        }
+
+        final int n = childCount(node);
+        final Object[] children = new Object[n - slot];
+        System.arraycopy(node, slot, children, 0, n - slot);
+        children[0] = sliceLeft((Object[])node[slot], shift - BITS, from - before);
+        return node(children, n - slot, shift);
     }
 
-    static class SubList<A> extends ImmutableList<A>
+    /**
+     * Creates an inner node from the given children, adding a size table if
+     * the children aren't all full (except the last one).
+     */
+    private static Object[] node(final Object[] children, final int n, final int shift)
     {
-        private static final long serialVersionUID = 4983360084210193434L;
-        private final int         start;
-        private final int         end;
+        final int[] sizes = new int[n];
+        final long full = 1L << shift;
+        boolean dense = true;
+        int total = 0;
+        for (int i = 0; i < n; i++)
+        {
+            total += sizeOf((Object[])children[i], shift - BITS);
+            sizes[i] = total;
+            if (i < n - 1 && total != (i + 1) * full) dense = false;
+        }
+        if (dense) return Arrays.copyOf(children, n, Object[].class);
+        final Object[] ret = new Object[n + 1];
+        System.arraycopy(children, 0, ret, 0, n);
+        ret[n] = sizes;
+        return ret;
+    }
+
+    /**
+     * Gets the size table of an inner node, <code>null</code> for dense nodes.
+     */
+    private static int[] sizes(final Object[] node)
+    {
+        final Object last = node[node.length - 1];
+        return last instanceof int[] ? (int[])last : null;
+    }
 
-        public SubList(final ImmutableList<A> list, final int start, final int end)
+    private static int childCount(final Object[] node)
+    {
+        return node[node.length - 1] instanceof int[] ? node.length - 1 : node.length;
+    }
+
+    private static int slotCount(final Object[] node, final int shift)
+    {
+        return shift == 0 ? node.length : childCount(node);
+    }
+
+    private static int sizeOf(final Object[] node, final int shift)
+    {
+        if (shift == 0) return node.length;
+        final int[] sizes = sizes(node);
+        if (sizes != null) return sizes[sizes.length - 1];
+        final int n = node.length;
+        return ((n - 1) << shift) + sizeOf((Object[])node[n - 1], shift - BITS);
+    }
+
+    /**
+     * Builder for {@code ImmutableList}s. Elements are collected in mutable
+     * leaves, the tree is built in O(n) by {@link #build()}. A builder may be
+     * used further after calling {@code build()}.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     *
+     * @param <A>
+     */
+    public final static class Builder<A>
+    {
+        private final ImmutableList<A> prefix;
+        private Object[][]             leaves  = new Object[8][];
+        private int                    leafCount;
+        private Object[]               current = new Object[WIDTH];
+        private int                    pos;
+
+        public Builder()
         {
-            super(list.data, Math.max(0, end - start));
-            this.start = Math.min(list.size, start);
-            this.end = this.start + this.size;
+            this.prefix = null;
         }
 
-        @Override
-        public boolean contains(final Object o)
+        /**
+         * Creates a builder appending to the given list.
+         *
+         * @param prefix
+         *            The list.
+         */
+        public Builder(final ImmutableList<A> prefix)
         {
-            if (o == null)
-            {
-                for (int i = this.size; i < this.end; i++)
-                {
-                    if (this.data[i] == null) return true;
-                }
-            }
-            else
-            {
-                for (int i = this.start; i < this.end; i++)
-                {
-                    if (o.equals(this.data[i])) return true;
-                }
-            }
-            return false;
+            this.prefix = prefix;
         }
 
-        @Override
-        public Iterator<A> iterator()
+        /**
+         * Gets the number of elements added to this builder.
+         *
+         * @return The number of elements.
+         */
+        public int size()
         {
-            return new IIterator<>(this.data, this.start, this.size);
+            return (this.leafCount << BITS) + this.pos;
         }
 
-        @Override
-        public Object[] toArray()
+        public Builder<A> add(final A a)
         {
-            final Object[] ret = new Object[this.size];
-            System.arraycopy(this.data, this.start, ret, 0, this.size);
-            return ret;
+            this.current[this.pos++] = a;
+            if (this.pos == WIDTH) this.pushLeaf();
+            return this;
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public <T> T[] toArray(final T[] a)
+        public Builder<A> addAll(final Iterable<? extends A> coll)
         {
-            if (a.length >= this.size)
+            if (coll instanceof Collection)
             {
-                System.arraycopy(this.data, this.start, a, 0, this.size);
-                return a;
+                final Object[] arr = ((Collection<? extends A>)coll).toArray();
+                return this.add(arr, 0, arr.length);
             }
+            for (final A a : coll)
+                this.add(a);
+            return this;
+        }
+
+        @SafeVarargs
+        public final Builder<A> addAll(final A... values)
+        {
+            return this.add(values, 0, values.length);
+        }
 
-            return (T[])this.toArray();
+        Builder<A> add(final Object[] values, final int offset, final int length)
+        {
+            int off = offset;
+            final int end = offset + length;
+            while (off < end)
+            {
+                final int n = Math.min(WIDTH - this.pos, end - off);
+                System.arraycopy(values, off, this.current, this.pos, n);
+                this.pos += n;
+                off += n;
+                if (this.pos == WIDTH) this.pushLeaf();
+            }
+            return this;
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public A get(final int index)
+        private void pushLeaf()
         {
-            if (index > this.size) throw new NoSuchElementException();
-            return (A)this.data[this.start + index];
+            if (this.leafCount == this.leaves.length) this.leaves = Arrays.copyOf(this.leaves, this.leafCount << 1);
+            this.leaves[this.leafCount++] = this.current;
+            this.current = new Object[WIDTH];
+            this.pos = 0;
         }
 
-        @Override
-        public int indexOf(final Object o)
+        /**
+         * Creates a list containing the prefix (if any) and all elements
+         * added so far.
+         *
+         * @return The list.
+         */
+        public ImmutableList<A> build()
         {
-            for (int i = this.start; i < this.end; i++)
+            final Object[] tail = Arrays.copyOf(this.current, this.pos, Object[].class);
+            final int size = this.size();
+            final ImmutableList<A> ret;
+            if (this.leafCount == 0)
             {
-                if (Objects.equals(this.data[i], o)) return i - this.start;
+                ret = new ImmutableList<>(EMPTY_NODE, 0, 0, tail, 0, size);
             }
-            return -1;
+            else
+            {
+                Object[] level = Arrays.copyOf(this.leaves, this.leafCount, Object[].class);
+                int n = this.leafCount;
+                int shift = 0;
+                while (n > 1)
+                {
+                    final int m = (n + WIDTH - 1) >>> BITS;
+                    final Object[] up = new Object[m];
+                    for (int i = 0; i < m; i++)
+                        up[i] = Arrays.copyOfRange(level, i << BITS, Math.min(n, (i + 1) << BITS), Object[].class);
+                    level = up;
+                    n = m;
+                    shift += BITS;
+                }
+                ret = new ImmutableList<>((Object[])level[0], shift, this.leafCount << BITS, tail, 0, size);
+            }
+            return this.prefix != null ? this.prefix.concat(ret) : ret;
         }
+    }
 
-        @Override
-        public int lastIndexOf(final Object o)
+    private final static class Itr<A> implements ListIterator<A>
+    {
+        private final ImmutableList<A> list;
+        private final int[]            leafStart = new int[1];
+        private Object[]               leaf;
+        private int                    index;
+
+        public Itr(final ImmutableList<A> list, final int index)
         {
-            for (int i = this.end - 1; i >= this.start; i--)
+            this.list = list;
+            this.index = index;
+        }
+
+        @SuppressWarnings("unchecked")
+        private A at(final int i)
+        {
+            final int abs = this.list.start + i;
+            if (this.leaf == null || abs < this.leafStart[0] || abs >= this.leafStart[0] + this.leaf.length)
             {
-                if (Objects.equals(this.data[i], o)) return i - this.start;
+                this.leaf = this.list.leafAt(abs, this.leafStart);
             }
-            return -1;
+            return (A)this.leaf[abs - this.leafStart[0]];
         }
 
         @Override
-        public ListIterator<A> listIterator()
+        public boolean hasNext()
         {
-            return new ImmutableListIterator<>(this.data, this.start, this.size);
+            return this.index < this.list.size;
         }
 
         @Override
-        public ListIterator<A> listIterator(final int index)
+        public A next()
         {
-            return new ImmutableListIterator<>(this.data, this.start + index, this.size - index - this.start);
+            if (this.index >= this.list.size) throw new NoSuchElementException();
+            return this.at(this.index++);
         }
 
         @Override
-        public List<A> subList(final int fromIndex, final int toIndex)
+        public boolean hasPrevious()
         {
-            return new SubList<>(this, this.start + fromIndex, this.start + toIndex);
+            return this.index > 0;
         }
 
         @Override
-        public int hashCode()
+        public A previous()
         {
-            if (this.hashCode == 0 && this.size > 0)
-            {
-                int h = 0;
-                for (int i = this.start; i < this.end; i++)
-                    h = h * 31 + (this.data[i] != null ? this.data[i].hashCode() : 0);
-                this.hashCode = h;
-            }
-            return this.hashCode;
+            if (this.index <= 0) throw new NoSuchElementException();
+            return this.at(--this.index);
         }
 
         @Override
-        public boolean equals(final Object obj)
+        public int nextIndex()
         {
-            if (obj == this) return true;
-
-            if (!(obj instanceof ImmutableList)) return false;
-
-            final ImmutableList<?> l = (ImmutableList<?>)obj;
-            if (l.size != this.size) return false;
+            return this.index;
+        }
 
-            for (int i = this.start; i < this.end; i++)
-            {
-                if (!Objects.equals(this.data[i], l.data[i])) return false;
-            }
+        @Override
+        public int previousIndex()
+        {
+            return this.index - 1;
+        }
 
-            return true;
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
         }
 
         @Override
-        public String toString()
+        public void set(final A e)
         {
-            final StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = this.start; i < this.end; i++)
-            {
-                if (i != this.start) sb.append(", ");
-                sb.append(this.data[i].toString());
-            }
-            sb.append(']');
-            return sb.toString();
+            throw new UnsupportedOperationException();
         }
 
         @Override
-        public ImmutableList<A> clone()
+        public void add(final A e)
         {
-            return this;
+            throw new UnsupportedOperationException();
         }
     }
 }
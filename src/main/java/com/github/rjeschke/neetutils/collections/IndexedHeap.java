@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+import com.github.rjeschke.neetutils.collections.BinaryHeap.Type;
+
+/**
+ * 4-ary heap returning a {@link Handle} for each element, handles allow
+ * changing an element's priority or removing it in O(log n).
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ *
+ * @param <T>
+ */
+public class IndexedHeap<T>
+{
+    public final static int             DEFAULT_INITIAL_SIZE = 16;
+
+    private Handle<?>[]                 data;
+    private int                         size;
+    /** Orders elements by priority, highest priority first. */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Creates a heap using natural ordering, elements must implement
+     * {@code Comparable}.
+     *
+     * @param type
+     *            Whether the least (MIN) or greatest (MAX) element is on top.
+     */
+    public IndexedHeap(final Type type)
+    {
+        this(type, null, DEFAULT_INITIAL_SIZE);
+    }
+
+    /**
+     * Creates a heap ordered by the given comparator.
+     *
+     * @param type
+     *            Whether the least (MIN) or greatest (MAX) element is on top.
+     * @param comparator
+     *            The comparator, <code>null</code> for natural ordering.
+     */
+    public IndexedHeap(final Type type, final Comparator<? super T> comparator)
+    {
+        this(type, comparator, DEFAULT_INITIAL_SIZE);
+    }
+
+    /**
+     * Creates a heap ordered by the given comparator.
+     *
+     * @param type
+     *            Whether the least (MIN) or greatest (MAX) element is on top.
+     * @param comparator
+     *            The comparator, <code>null</code> for natural ordering.
+     * @param initialSize
+     *            Initial capacity.
+     */
+    public IndexedHeap(final Type type, final Comparator<? super T> comparator, final int initialSize)
+    {
+        this.data = new Handle<?>[Math.max(initialSize, 1)];
+        this.comparator = BinaryHeap.order(type, comparator);
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all elements, invalidating their handles.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.size; i++)
+        {
+            this.data[i].index = -1;
+            this.data[i] = null;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Gets the top element without removing it.
+     *
+     * @return The top element or <code>null</code> if this heap is empty.
+     */
+    public T get()
+    {
+        return this.size != 0 ? this.handle(0).value : null;
+    }
+
+    /**
+     * Gets the handle of the top element.
+     *
+     * @return The handle or <code>null</code> if this heap is empty.
+     */
+    public Handle<T> getHandle()
+    {
+        return this.size != 0 ? this.handle(0) : null;
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param e
+     *            The element.
+     * @return The element's handle.
+     */
+    public Handle<T> put(final T e)
+    {
+        if (this.size == this.data.length)
+        {
+            this.data = Arrays.copyOf(this.data, this.size + (this.size >> 1) + 1);
+        }
+        final Handle<T> h = new Handle<>(e);
+        this.data[this.size] = h;
+        h.index = this.size++;
+        this.siftUp(h.index);
+        return h;
+    }
+
+    /**
+     * Removes the top element.
+     *
+     * @return The top element.
+     * @throws NoSuchElementException
+     *             if this heap is empty
+     */
+    public T remove()
+    {
+        if (this.size == 0) throw new NoSuchElementException("Heap is empty");
+        final Handle<T> h = this.handle(0);
+        this.removeAt(0);
+        return h.value;
+    }
+
+    /**
+     * Removes the element of the given handle.
+     *
+     * @param handle
+     *            The handle.
+     * @return <code>true</code> if the element was removed,
+     *         <code>false</code> if it wasn't in this heap.
+     */
+    public boolean remove(final Handle<T> handle)
+    {
+        if (!this.contains(handle)) return false;
+        this.removeAt(handle.index);
+        return true;
+    }
+
+    /**
+     * Checks if the given handle belongs to an element of this heap.
+     *
+     * @param handle
+     *            The handle.
+     * @return <code>true</code> if the element is in this heap.
+     */
+    public boolean contains(final Handle<?> handle)
+    {
+        return handle.index >= 0 && handle.index < this.size && this.data[handle.index] == handle;
+    }
+
+    /**
+     * Replaces the element of the given handle and restores heap order, the
+     * new element may have a higher or lower priority.
+     *
+     * @param handle
+     *            The handle.
+     * @param e
+     *            The new element.
+     */
+    public void update(final Handle<T> handle, final T e)
+    {
+        if (!this.contains(handle)) throw new NoSuchElementException("Handle is not part of this heap");
+        final T old = handle.value;
+        handle.value = e;
+        if (this.comparator.compare(e, old) < 0)
+        {
+            this.siftUp(handle.index);
+        }
+        else
+        {
+            this.siftDown(handle.index);
+        }
+    }
+
+    /**
+     * Replaces the element of the given handle by an element with a higher
+     * (or equal) priority, i.e. a smaller element in a MIN heap or a greater
+     * element in a MAX heap.
+     *
+     * @param handle
+     *            The handle.
+     * @param e
+     *            The new element.
+     * @throws IllegalArgumentException
+     *             if the new element has a lower priority
+     */
+    public void decreaseKey(final Handle<T> handle, final T e)
+    {
+        if (!this.contains(handle)) throw new NoSuchElementException("Handle is not part of this heap");
+        if (this.comparator.compare(e, handle.value) > 0) throw new IllegalArgumentException("New element has a lower priority");
+        handle.value = e;
+        this.siftUp(handle.index);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < this.size; i++)
+        {
+            if (i > 0) sb.append(", ");
+            sb.append(this.data[i].value);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Handle<T> handle(final int index)
+    {
+        return (Handle<T>)this.data[index];
+    }
+
+    private void removeAt(final int index)
+    {
+        final Handle<?> removed = this.data[index];
+        final int last = --this.size;
+        if (index != last)
+        {
+            this.data[index] = this.data[last];
+            this.data[index].index = index;
+        }
+        this.data[last] = null;
+        removed.index = -1;
+        if (index != last)
+        {
+            this.siftDown(index);
+            this.siftUp(index);
+        }
+    }
+
+    private void siftUp(final int index)
+    {
+        final Handle<T> h = this.handle(index);
+        int pos = index;
+        while (pos > 0)
+        {
+            final int parent = (pos - 1) >> 2;
+            final Handle<T> p = this.handle(parent);
+            if (this.comparator.compare(h.value, p.value) >= 0) break;
+            this.data[pos] = p;
+            p.index = pos;
+            pos = parent;
+        }
+        this.data[pos] = h;
+        h.index = pos;
+    }
+
+    private void siftDown(final int index)
+    {
+        final Handle<T> h = this.handle(index);
+        int pos = index;
+        for (;;)
+        {
+            final int first = (pos << 2) + 1;
+            if (first >= this.size) break;
+            final int end = Math.min(first + 4, this.size);
+            int best = first;
+            for (int c = first + 1; c < end; c++)
+            {
+                if (this.comparator.compare(this.handle(c).value, this.handle(best).value) < 0) best = c;
+            }
+            final Handle<T> b = this.handle(best);
+            if (this.comparator.compare(b.value, h.value) >= 0) break;
+            this.data[pos] = b;
+            b.index = pos;
+            pos = best;
+        }
+        this.data[pos] = h;
+        h.index = pos;
+    }
+
+    /**
+     * Handle of a heap element.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     *
+     * @param <T>
+     */
+    public final static class Handle<T>
+    {
+        T   value;
+        int index = -1;
+
+        Handle(final T value)
+        {
+            this.value = value;
+        }
+
+        /**
+         * Gets the element.
+         *
+         * @return The element.
+         */
+        public T get()
+        {
+            return this.value;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Handle: " + this.value;
+        }
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import com.github.rjeschke.neetutils.fn.FnCombine;
+import com.github.rjeschke.neetutils.fn.FnFoldStep;
+import com.github.rjeschke.neetutils.fn.FnMapping;
+import com.github.rjeschke.neetutils.fn.FnPredicate;
+
+/**
+ * Lazily evaluated collection view, see {@link Colls#lazy(Iterable)}.
+ *
+ * <p>
+ * Intermediate operations ({@code map}, {@code filter}, {@code take},
+ * {@code drop}, {@code zip}) only record a stage. Terminal operations
+ * ({@code reduce}, {@code asList}, {@code count}, {@code first}) or iteration
+ * run all stages fused in a single pass over the source, without any
+ * intermediate collections. A {@code Lazy} can be evaluated any number of
+ * times, each evaluation reads the source again.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ *
+ * @param <A>
+ */
+public final class Lazy<A> implements Iterable<A>
+{
+    private final Iterable<?> source;
+    /** Last stage, <code>null</code> if there are none. */
+    private final Stage       stage;
+
+    Lazy(final Iterable<A> source)
+    {
+        this(source, null);
+    }
+
+    private Lazy(final Iterable<?> source, final Stage stage)
+    {
+        this.source = source;
+        this.stage = stage;
+    }
+
+    public <B> Lazy<B> map(final FnMapping<? super A, B> fn)
+    {
+        return new Lazy<>(this.source, new MapStage(this.stage, fn));
+    }
+
+    public Lazy<A> filter(final FnPredicate<? super A> fn)
+    {
+        return new Lazy<>(this.source, new FilterStage(this.stage, fn));
+    }
+
+    public Lazy<A> take(final int amount)
+    {
+        return new Lazy<>(this.source, new TakeStage(this.stage, amount));
+    }
+
+    public Lazy<A> drop(final int amount)
+    {
+        return new Lazy<>(this.source, new DropStage(this.stage, amount));
+    }
+
+    public Lazy<A> tail()
+    {
+        return this.drop(1);
+    }
+
+    public <B> Lazy<Tuple<A, B>> zip(final Iterable<B> coll)
+    {
+        return this.zip(coll, new FnCombine<A, B, Tuple<A, B>>()
+        {
+            @Override
+            public Tuple<A, B> applyCombine(final A a, final B b)
+            {
+                return Tuple.of(a, b);
+            }
+        });
+    }
+
+    public <B, C> Lazy<C> zip(final Iterable<B> coll, final FnCombine<? super A, ? super B, C> fn)
+    {
+        return new Lazy<>(this.source, new ZipStage(this.stage, coll, fn));
+    }
+
+    /**
+     * Gets the number of elements if it is known without evaluation, i.e. if
+     * the source is a {@code Collection} and there are no filter stages.
+     *
+     * @return The number of elements or <code>-1</code>.
+     */
+    public int knownSize()
+    {
+        return size(this.stage, this.source);
+    }
+
+    public <B> B reduce(final FnFoldStep<? super A, B> fn, final B initial)
+    {
+        final ReduceSink<A, B> sink = new ReduceSink<>(fn, initial);
+        this.evaluate(sink);
+        return sink.value;
+    }
+
+    /**
+     * Counts the elements, without evaluation if the number of elements is
+     * known.
+     *
+     * @return The number of elements.
+     * @see #knownSize()
+     */
+    public int count()
+    {
+        final int size = this.knownSize();
+        if (size >= 0) return size;
+        final int[] count = new int[1];
+        this.evaluate(new Sink()
+        {
+            @Override
+            public boolean accept(final Object a)
+            {
+                count[0]++;
+                return true;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns the first element, evaluating only as much of the source as
+     * necessary.
+     *
+     * @return The first element.
+     * @throws NoSuchElementException
+     *             if there are no elements
+     */
+    public A first()
+    {
+        final Iterator<A> it = this.iterator();
+        if (!it.hasNext()) throw new NoSuchElementException();
+        return it.next();
+    }
+
+    /**
+     * Evaluates this view into a new List, pre-sized if the number of
+     * elements is known.
+     *
+     * @return The List.
+     */
+    public List<A> asList()
+    {
+        final int size = this.knownSize();
+        return this.asList(size >= 0 ? new ArrayList<A>(size) : new ArrayList<A>());
+    }
+
+    public List<A> asList(final List<A> list)
+    {
+        this.evaluate(new Sink()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public boolean accept(final Object a)
+            {
+                list.add((A)a);
+                return true;
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public Iterator<A> iterator()
+    {
+        return new Itr<>(this.source.iterator(), this.stage);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.asList().toString();
+    }
+
+    private static int size(final Stage stage, final Iterable<?> source)
+    {
+        if (stage == null) return source instanceof Collection ? ((Collection<?>)source).size() : -1;
+        final int size = size(stage.previous, source);
+        return size < 0 ? -1 : stage.size(size);
+    }
+
+    private void evaluate(final Sink terminal)
+    {
+        final Sink sink = wrap(this.stage, terminal);
+        if (this.source instanceof List && this.source instanceof RandomAccess)
+        {
+            final List<?> list = (List<?>)this.source;
+            final int n = list.size();
+            for (int i = 0; i < n; i++)
+            {
+                if (!sink.accept(list.get(i))) break;
+            }
+        }
+        else
+        {
+            for (final Object a : this.source)
+            {
+                if (!sink.accept(a)) break;
+            }
+        }
+    }
+
+    private static Sink wrap(final Stage last, final Sink terminal)
+    {
+        Sink sink = terminal;
+        for (Stage s = last; s != null; s = s.previous)
+            sink = s.wrap(sink);
+        return sink;
+    }
+
+    /**
+     * Element consumer of a fused pipeline.
+     */
+    private interface Sink
+    {
+        /**
+         * Consumes an element.
+         *
+         * @return <code>false</code> if no more elements are wanted.
+         */
+        public boolean accept(Object a);
+    }
+
+    private abstract static class Stage
+    {
+        final Stage previous;
+
+        Stage(final Stage previous)
+        {
+            this.previous = previous;
+        }
+
+        /**
+         * Creates a (fresh) sink for this stage feeding {@code next}.
+         */
+        abstract Sink wrap(Sink next);
+
+        /**
+         * Gets the number of elements this stage emits for {@code size} input
+         * elements, <code>-1</code> if unknown.
+         */
+        abstract int size(int size);
+    }
+
+    private final static class MapStage extends Stage
+    {
+        private final FnMapping<Object, Object> fn;
+
+        @SuppressWarnings("unchecked")
+        MapStage(final Stage previous, final FnMapping<?, ?> fn)
+        {
+            super(previous);
+            this.fn = (FnMapping<Object, Object>)fn;
+        }
+
+        @Override
+        Sink wrap(final Sink next)
+        {
+            return new Sink()
+            {
+                @Override
+                public boolean accept(final Object a)
+                {
+                    return next.accept(MapStage.this.fn.applyMapping(a));
+                }
+            };
+        }
+
+        @Override
+        int size(final int size)
+        {
+            return size;
+        }
+    }
+
+    private final static class FilterStage extends Stage
+    {
+        private final FnPredicate<Object> fn;
+
+        @SuppressWarnings("unchecked")
+        FilterStage(final Stage previous, final FnPredicate<?> fn)
+        {
+            super(previous);
+            this.fn = (FnPredicate<Object>)fn;
+        }
+
+        @Override
+        Sink wrap(final Sink next)
+        {
+            return new Sink()
+            {
+                @Override
+                public boolean accept(final Object a)
+                {
+                    return !FilterStage.this.fn.applyPredicate(a) || next.accept(a);
+                }
+            };
+        }
+
+        @Override
+        int size(final int size)
+        {
+            return -1;
+        }
+    }
+
+    private final static class TakeStage extends Stage
+    {
+        private final int amount;
+
+        TakeStage(final Stage previous, final int amount)
+        {
+            super(previous);
+            this.amount = amount;
+        }
+
+        @Override
+        Sink wrap(final Sink next)
+        {
+            return new Sink()
+            {
+                private int todo = TakeStage.this.amount;
+
+                @Override
+                public boolean accept(final Object a)
+                {
+                    if (this.todo <= 0) return false;
+                    this.todo--;
+                    return next.accept(a) && this.todo > 0;
+                }
+            };
+        }
+
+        @Override
+        int size(final int size)
+        {
+            return Math.max(0, Math.min(size, this.amount));
+        }
+    }
+
+    private final static class DropStage extends Stage
+    {
+        private final int amount;
+
+        DropStage(final Stage previous, final int amount)
+        {
+            super(previous);
+            this.amount = amount;
+        }
+
+        @Override
+        Sink wrap(final Sink next)
+        {
+            return new Sink()
+            {
+                private int skip = DropStage.this.amount;
+
+                @Override
+                public boolean accept(final Object a)
+                {
+                    if (this.skip > 0)
+                    {
+                        this.skip--;
+                        return true;
+                    }
+                    return next.accept(a);
+                }
+            };
+        }
+
+        @Override
+        int size(final int size)
+        {
+            return Math.max(0, size - Math.max(0, this.amount));
+        }
+    }
+
+    private final static class ZipStage extends Stage
+    {
+        private final Iterable<?>                       other;
+        private final FnCombine<Object, Object, Object> fn;
+
+        @SuppressWarnings("unchecked")
+        ZipStage(final Stage previous, final Iterable<?> other, final FnCombine<?, ?, ?> fn)
+        {
+            super(previous);
+            this.other = other;
+            this.fn = (FnCombine<Object, Object, Object>)fn;
+        }
+
+        @Override
+        Sink wrap(final Sink next)
+        {
+            final Iterator<?> it = this.other.iterator();
+            return new Sink()
+            {
+                @Override
+                public boolean accept(final Object a)
+                {
+                    if (!it.hasNext()) return false;
+                    return next.accept(ZipStage.this.fn.applyCombine(a, it.next())) && it.hasNext();
+                }
+            };
+        }
+
+        @Override
+        int size(final int size)
+        {
+            return this.other instanceof Collection ? Math.min(size, ((Collection<?>)this.other).size()) : -1;
+        }
+    }
+
+    private final static class ReduceSink<A, B> implements Sink
+    {
+        private final FnFoldStep<? super A, B> fn;
+        B                                      value;
+
+        ReduceSink(final FnFoldStep<? super A, B> fn, final B initial)
+        {
+            this.fn = fn;
+            this.value = initial;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean accept(final Object a)
+        {
+            this.value = this.fn.applyFoldStep((A)a, this.value);
+            return true;
+        }
+    }
+
+    /**
+     * Pull adapter, every stage emits at most one element per source element,
+     * so a single slot suffices.
+     */
+    private final static class Itr<A> implements Iterator<A>, Sink
+    {
+        private final Iterator<?> source;
+        private final Sink        head;
+        private Object            element;
+        private boolean           hasElement = false;
+        private boolean           done       = false;
+
+        Itr(final Iterator<?> source, final Stage stage)
+        {
+            this.source = source;
+            this.head = wrap(stage, this);
+        }
+
+        @Override
+        public boolean accept(final Object a)
+        {
+            this.element = a;
+            this.hasElement = true;
+            return true;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (!this.hasElement && !this.done)
+            {
+                if (!this.source.hasNext() || !this.head.accept(this.source.next())) this.done = true;
+            }
+            return this.hasElement;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public A next()
+        {
+            if (!this.hasNext()) throw new NoSuchElementException();
+            final A a = (A)this.element;
+            this.element = null;
+            this.hasElement = false;
+            return a;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
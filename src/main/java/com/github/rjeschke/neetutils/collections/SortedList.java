@@ -15,15 +15,25 @@
  */
 package com.github.rjeschke.neetutils.collections;
 
-import java.util.ArrayList;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
+ * A list keeping its elements sorted.
+ *
+ * <p>
+ * Backed by a B+-tree with subtree element counts, so <code>add</code>,
+ * <code>remove</code> and indexed <code>get</code> are O(log n). Equal elements
+ * keep their insertion order. Bulk additions are sorted and merged.
+ * </p>
  *
  * @author René Jeschke (rene_jeschke@yahoo.de)
  *
@@ -31,37 +41,44 @@ import java.util.ListIterator;
  */
 public class SortedList<E extends Comparable<? super E>> implements List<E>, Cloneable
 {
-    private final ArrayList<E>          list;
+    /** Node capacity. */
+    private final static int            MAX      = 64;
+    /** Fill level of nodes created by bulk loading. */
+    private final static int            FILL     = MAX * 3 / 4;
     private final Comparator<? super E> comparator;
+    private Node                        root     = new Leaf();
+    private int                         size     = 0;
+    private int                         modCount = 0;
+    /** Separator key of the last node split. */
+    private Object                      splitKey;
 
     public SortedList()
     {
-        this.list = new ArrayList<>();
         this.comparator = null;
     }
 
+    /**
+     * @param initialSize
+     *            Ignored, kept for compatibility.
+     */
     public SortedList(final int initialSize)
     {
-        this.list = new ArrayList<>(initialSize);
         this.comparator = null;
     }
 
     public SortedList(final Comparator<? super E> comparator)
     {
-        this.list = new ArrayList<>();
         this.comparator = comparator;
     }
 
     public SortedList(final Collection<? extends E> c)
     {
-        this.list = new ArrayList<>();
         this.comparator = null;
         this.addAll(c);
     }
 
     public SortedList(final Collection<? extends E> c, final Comparator<? super E> comparator)
     {
-        this.list = new ArrayList<>();
         this.comparator = comparator;
         this.addAll(c);
     }
@@ -69,15 +86,21 @@ public class SortedList<E extends Comparable<? super E>> implements List<E>, Clo
     @Override
     public boolean add(final E e)
     {
-        final int index = this.comparator == null ? Collections.binarySearch(this.list, e) : Collections.binarySearch(this.list, e, this.comparator);
-        if (index < 0)
-        {
-            this.list.add(-index - 1, e);
-        }
-        else
+        final Node split = this.insert(this.root, e);
+        if (split != null)
         {
-            this.list.add(index + 1, e);
+            final Inner r = new Inner();
+            r.children[0] = this.root;
+            r.counts[0] = count(this.root);
+            r.children[1] = split;
+            r.counts[1] = count(split);
+            r.keys[1] = this.splitKey;
+            r.n = 2;
+            this.root = r;
         }
+        this.splitKey = null;
+        this.size++;
+        this.modCount++;
         return true;
     }
 
@@ -87,14 +110,45 @@ public class SortedList<E extends Comparable<? super E>> implements List<E>, Clo
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Adds all elements of the given collection. Large collections get sorted
+     * and merged with this list in O(n + m log m).
+     */
     @Override
     public boolean addAll(final Collection<? extends E> c)
     {
-        for (final E e : c)
+        final Object[] add = c.toArray();
+        if (add.length == 0) return false;
+        if ((long)add.length * 16 < this.size)
+        {
+            for (final Object e : add)
+            {
+                this.add(this.<E> cast(e));
+            }
+            return true;
+        }
+        this.sortArray(add);
+        final Object[] merged = new Object[this.size + add.length];
+        int j = 0, k = 0;
+        for (Leaf leaf = this.firstLeaf(); leaf != null; leaf = leaf.next)
+        {
+            for (int p = 0; p < leaf.n; p++)
+            {
+                final Object e = leaf.items[p];
+                while (j < add.length && this.compare(add[j], e) < 0)
+                {
+                    merged[k++] = add[j++];
+                }
+                merged[k++] = e;
+            }
+        }
+        while (j < add.length)
         {
-            this.add(e);
+            merged[k++] = add[j++];
         }
-        return c.size() > 0;
+        this.build(merged, merged.length, FILL);
+        this.modCount++;
+        return true;
     }
 
     @Override
@@ -106,85 +160,136 @@ public class SortedList<E extends Comparable<? super E>> implements List<E>, Clo
     @Override
     public void clear()
     {
-        this.list.clear();
+        this.root = new Leaf();
+        this.size = 0;
+        this.modCount++;
     }
 
     @Override
     public boolean contains(final Object o)
     {
-        return this.list.contains(o);
+        return this.indexOf(o) >= 0;
     }
 
     @Override
     public boolean containsAll(final Collection<?> c)
     {
-        return this.list.containsAll(c);
+        for (final Object o : c)
+        {
+            if (!this.contains(o)) return false;
+        }
+        return true;
     }
 
     @Override
     public E get(final int index)
     {
-        return this.list.get(index);
+        this.checkIndex(index);
+        Node node = this.root;
+        int i = index;
+        while (node instanceof Inner)
+        {
+            final Inner in = (Inner)node;
+            int c = 0;
+            while (i >= in.counts[c])
+            {
+                i -= in.counts[c++];
+            }
+            node = in.children[c];
+        }
+        return this.<E> cast(((Leaf)node).items[i]);
     }
 
     @Override
     public int indexOf(final Object o)
     {
-        return this.list.indexOf(o);
+        final E e = this.castOrNull(o);
+        if (e == null) return -1;
+        for (int i = this.lowerBound(e); i < this.size; i++)
+        {
+            final E v = this.get(i);
+            if (this.compare(v, e) != 0) break;
+            if (v.equals(o)) return i;
+        }
+        return -1;
     }
 
     @Override
     public boolean isEmpty()
     {
-        return this.list.isEmpty();
+        return this.size == 0;
     }
 
     @Override
     public Iterator<E> iterator()
     {
-        return this.list.iterator();
+        return new Itr(0);
     }
 
     @Override
     public int lastIndexOf(final Object o)
     {
-        return this.list.lastIndexOf(o);
+        final E e = this.castOrNull(o);
+        if (e == null) return -1;
+        for (int i = this.upperBound(e) - 1; i >= 0; i--)
+        {
+            final E v = this.get(i);
+            if (this.compare(v, e) != 0) break;
+            if (v.equals(o)) return i;
+        }
+        return -1;
     }
 
     @Override
     public ListIterator<E> listIterator()
     {
-        return this.list.listIterator();
+        return new Itr(0);
     }
 
     @Override
     public ListIterator<E> listIterator(final int index)
     {
-        return this.list.listIterator(index);
+        if (index < 0 || index > this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        return new Itr(index);
     }
 
     @Override
     public boolean remove(final Object o)
     {
-        return this.list.remove(o);
+        final int index = this.indexOf(o);
+        if (index < 0) return false;
+        this.remove(index);
+        return true;
     }
 
     @Override
     public E remove(final int index)
     {
-        return this.list.remove(index);
+        this.checkIndex(index);
+        final Object old = this.removeAt(this.root, index);
+        this.size--;
+        if (this.size == 0)
+        {
+            this.root = new Leaf();
+        }
+        while (this.root instanceof Inner && this.root.n == 1)
+        {
+            this.root = ((Inner)this.root).children[0];
+        }
+        this.modCount++;
+        return this.<E> cast(old);
     }
 
     @Override
     public boolean removeAll(final Collection<?> c)
     {
-        return this.list.removeAll(c);
+        return this.filter(c, false);
     }
 
     @Override
     public boolean retainAll(final Collection<?> c)
     {
-        return this.list.retainAll(c);
+        return this.filter(c, true);
     }
 
     @Override
@@ -196,55 +301,775 @@ public class SortedList<E extends Comparable<? super E>> implements List<E>, Clo
     @Override
     public int size()
     {
-        return this.list.size();
+        return this.size;
     }
 
+    /**
+     * Returns a view of the portion of this list between the given indices.
+     * The view supports removal, structural changes to this list made other
+     * than through the view invalidate it.
+     */
     @Override
     public List<E> subList(final int fromIndex, final int toIndex)
     {
-        return this.list.subList(fromIndex, toIndex);
+        if (fromIndex < 0 || toIndex > this.size || fromIndex > toIndex) throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + this.size);
+        return new SubList(fromIndex, toIndex);
+    }
+
+    /**
+     * Returns a view of all elements <code>e</code> with
+     * <code>from &lt;= e &lt; to</code>.
+     *
+     * @param from
+     *            Lower bound (inclusive).
+     * @param to
+     *            Upper bound (exclusive).
+     * @return The view.
+     * @see #subList(int, int)
+     */
+    public List<E> range(final E from, final E to)
+    {
+        final int lo = this.lowerBound(from);
+        return new SubList(lo, Math.max(lo, this.lowerBound(to)));
+    }
+
+    /**
+     * Returns a view of all elements less than <code>to</code>.
+     *
+     * @param to
+     *            Upper bound (exclusive).
+     * @return The view.
+     * @see #subList(int, int)
+     */
+    public List<E> headRange(final E to)
+    {
+        return new SubList(0, this.lowerBound(to));
+    }
+
+    /**
+     * Returns a view of all elements greater or equal to <code>from</code>.
+     *
+     * @param from
+     *            Lower bound (inclusive).
+     * @return The view.
+     * @see #subList(int, int)
+     */
+    public List<E> tailRange(final E from)
+    {
+        return new SubList(this.lowerBound(from), this.size);
+    }
+
+    /**
+     * Gets the index of the first element greater or equal to the given value.
+     *
+     * @param e
+     *            The value.
+     * @return The index, <code>size()</code> if all elements are less.
+     */
+    public int lowerBound(final E e)
+    {
+        Node node = this.root;
+        int base = 0;
+        while (node instanceof Inner)
+        {
+            final Inner in = (Inner)node;
+            final int c = this.route(in, e, false);
+            for (int i = 0; i < c; i++)
+            {
+                base += in.counts[i];
+            }
+            node = in.children[c];
+        }
+        final Leaf leaf = (Leaf)node;
+        return base + this.search(leaf.items, leaf.n, e, false);
+    }
+
+    /**
+     * Gets the index of the first element greater than the given value.
+     *
+     * @param e
+     *            The value.
+     * @return The index, <code>size()</code> if no element is greater.
+     */
+    public int upperBound(final E e)
+    {
+        Node node = this.root;
+        int base = 0;
+        while (node instanceof Inner)
+        {
+            final Inner in = (Inner)node;
+            final int c = this.route(in, e, true);
+            for (int i = 0; i < c; i++)
+            {
+                base += in.counts[i];
+            }
+            node = in.children[c];
+        }
+        final Leaf leaf = (Leaf)node;
+        return base + this.search(leaf.items, leaf.n, e, true);
     }
 
     @Override
     public Object[] toArray()
     {
-        return this.list.toArray();
+        final Object[] ret = new Object[this.size];
+        int k = 0;
+        for (Leaf leaf = this.firstLeaf(); leaf != null; leaf = leaf.next)
+        {
+            System.arraycopy(leaf.items, 0, ret, k, leaf.n);
+            k += leaf.n;
+        }
+        return ret;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public <T> T[] toArray(final T[] a)
     {
-        return this.list.toArray(a);
+        final T[] ret = a.length >= this.size ? a : (T[])Array.newInstance(a.getClass().getComponentType(), this.size);
+        int k = 0;
+        for (Leaf leaf = this.firstLeaf(); leaf != null; leaf = leaf.next)
+        {
+            System.arraycopy(leaf.items, 0, ret, k, leaf.n);
+            k += leaf.n;
+        }
+        if (ret.length > this.size) ret[this.size] = null;
+        return ret;
     }
 
     @Override
     public SortedList<E> clone()
     {
-        return this.comparator == null ? new SortedList<>(this.list) : new SortedList<>(this.list, this.comparator);
+        final SortedList<E> list = new SortedList<E>(this.comparator);
+        list.build(this.toArray(), this.size, FILL);
+        return list;
     }
 
     @Override
     public int hashCode()
     {
-        return this.list.hashCode();
+        int hash = 1;
+        for (Leaf leaf = this.firstLeaf(); leaf != null; leaf = leaf.next)
+        {
+            for (int i = 0; i < leaf.n; i++)
+            {
+                hash = 31 * hash + (leaf.items[i] == null ? 0 : leaf.items[i].hashCode());
+            }
+        }
+        return hash;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public boolean equals(final Object obj)
     {
+        if (obj == this) return true;
         if (!(obj instanceof SortedList)) return false;
-        return this.list.equals(((SortedList<E>)obj).list);
+        final SortedList<?> other = (SortedList<?>)obj;
+        if (other.size != this.size) return false;
+        final Iterator<?> it = other.iterator();
+        for (final E e : this)
+        {
+            if (!e.equals(it.next())) return false;
+        }
+        return true;
     }
 
     @Override
     public String toString()
     {
-        return this.list.toString();
+        final StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        boolean second = false;
+        for (final E e : this)
+        {
+            if (second) sb.append(", ");
+            second = true;
+            sb.append(e);
+        }
+        sb.append(']');
+        return sb.toString();
     }
 
+    /**
+     * Repacks all nodes to full capacity.
+     */
     public void trimToSize()
     {
-        this.list.trimToSize();
+        this.build(this.toArray(), this.size, MAX);
+        this.modCount++;
+    }
+
+    private int compare(final Object a, final Object b)
+    {
+        final E ea = this.<E> cast(a), eb = this.<E> cast(b);
+        return this.comparator == null ? ea.compareTo(eb) : this.comparator.compare(ea, eb);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(final Object o)
+    {
+        return (T)o;
+    }
+
+    private E castOrNull(final Object o)
+    {
+        if (o == null || this.size == 0) return null;
+        try
+        {
+            final E e = this.<E> cast(o);
+            this.compare(e, this.get(0));
+            return e;
+        }
+        catch (final ClassCastException e)
+        {
+            return null;
+        }
+    }
+
+    private void sortArray(final Object[] arr)
+    {
+        if (this.comparator == null)
+        {
+            Arrays.sort(arr);
+        }
+        else
+        {
+            Arrays.sort(arr, this.<Comparator<Object>> cast(this.comparator));
+        }
+    }
+
+    private void checkIndex(final int index)
+    {
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+
+    private static int count(final Node node)
+    {
+        if (node instanceof Leaf) return node.n;
+        final Inner in = (Inner)node;
+        int c = 0;
+        for (int i = 0; i < in.n; i++)
+        {
+            c += in.counts[i];
+        }
+        return c;
+    }
+
+    private Leaf firstLeaf()
+    {
+        if (this.size == 0) return null;
+        Node node = this.root;
+        while (node instanceof Inner)
+        {
+            node = ((Inner)node).children[0];
+        }
+        return (Leaf)node;
+    }
+
+    /**
+     * Binary search in <code>items[0, n[</code>, returns the first index with
+     * an element greater than (<code>upper</code>) or greater or equal to
+     * <code>e</code>.
+     */
+    private int search(final Object[] items, final int n, final Object e, final boolean upper)
+    {
+        int lo = 0, hi = n;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final int c = this.compare(items[mid], e);
+            if (c < 0 || (upper && c == 0))
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Gets the child to descend into, the last child whose separator is less
+     * than (or equal to, for <code>upper</code>) <code>e</code>.
+     */
+    private int route(final Inner in, final Object e, final boolean upper)
+    {
+        int lo = 1, hi = in.n;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            final int c = this.compare(in.keys[mid], e);
+            if (c < 0 || (upper && c == 0))
+            {
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    /**
+     * Inserts <code>e</code> into the subtree, returns the new right sibling
+     * if <code>node</code> was split (with its separator in
+     * <code>splitKey</code>).
+     */
+    private Node insert(final Node node, final E e)
+    {
+        if (node instanceof Leaf)
+        {
+            final Leaf leaf = (Leaf)node;
+            final int pos = this.search(leaf.items, leaf.n, e, true);
+            if (leaf.n < MAX)
+            {
+                leaf.insert(pos, e);
+                return null;
+            }
+            final Leaf right = new Leaf();
+            final int half = MAX >> 1;
+            System.arraycopy(leaf.items, half, right.items, 0, MAX - half);
+            Arrays.fill(leaf.items, half, MAX, null);
+            leaf.n = half;
+            right.n = MAX - half;
+            right.next = leaf.next;
+            if (right.next != null) right.next.prev = right;
+            right.prev = leaf;
+            leaf.next = right;
+            if (pos <= half)
+            {
+                leaf.insert(pos, e);
+            }
+            else
+            {
+                right.insert(pos - half, e);
+            }
+            this.splitKey = right.items[0];
+            return right;
+        }
+
+        final Inner in = (Inner)node;
+        final int c = this.route(in, e, true);
+        final Node split = this.insert(in.children[c], e);
+        if (split == null)
+        {
+            in.counts[c]++;
+            return null;
+        }
+        in.counts[c] = count(in.children[c]);
+        return in.insertChild(c + 1, split, count(split), this);
+    }
+
+    /**
+     * Removes the element at <code>index</code> from the subtree.
+     */
+    private Object removeAt(final Node node, final int index)
+    {
+        if (node instanceof Leaf)
+        {
+            return ((Leaf)node).remove(index);
+        }
+        final Inner in = (Inner)node;
+        int c = 0, i = index;
+        while (i >= in.counts[c])
+        {
+            i -= in.counts[c++];
+        }
+        final Node child = in.children[c];
+        final Object old = this.removeAt(child, i);
+        in.counts[c]--;
+        if (child.n == 0)
+        {
+            if (child instanceof Leaf) ((Leaf)child).unlink();
+            in.removeChild(c);
+        }
+        else if (child instanceof Leaf && child.n < MAX / 4)
+        {
+            this.mergeLeaf(in, c);
+        }
+        return old;
+    }
+
+    /**
+     * Merges the small leaf at <code>c</code> with a sibling if they fit into
+     * half a leaf.
+     */
+    private void mergeLeaf(final Inner in, final int c)
+    {
+        int l = -1;
+        if (c + 1 < in.n && in.counts[c] + in.counts[c + 1] <= MAX / 2)
+        {
+            l = c;
+        }
+        else if (c > 0 && in.counts[c - 1] + in.counts[c] <= MAX / 2)
+        {
+            l = c - 1;
+        }
+        if (l < 0) return;
+        final Leaf left = (Leaf)in.children[l];
+        final Leaf right = (Leaf)in.children[l + 1];
+        System.arraycopy(right.items, 0, left.items, left.n, right.n);
+        left.n += right.n;
+        in.counts[l] += in.counts[l + 1];
+        right.unlink();
+        in.removeChild(l + 1);
+    }
+
+    /**
+     * Rebuilds the tree from the first <code>n</code> (sorted) elements of
+     * <code>arr</code>.
+     */
+    private void build(final Object[] arr, final int n, final int fill)
+    {
+        this.size = n;
+        if (n == 0)
+        {
+            this.root = new Leaf();
+            return;
+        }
+        int count = (n + fill - 1) / fill;
+        Node[] level = new Node[count];
+        Object[] firstKeys = new Object[count];
+        int[] counts = new int[count];
+        Leaf prev = null;
+        for (int i = 0; i < count; i++)
+        {
+            final int lo = (int)((long)n * i / count), hi = (int)((long)n * (i + 1) / count);
+            final Leaf leaf = new Leaf();
+            System.arraycopy(arr, lo, leaf.items, 0, hi - lo);
+            leaf.n = hi - lo;
+            leaf.prev = prev;
+            if (prev != null) prev.next = leaf;
+            prev = leaf;
+            level[i] = leaf;
+            firstKeys[i] = arr[lo];
+            counts[i] = hi - lo;
+        }
+        while (count > 1)
+        {
+            final int next = (count + fill - 1) / fill;
+            final Node[] nlevel = new Node[next];
+            final Object[] nkeys = new Object[next];
+            final int[] ncounts = new int[next];
+            for (int i = 0; i < next; i++)
+            {
+                final int lo = (int)((long)count * i / next), hi = (int)((long)count * (i + 1) / next);
+                final Inner in = new Inner();
+                for (int j = lo; j < hi; j++)
+                {
+                    in.children[j - lo] = level[j];
+                    in.counts[j - lo] = counts[j];
+                    in.keys[j - lo] = j > lo ? firstKeys[j] : null;
+                    ncounts[i] += counts[j];
+                }
+                in.n = hi - lo;
+                nlevel[i] = in;
+                nkeys[i] = firstKeys[lo];
+            }
+            level = nlevel;
+            firstKeys = nkeys;
+            counts = ncounts;
+            count = next;
+        }
+        this.root = level[0];
+    }
+
+    /**
+     * Removes (<code>retain == false</code>) or keeps all elements contained
+     * in the given collection.
+     */
+    private boolean filter(final Collection<?> c, final boolean retain)
+    {
+        final Object[] kept = new Object[this.size];
+        int k = 0;
+        for (Leaf leaf = this.firstLeaf(); leaf != null; leaf = leaf.next)
+        {
+            for (int i = 0; i < leaf.n; i++)
+            {
+                if (c.contains(leaf.items[i]) == retain) kept[k++] = leaf.items[i];
+            }
+        }
+        if (k == this.size) return false;
+        this.build(kept, k, FILL);
+        this.modCount++;
+        return true;
+    }
+
+    private abstract static class Node
+    {
+        /** Number of elements (leaf) or children (inner node). */
+        int n = 0;
+
+        public Node()
+        {
+            // empty
+        }
+    }
+
+    private final static class Leaf extends Node
+    {
+        final Object[] items = new Object[MAX];
+        Leaf           prev, next;
+
+        public Leaf()
+        {
+            // empty
+        }
+
+        void insert(final int pos, final Object e)
+        {
+            System.arraycopy(this.items, pos, this.items, pos + 1, this.n - pos);
+            this.items[pos] = e;
+            this.n++;
+        }
+
+        Object remove(final int pos)
+        {
+            final Object old = this.items[pos];
+            System.arraycopy(this.items, pos + 1, this.items, pos, this.n - pos - 1);
+            this.items[--this.n] = null;
+            return old;
+        }
+
+        void unlink()
+        {
+            if (this.prev != null) this.prev.next = this.next;
+            if (this.next != null) this.next.prev = this.prev;
+            this.prev = this.next = null;
+        }
+    }
+
+    private final static class Inner extends Node
+    {
+        final Node[]   children = new Node[MAX];
+        /** Element count of each child's subtree. */
+        final int[]    counts   = new int[MAX];
+        /** Separators, <code>keys[i]</code> is a lower bound of child i. */
+        final Object[] keys     = new Object[MAX];
+
+        public Inner()
+        {
+            // empty
+        }
+
+        /**
+         * Inserts a child at <code>pos</code>, separator is
+         * <code>owner.splitKey</code>. Returns the new right sibling if this
+         * node had to be split.
+         */
+        Node insertChild(final int pos, final Node child, final int count, final SortedList<?> owner)
+        {
+            final Object key = owner.splitKey;
+            if (this.n < MAX)
+            {
+                this.insertAt(pos, child, count, key);
+                return null;
+            }
+            final Inner right = new Inner();
+            final int half = MAX >> 1;
+            System.arraycopy(this.children, half, right.children, 0, MAX - half);
+            System.arraycopy(this.counts, half, right.counts, 0, MAX - half);
+            System.arraycopy(this.keys, half, right.keys, 0, MAX - half);
+            final Object sep = right.keys[0];
+            right.keys[0] = null;
+            Arrays.fill(this.children, half, MAX, null);
+            Arrays.fill(this.keys, half, MAX, null);
+            this.n = half;
+            right.n = MAX - half;
+            if (pos <= half)
+            {
+                this.insertAt(pos, child, count, key);
+            }
+            else
+            {
+                right.insertAt(pos - half, child, count, key);
+            }
+            owner.splitKey = sep;
+            return right;
+        }
+
+        private void insertAt(final int pos, final Node child, final int count, final Object key)
+        {
+            System.arraycopy(this.children, pos, this.children, pos + 1, this.n - pos);
+            System.arraycopy(this.counts, pos, this.counts, pos + 1, this.n - pos);
+            System.arraycopy(this.keys, pos, this.keys, pos + 1, this.n - pos);
+            this.children[pos] = child;
+            this.counts[pos] = count;
+            this.keys[pos] = key;
+            this.n++;
+        }
+
+        void removeChild(final int pos)
+        {
+            System.arraycopy(this.children, pos + 1, this.children, pos, this.n - pos - 1);
+            System.arraycopy(this.counts, pos + 1, this.counts, pos, this.n - pos - 1);
+            System.arraycopy(this.keys, pos + 1, this.keys, pos, this.n - pos - 1);
+            this.n--;
+            this.children[this.n] = null;
+            this.keys[this.n] = null;
+            this.keys[0] = null;
+        }
+    }
+
+    private final class Itr implements ListIterator<E>
+    {
+        private Leaf leaf;
+        private int  pos;
+        private int  index;
+        private int  lastRet = -1;
+        private int  expectedModCount;
+
+        public Itr(final int index)
+        {
+            this.seek(index);
+        }
+
+        private void seek(final int idx)
+        {
+            this.index = idx;
+            this.expectedModCount = SortedList.this.modCount;
+            Node node = SortedList.this.root;
+            int i = idx;
+            while (node instanceof Inner)
+            {
+                final Inner in = (Inner)node;
+                int c = 0;
+                while (c < in.n - 1 && i >= in.counts[c])
+                {
+                    i -= in.counts[c++];
+                }
+                node = in.children[c];
+            }
+            this.leaf = (Leaf)node;
+            this.pos = i;
+        }
+
+        private void check()
+        {
+            if (this.expectedModCount != SortedList.this.modCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < SortedList.this.size;
+        }
+
+        @Override
+        public E next()
+        {
+            this.check();
+            if (this.index >= SortedList.this.size) throw new NoSuchElementException();
+            while (this.pos >= this.leaf.n)
+            {
+                this.leaf = this.leaf.next;
+                this.pos = 0;
+            }
+            this.lastRet = this.index++;
+            return SortedList.this.<E> cast(this.leaf.items[this.pos++]);
+        }
+
+        @Override
+        public boolean hasPrevious()
+        {
+            return this.index > 0;
+        }
+
+        @Override
+        public E previous()
+        {
+            this.check();
+            if (this.index <= 0) throw new NoSuchElementException();
+            while (this.pos == 0)
+            {
+                this.leaf = this.leaf.prev;
+                this.pos = this.leaf.n;
+            }
+            this.lastRet = --this.index;
+            return SortedList.this.<E> cast(this.leaf.items[--this.pos]);
+        }
+
+        @Override
+        public int nextIndex()
+        {
+            return this.index;
+        }
+
+        @Override
+        public int previousIndex()
+        {
+            return this.index - 1;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.lastRet < 0) throw new IllegalStateException();
+            this.check();
+            SortedList.this.remove(this.lastRet);
+            this.seek(this.lastRet);
+            this.lastRet = -1;
+        }
+
+        @Override
+        public void set(final E e)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(final E e)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class SubList extends AbstractList<E>
+    {
+        private final int offset;
+        private int       length;
+        private int       expectedModCount;
+
+        public SubList(final int from, final int to)
+        {
+            this.offset = from;
+            this.length = to - from;
+            this.expectedModCount = SortedList.this.modCount;
+        }
+
+        private void check()
+        {
+            if (this.expectedModCount != SortedList.this.modCount) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public E get(final int index)
+        {
+            this.check();
+            if (index < 0 || index >= this.length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.length);
+            return SortedList.this.get(this.offset + index);
+        }
+
+        @Override
+        public E remove(final int index)
+        {
+            this.check();
+            if (index < 0 || index >= this.length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.length);
+            final E old = SortedList.this.remove(this.offset + index);
+            this.length--;
+            this.expectedModCount = SortedList.this.modCount;
+            this.modCount++;
+            return old;
+        }
+
+        @Override
+        public int size()
+        {
+            this.check();
+            return this.length;
+        }
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shared fork/join pool and helpers for data parallel loops.
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class Parallel
+{
+    /** Minimum number of elements per chunk. */
+    public final static int              MIN_CHUNK_SIZE    = 1 << 15;
+    /** Chunks per thread, for load balancing. */
+    private final static int             CHUNKS_PER_THREAD = 4;
+    /** The shared pool, created lazily. */
+    private static volatile ForkJoinPool pool;
+
+    private Parallel()
+    {
+        // meh!
+    }
+
+    /**
+     * Gets the shared fork/join pool, which is created on first use with one
+     * thread per available processor.
+     *
+     * @return The pool.
+     */
+    public static ForkJoinPool pool()
+    {
+        ForkJoinPool p = pool;
+        if (p == null)
+        {
+            synchronized (Parallel.class)
+            {
+                p = pool;
+                if (p == null)
+                {
+                    pool = p = new ForkJoinPool(ThreadPool.availableProcessors());
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Gets the number of chunks to split the given number of elements into.
+     *
+     * @param length
+     *            Number of elements.
+     * @param minChunkSize
+     *            Minimum number of elements per chunk.
+     * @return The number of chunks, <code>1</code> means 'do it sequentially'.
+     */
+    public static int chunkCount(final int length, final int minChunkSize)
+    {
+        final int threads = ThreadPool.availableProcessors();
+        if (threads < 2 || length < 2 * minChunkSize) return 1;
+        return Math.max(1, Math.min(threads * CHUNKS_PER_THREAD, length / minChunkSize));
+    }
+
+    /**
+     * Splits <code>[from, to[</code> into the given number of contiguous
+     * chunks and processes them in parallel, returns when all chunks are done.
+     * Exceptions thrown by <code>range</code> are rethrown.
+     *
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @param chunks
+     *            Number of chunks.
+     * @param range
+     *            The range callback.
+     */
+    public static void forEachChunk(final int from, final int to, final int chunks, final ParallelRange range)
+    {
+        if (chunks < 2)
+        {
+            range.apply(0, from, to);
+            return;
+        }
+        final ChunkAction action = new ChunkAction(range, from, to - from, chunks, 0, chunks);
+        if (ForkJoinTask.inForkJoinPool() || pool().getParallelism() < 2)
+        {
+            action.invoke();
+        }
+        else
+        {
+            pool().invoke(action);
+        }
+    }
+
+    private final static class ChunkAction extends RecursiveAction
+    {
+        private static final long   serialVersionUID = 1L;
+        private final ParallelRange range;
+        private final int           offset, length, chunks, lo, hi;
+
+        public ChunkAction(final ParallelRange range, final int offset, final int length, final int chunks, final int lo, final int hi)
+        {
+            this.range = range;
+            this.offset = offset;
+            this.length = length;
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        private int start(final int chunk)
+        {
+            return this.offset + (int)((long)this.length * chunk / this.chunks);
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.hi - this.lo == 1)
+            {
+                this.range.apply(this.lo, this.start(this.lo), this.start(this.hi));
+            }
+            else
+            {
+                final int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new ChunkAction(this.range, this.offset, this.length, this.chunks, this.lo, mid),
+                        new ChunkAction(this.range, this.offset, this.length, this.chunks, mid, this.hi));
+            }
+        }
+    }
+}
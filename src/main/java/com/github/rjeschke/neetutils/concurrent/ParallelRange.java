@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.concurrent;
+
+/**
+ * Callback for {@link Parallel#forEachChunk(int, int, int, ParallelRange)}.
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public interface ParallelRange
+{
+    /**
+     * Processes the range <code>[from, to[</code>.
+     *
+     * @param chunk
+     *            The chunk index.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     */
+    public void apply(int chunk, int from, int to);
+}
@@ -15,6 +15,7 @@
  */
 package com.github.rjeschke.neetutils.io;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -186,6 +187,99 @@ public final class BEIO
         out.write(bytes);
     }
 
+    /**
+     * Writes an unsigned LEB128 variable length integer: seven bits per byte,
+     * least significant group first. Values below 128 take one byte, negative
+     * values five. Byte order independent.
+     *
+     * @param out
+     *            Stream to write to
+     * @param value
+     *            Value to write
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public final static void writeVarInt(final OutputStream out, final int value) throws IOException
+    {
+        int v = value;
+        while ((v & ~0x7f) != 0)
+        {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    /**
+     * Writes an unsigned LEB128 variable length long, see
+     * {@link #writeVarInt(OutputStream, int)}. Negative values take ten bytes.
+     *
+     * @param out
+     *            Stream to write to
+     * @param value
+     *            Value to write
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public final static void writeVarLong(final OutputStream out, final long value) throws IOException
+    {
+        long v = value;
+        while ((v & ~0x7fL) != 0)
+        {
+            out.write((int)(v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write((int)v);
+    }
+
+    /**
+     * Writes a signed int as zigzag encoded varint, so values of small
+     * magnitude take few bytes regardless of their sign.
+     *
+     * @param out
+     *            Stream to write to
+     * @param value
+     *            Value to write
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public final static void writeZigZagInt(final OutputStream out, final int value) throws IOException
+    {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a signed long as zigzag encoded varint.
+     *
+     * @param out
+     *            Stream to write to
+     * @param value
+     *            Value to write
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public final static void writeZigZagLong(final OutputStream out, final long value) throws IOException
+    {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a UTF-8 string with a varint length prefix.
+     *
+     * @param out
+     *            Stream to write to
+     * @param value
+     *            Value to write
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public final static void writeVarString(final OutputStream out, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
     public final static byte readI8(final InputStream in) throws IOException
     {
         return (byte)in.read();
@@ -283,6 +377,51 @@ public final class BEIO
         return readStringN(in, readI32(in));
     }
 
+    public final static int readVarInt(final InputStream in) throws IOException
+    {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            final int b = in.read();
+            if (b == -1) throw new EOFException("Unexpected end of stream while reading varint");
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public final static long readVarLong(final InputStream in) throws IOException
+    {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7)
+        {
+            final int b = in.read();
+            if (b == -1) throw new EOFException("Unexpected end of stream while reading varint");
+            v |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public final static int readZigZagInt(final InputStream in) throws IOException
+    {
+        final int v = readVarInt(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public final static long readZigZagLong(final InputStream in) throws IOException
+    {
+        final long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public final static String readVarString(final InputStream in) throws IOException
+    {
+        final int length = readVarInt(in);
+        if (length < 0) throw new IOException("Invalid string length: " + (length & 0xffffffffL));
+        return readStringN(in, length);
+    }
+
     public final static String readString(final InputStream in, final int length, final int padding, final String charsetName) throws IOException
     {
         final byte[] bytes = new byte[length];
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+/**
+ * Pool of reusable, size-classed {@code byte[]} buffers.
+ *
+ * <p>
+ * Buffer sizes are powers of two from 4 KiB to 1 MiB. Each thread keeps a few
+ * buffers per size class, overflow goes to a bounded shared pool. Larger
+ * requests are not pooled.
+ * </p>
+ *
+ * <p>
+ * Leased buffers are not cleared and may be larger than requested. A buffer
+ * must be released at most once and must not be used after it was released.
+ * Not releasing a buffer is harmless, it is simply garbage collected.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class BufferPool
+{
+    /** Smallest pooled size (4 KiB) as a shift. */
+    public final static int                      MIN_SHIFT    = 12;
+    /** Largest pooled size (1 MiB) as a shift. */
+    public final static int                      MAX_SHIFT    = 20;
+    /** Number of size classes. */
+    private final static int                     CLASSES      = MAX_SHIFT - MIN_SHIFT + 1;
+    /** Buffers per size class and thread. */
+    private final static int                     LOCAL_SLOTS  = 2;
+    /** Shared buffers per size class. */
+    private final static int                     SHARED_SLOTS = 16;
+
+    private final static ThreadLocal<byte[][][]> LOCAL        = new ThreadLocal<byte[][][]>()
+                                                              {
+                                                                  @Override
+                                                                  protected byte[][][] initialValue()
+                                                                  {
+                                                                      return new byte[CLASSES][LOCAL_SLOTS][];
+                                                                  }
+                                                              };
+    private final static byte[][][]              SHARED       = new byte[CLASSES][SHARED_SLOTS][];
+    private final static int[]                   SHARED_COUNT = new int[CLASSES];
+
+    private BufferPool()
+    {
+        // meh!
+    }
+
+    /**
+     * Gets the size class for a buffer of at least {@code size} bytes.
+     */
+    private static int sizeClass(final int size)
+    {
+        return size <= (1 << MIN_SHIFT) ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * Leases a buffer of at least {@code size} bytes.
+     *
+     * @param size
+     *            The minimum size.
+     * @return A buffer, not cleared.
+     */
+    public static byte[] lease(final int size)
+    {
+        if (size > (1 << MAX_SHIFT)) return new byte[size];
+        final int c = sizeClass(size);
+
+        final byte[][] local = LOCAL.get()[c];
+        for (int i = 0; i < LOCAL_SLOTS; i++)
+        {
+            final byte[] b = local[i];
+            if (b != null)
+            {
+                local[i] = null;
+                return b;
+            }
+        }
+
+        final byte[][] shared = SHARED[c];
+        synchronized (shared)
+        {
+            final int n = SHARED_COUNT[c];
+            if (n > 0)
+            {
+                final byte[] b = shared[n - 1];
+                shared[n - 1] = null;
+                SHARED_COUNT[c] = n - 1;
+                return b;
+            }
+        }
+
+        return new byte[1 << (c + MIN_SHIFT)];
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers which were not leased from this
+     * pool are accepted if their size matches a size class.
+     *
+     * @param buffer
+     *            The buffer, may be <code>null</code>.
+     */
+    public static void release(final byte[] buffer)
+    {
+        if (buffer == null) return;
+        final int len = buffer.length;
+        if (len < (1 << MIN_SHIFT) || len > (1 << MAX_SHIFT) || (len & (len - 1)) != 0) return;
+        final int c = sizeClass(len);
+
+        final byte[][] local = LOCAL.get()[c];
+        for (int i = 0; i < LOCAL_SLOTS; i++)
+        {
+            if (local[i] == null)
+            {
+                local[i] = buffer;
+                return;
+            }
+        }
+
+        final byte[][] shared = SHARED[c];
+        synchronized (shared)
+        {
+            final int n = SHARED_COUNT[c];
+            if (n < SHARED_SLOTS)
+            {
+                shared[n] = buffer;
+                SHARED_COUNT[c] = n + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reusable view of a range of bytes, used by {@link ByteLineReader}.
+ *
+ * <p>
+ * As a {@code CharSequence} every byte is one character (ISO-8859-1), which is
+ * exact for ASCII, {@link #toString()} matches this view. Use
+ * {@link #decode()} for UTF-8 text. The view is only valid until the reader
+ * moves on, use {@link #decode()}, {@link #toString()} or {@link #getBytes()}
+ * to keep a line.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class ByteLine implements CharSequence
+{
+    private final static Charset UTF_8      = Charset.forName("UTF-8");
+    private final static Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private ByteBuffer           buffer;
+    /** Backing array of {@code buffer}, <code>null</code> if it has none. */
+    private byte[]               array;
+    /** Start index, into {@code array} if it is set. */
+    private int                  start;
+    private int                  length;
+
+    public ByteLine()
+    {
+        // meh!
+    }
+
+    /**
+     * Sets this view to {@code length} bytes of {@code buffer} starting at
+     * absolute index {@code offset}.
+     *
+     * @return this
+     */
+    public ByteLine set(final ByteBuffer buffer, final int offset, final int length)
+    {
+        this.buffer = buffer;
+        if (buffer.hasArray())
+        {
+            this.array = buffer.array();
+            this.start = buffer.arrayOffset() + offset;
+        }
+        else
+        {
+            this.array = null;
+            this.start = offset;
+        }
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Sets this view to {@code length} bytes of {@code array} starting at
+     * {@code offset}.
+     *
+     * @return this
+     */
+    public ByteLine set(final byte[] array, final int offset, final int length)
+    {
+        this.buffer = null;
+        this.array = array;
+        this.start = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Sets {@code target} to the range <code>[from, to[</code> of this view.
+     *
+     * @return {@code target}
+     */
+    public ByteLine slice(final int from, final int to, final ByteLine target)
+    {
+        if (from < 0 || to > this.length || from > to) throw new IndexOutOfBoundsException("[" + from + ", " + to + "[, length: " + this.length);
+        target.buffer = this.buffer;
+        target.array = this.array;
+        target.start = this.start + from;
+        target.length = to - from;
+        return target;
+    }
+
+    @Override
+    public int length()
+    {
+        return this.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.length == 0;
+    }
+
+    public byte byteAt(final int index)
+    {
+        if (index < 0 || index >= this.length) throw new IndexOutOfBoundsException("Index: " + index + ", length: " + this.length);
+        return this.array != null ? this.array[this.start + index] : this.buffer.get(this.start + index);
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        return (char)(this.byteAt(index) & 255);
+    }
+
+    /**
+     * Returns a new view of the range <code>[start, end[</code>.
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end)
+    {
+        return this.slice(start, end, new ByteLine());
+    }
+
+    /**
+     * @return The index of the first occurrence of byte {@code b} at or after
+     *         {@code from}, or <code>-1</code>.
+     */
+    public int indexOf(final int b, final int from)
+    {
+        final byte v = (byte)b;
+        for (int i = Math.max(0, from); i < this.length; i++)
+        {
+            if (this.get(i) == v) return i;
+        }
+        return -1;
+    }
+
+    public int indexOf(final int b)
+    {
+        return this.indexOf(b, 0);
+    }
+
+    /**
+     * Checks whether this line starts with the given characters, compared
+     * byte-wise (ISO-8859-1).
+     */
+    public boolean startsWith(final CharSequence prefix)
+    {
+        final int n = prefix.length();
+        if (n > this.length) return false;
+        for (int i = 0; i < n; i++)
+        {
+            if ((this.get(i) & 255) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the contents of this line with the given characters byte-wise
+     * (ISO-8859-1).
+     */
+    public boolean contentEquals(final CharSequence chars)
+    {
+        return chars.length() == this.length && this.startsWith(chars);
+    }
+
+    /**
+     * Parses the bytes of this view as a decimal integer.
+     *
+     * @throws NumberFormatException
+     *             if this view is not a valid number
+     */
+    public long parseLong()
+    {
+        if (this.length == 0) throw new NumberFormatException("Empty line");
+        int i = 0;
+        final boolean negative = this.get(0) == '-';
+        if (negative || this.get(0) == '+') i++;
+        if (i == this.length) throw new NumberFormatException(this.toString());
+        long v = 0;
+        for (; i < this.length; i++)
+        {
+            final int d = this.get(i) - '0';
+            if (d < 0 || d > 9 || v < -(Long.MAX_VALUE / 10)) throw new NumberFormatException(this.toString());
+            v = v * 10 - d;
+            if (v > 0) throw new NumberFormatException(this.toString());
+        }
+        if (!negative)
+        {
+            if (v == Long.MIN_VALUE) throw new NumberFormatException(this.toString());
+            return -v;
+        }
+        return v;
+    }
+
+    private byte get(final int index)
+    {
+        return this.array != null ? this.array[this.start + index] : this.buffer.get(this.start + index);
+    }
+
+    /**
+     * @return A copy of the bytes of this view.
+     */
+    public byte[] getBytes()
+    {
+        final byte[] ret = new byte[this.length];
+        if (this.array != null)
+        {
+            System.arraycopy(this.array, this.start, ret, 0, this.length);
+        }
+        else
+        {
+            for (int i = 0; i < this.length; i++)
+                ret[i] = this.buffer.get(this.start + i);
+        }
+        return ret;
+    }
+
+    public String toString(final Charset charset)
+    {
+        if (this.array != null) return new String(this.array, this.start, this.length, charset);
+        return new String(this.getBytes(), charset);
+    }
+
+    /**
+     * Decodes this view as UTF-8.
+     */
+    public String decode()
+    {
+        return this.toString(UTF_8);
+    }
+
+    /**
+     * Returns the characters of this view, one per byte (ISO-8859-1), see
+     * {@link #decode()} for UTF-8.
+     */
+    @Override
+    public String toString()
+    {
+        return this.toString(ISO_8859_1);
+    }
+}
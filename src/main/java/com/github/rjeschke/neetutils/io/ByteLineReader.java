@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.github.rjeschke.neetutils.WrappedCheckedException;
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
+
+/**
+ * Line reader working directly on bytes.
+ *
+ * <p>
+ * Scans a {@code ByteBuffer} (heap, direct or mapped) or a stream for
+ * <code>'\n'</code> eight bytes at a time and exposes each line as a reused
+ * {@link ByteLine} view, so reading a line allocates nothing. Lines end at
+ * <code>'\n'</code>, a trailing <code>'\r'</code> is stripped. A last line
+ * without <code>'\n'</code> is returned if it is not empty.
+ * </p>
+ *
+ * <pre>
+ * <code>try (ByteLineReader r = new ByteLineReader(in))
+ * {
+ *     while (r.next())
+ *         if (r.line().startsWith("ERROR")) ...
+ * }</code>
+ * </pre>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class ByteLineReader implements Closeable
+{
+    /** Stream buffer size. */
+    private final static int   BUFFER_SIZE    = 65536;
+    /** Bytes per block for parallel reads. */
+    private final static long  PARALLEL_BLOCK = 1L << 24;
+    /** Maximum mapping size for parallel reads, also the maximum line length. */
+    private final static int   WINDOW         = 1 << 30;
+    private final static long  ONES           = 0x0101010101010101L;
+    private final static long  HIGHS          = 0x8080808080808080L;
+    private final static long  NEWLINES       = 0x0a0a0a0a0a0a0a0aL;
+
+    private final InputStream  in;
+    private ByteBuffer         buffer;
+    private int                position;
+    private int                limit;
+    private boolean            eof;
+    private final ByteLine     line           = new ByteLine();
+
+    /**
+     * Reads lines from the remaining bytes of the given buffer. The buffer's
+     * position is not changed.
+     *
+     * @param buffer
+     *            The buffer.
+     */
+    public ByteLineReader(final ByteBuffer buffer)
+    {
+        this.in = null;
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.eof = true;
+    }
+
+    /**
+     * Reads lines from the given stream using a pooled buffer.
+     *
+     * @param in
+     *            The stream, closed by {@link #close()}.
+     */
+    public ByteLineReader(final InputStream in)
+    {
+        this.in = in;
+        this.buffer = ByteBuffer.wrap(BufferPool.lease(BUFFER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        this.position = 0;
+        this.limit = 0;
+        this.eof = false;
+    }
+
+    /**
+     * Reads lines from the given file using a pooled buffer.
+     *
+     * @param file
+     *            The file, closed by {@link #close()}.
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public ByteLineReader(final File file) throws IOException
+    {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return <code>false</code> if there are no more lines.
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public boolean next() throws IOException
+    {
+        int scan = this.position;
+        for (;;)
+        {
+            final int nl = indexOfNewline(this.buffer, scan, this.limit);
+            if (nl >= 0)
+            {
+                this.setLine(this.position, nl);
+                this.position = nl + 1;
+                return true;
+            }
+            if (this.eof)
+            {
+                if (this.position == this.limit) return false;
+                this.setLine(this.position, this.limit);
+                this.position = this.limit;
+                return true;
+            }
+            scan = this.limit - this.position;
+            this.fill();
+            scan += this.position;
+        }
+    }
+
+    /**
+     * Gets the current line, only valid until the next call to {@link #next()}.
+     *
+     * @return The line view.
+     */
+    public ByteLine line()
+    {
+        return this.line;
+    }
+
+    /**
+     * Calls {@code callback} for all remaining lines.
+     *
+     * @param callback
+     *            The callback.
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public void forEach(final ByteLineCallback callback) throws IOException
+    {
+        while (this.next())
+            callback.line(this.line);
+    }
+
+    private void setLine(final int from, final int to)
+    {
+        final int end = to > from && this.buffer.get(to - 1) == '\r' ? to - 1 : to;
+        this.line.set(this.buffer, from, end - from);
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer (growing it if it is
+     * full) and reads more.
+     */
+    private void fill() throws IOException
+    {
+        final int rem = this.limit - this.position;
+        final byte[] old = this.buffer.array();
+        byte[] b = old;
+        if (rem == old.length)
+        {
+            b = BufferPool.lease(old.length << 1);
+        }
+        System.arraycopy(old, this.position, b, 0, rem);
+        if (b != old)
+        {
+            BufferPool.release(old);
+            this.buffer = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.position = 0;
+        this.limit = rem;
+        while (this.limit < b.length)
+        {
+            final int r = this.in.read(b, this.limit, b.length - this.limit);
+            if (r < 0)
+            {
+                this.eof = true;
+                break;
+            }
+            if (r == 0) break;
+            this.limit += r;
+        }
+    }
+
+    /**
+     * Releases the buffer and closes the stream, if any.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.in != null && this.buffer != null)
+        {
+            BufferPool.release(this.buffer.array());
+            this.buffer = null;
+            this.in.close();
+        }
+    }
+
+    /**
+     * Finds the first <code>'\n'</code> in <code>[from, to[</code> of a little
+     * endian buffer, testing eight bytes per step.
+     *
+     * @return The index or <code>-1</code>.
+     */
+    static int indexOfNewline(final ByteBuffer buffer, final int from, final int to)
+    {
+        int i = from;
+        for (final int end = to - 7; i < end; i += 8)
+        {
+            final long x = buffer.getLong(i) ^ NEWLINES;
+            // Only the lowest set bit is reliable, which is all we need
+            final long t = (x - ONES) & ~x & HIGHS;
+            if (t != 0) return i + (Long.numberOfTrailingZeros(t) >>> 3);
+        }
+        for (; i < to; i++)
+        {
+            if (buffer.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads all lines of a file in parallel, using the shared
+     * {@link Parallel#pool()} and mapped views of the file. The callback is
+     * called concurrently from several threads in no particular order, each
+     * thread with its own {@code ByteLine}. Lines may be at most 1 GiB long.
+     *
+     * @param file
+     *            The file.
+     * @param callback
+     *            The (thread safe) callback.
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public static void forEachParallel(final File file, final ByteLineCallback callback) throws IOException
+    {
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            final int blocks = (int)Math.min(Integer.MAX_VALUE, (size + PARALLEL_BLOCK - 1) / PARALLEL_BLOCK);
+            final int chunks = Parallel.chunkCount(blocks, 1);
+            try
+            {
+                Parallel.forEachChunk(0, blocks, chunks, new ParallelRange()
+                {
+                    @Override
+                    public void apply(final int chunk, final int from, final int to)
+                    {
+                        try
+                        {
+                            scanRange(channel, size, from * PARALLEL_BLOCK, Math.min(size, to * PARALLEL_BLOCK), callback);
+                        }
+                        catch (final IOException e)
+                        {
+                            throw new WrappedCheckedException(e);
+                        }
+                    }
+                });
+            }
+            catch (final WrappedCheckedException e)
+            {
+                throw (IOException)e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Processes all lines starting in <code>[start, end[</code>, mapping the
+     * file in windows of at most {@link #WINDOW} bytes.
+     */
+    private static void scanRange(final FileChannel channel, final long size, final long start, final long end,
+            final ByteLineCallback callback) throws IOException
+    {
+        final ByteLine line = new ByteLine();
+        long base = start > 0 ? start - 1 : 0;
+        boolean skipFirst = start > 0;
+        while (base < end)
+        {
+            final int len = (int)Math.min(size - base, WINDOW);
+            final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, base, len);
+            try
+            {
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                int p = 0;
+                if (skipFirst)
+                {
+                    // Skip the line started in the previous range
+                    final int nl = indexOfNewline(map, 0, len);
+                    if (nl < 0)
+                    {
+                        if (base + len == size) return;
+                        throw new IOException("Line too long at " + base);
+                    }
+                    p = nl + 1;
+                    skipFirst = false;
+                }
+                for (;;)
+                {
+                    if (base + p >= end) return;
+                    final int nl = indexOfNewline(map, p, len);
+                    if (nl < 0)
+                    {
+                        if (base + len == size)
+                        {
+                            if (p < len) callback.line(trimmedLine(line, map, p, len));
+                            return;
+                        }
+                        if (p == 0) throw new IOException("Line too long at " + base);
+                        break;
+                    }
+                    callback.line(trimmedLine(line, map, p, nl));
+                    p = nl + 1;
+                }
+                base += p;
+            }
+            finally
+            {
+                DirectBuffers.free(map);
+            }
+        }
+    }
+
+    private static ByteLine trimmedLine(final ByteLine line, final ByteBuffer buffer, final int from, final int to)
+    {
+        final int end = to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+        return line.set(buffer, from, end - from);
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.github.rjeschke.neetutils.Strings;
+import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
+
+/**
+ * Index of all resources on a class path.
+ *
+ * <p>
+ * The index is built lazily on the first query and kept in a trie sorted by
+ * path segment, so looking up a package costs <code>O(length of prefix)</code>
+ * plus the size of the result. Directories are walked and jars are read in
+ * parallel. The listing of each jar is kept together with its modification
+ * time and size, so {@link #refresh()} only rereads jars which changed. If a
+ * cache file is given, these listings are also stored there and a cold start
+ * skips all unchanged jars.
+ * </p>
+ *
+ * <p>
+ * Resource names are returned like {@link Files#getFilesOnClasspath()} does,
+ * with a leading slash, e.g. <code>/com/github/Foo.class</code>. Queries are
+ * thread safe.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class ClasspathIndex
+{
+    /** "NCPI" */
+    private final static int               CACHE_MAGIC   = 0x4e435049;
+    private final static int               CACHE_VERSION = 1;
+    private static volatile ClasspathIndex instance;
+
+    private final List<File>               entries;
+    private final File                     cacheFile;
+    /** Listings of jars, by absolute path. Only used by {@code refresh()}. */
+    private final Map<String, JarListing>  jars          = new HashMap<>();
+    private boolean                        cacheLoaded   = false;
+    private volatile Node                  root          = null;
+    private volatile int                   size          = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param entries
+     *            The class path entries (directories and jars).
+     * @param cacheFile
+     *            The file to cache jar listings in, or <code>null</code>.
+     */
+    public ClasspathIndex(final List<File> entries, final File cacheFile)
+    {
+        this.entries = Colls.list(entries);
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Gets the shared index of {@code java.class.path}, which is created on
+     * first use and not cached on disk.
+     *
+     * @return The index.
+     */
+    public static ClasspathIndex get()
+    {
+        ClasspathIndex i = instance;
+        if (i == null)
+        {
+            synchronized (ClasspathIndex.class)
+            {
+                i = instance;
+                if (i == null)
+                {
+                    instance = i = new ClasspathIndex(classpath(), null);
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return The entries of {@code java.class.path}.
+     */
+    public static List<File> classpath()
+    {
+        final List<File> ret = Colls.list();
+        final char sep = System.getProperty("path.separator").charAt(0);
+        for (final String path : Strings.split(System.getProperty("java.class.path"), sep))
+        {
+            if (!path.isEmpty()) ret.add(new File(path));
+        }
+        return ret;
+    }
+
+    /**
+     * Rescans all class path entries, rereading only jars which changed since
+     * the last scan (or since they were cached). Updates the cache file, if
+     * any. Cache file errors are ignored, the cache is only an optimization.
+     */
+    public synchronized void refresh()
+    {
+        if (!this.cacheLoaded && this.cacheFile != null && this.cacheFile.isFile())
+        {
+            this.loadCache();
+        }
+        this.cacheLoaded = true;
+
+        final List<File> dirs = Colls.list();
+        final List<File> jarFiles = Colls.list();
+        for (final File f : this.entries)
+        {
+            if (f.isDirectory())
+            {
+                dirs.add(f);
+            }
+            else if (f.isFile() && f.getName().toLowerCase().endsWith(".jar"))
+            {
+                jarFiles.add(f);
+            }
+        }
+
+        final JarListing[] listings = new JarListing[jarFiles.size()];
+        boolean changed = false;
+        final List<Integer> todo = Colls.list();
+        for (int i = 0; i < listings.length; i++)
+        {
+            final File f = jarFiles.get(i);
+            final JarListing l = this.jars.get(f.getAbsolutePath());
+            if (l != null && l.modified == f.lastModified() && l.size == f.length())
+            {
+                listings[i] = l;
+            }
+            else
+            {
+                todo.add(Integer.valueOf(i));
+            }
+        }
+        if (!todo.isEmpty())
+        {
+            changed = true;
+            Parallel.forEachChunk(0, todo.size(), Parallel.chunkCount(todo.size(), 1), new ParallelRange()
+            {
+                @Override
+                public void apply(final int chunk, final int from, final int to)
+                {
+                    for (int i = from; i < to; i++)
+                    {
+                        final int n = todo.get(i).intValue();
+                        listings[n] = listJar(jarFiles.get(n));
+                    }
+                }
+            });
+        }
+
+        final Map<String, JarListing> jars = new HashMap<>();
+        final Node root = new Node();
+        int size = 0;
+        for (final JarListing l : listings)
+        {
+            if (l == null) continue;
+            jars.put(l.path, l);
+            for (final String name : l.names)
+                if (root.add(name)) size++;
+        }
+        for (final File dir : dirs)
+        {
+            final int cut = dir.toString().length();
+            for (final Path p : new FileWalker(dir).list())
+            {
+                if (root.add(p.toString().substring(cut).replace('\\', '/'))) size++;
+            }
+        }
+
+        changed |= jars.size() != this.jars.size();
+        this.jars.clear();
+        this.jars.putAll(jars);
+        this.size = size;
+        this.root = root;
+
+        if (changed && this.cacheFile != null)
+        {
+            this.saveCache();
+        }
+    }
+
+    private Node root()
+    {
+        Node r = this.root;
+        if (r == null)
+        {
+            synchronized (this)
+            {
+                if (this.root == null) this.refresh();
+                r = this.root;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * @return The number of resources.
+     */
+    public int size()
+    {
+        this.root();
+        return this.size;
+    }
+
+    /**
+     * Checks if the given resource exists.
+     *
+     * @param name
+     *            The resource name, e.g. <code>com/github/Foo.class</code>.
+     */
+    public boolean contains(final String name)
+    {
+        final Node n = this.root().find(segments(name));
+        return n != null && n.resource;
+    }
+
+    /**
+     * Lists all resources at or below the given path, sorted.
+     *
+     * @param prefix
+     *            A path like <code>com/github</code> (segments, not a string
+     *            prefix), or <code>""</code> for all resources.
+     * @return The resources, an empty list if there are none.
+     */
+    public List<String> list(final String prefix)
+    {
+        final List<String> segs = segments(prefix);
+        final Node n = this.root().find(segs);
+        if (n == null) return Collections.emptyList();
+        final List<String> ret = Colls.list();
+        final StringBuilder sb = new StringBuilder();
+        for (final String s : segs)
+            sb.append('/').append(s);
+        n.collect(sb, ret);
+        return ret;
+    }
+
+    /**
+     * Lists all resources in the given package (recursively).
+     *
+     * @param pkgName
+     *            The package name, e.g. <code>com.github</code>.
+     * @return The resources, an empty list if there are none.
+     */
+    public List<String> listPackage(final String pkgName)
+    {
+        return this.list(pkgName.replace('.', '/'));
+    }
+
+    /**
+     * Lists all resources matching the given glob pattern, sorted.
+     * <code>'?'</code> matches one character, <code>'*'</code> any number of
+     * characters inside a path segment and <code>"**"</code> any number of
+     * segments, e.g. <code>com/&#42;&#42;/*.properties</code>. Literal segments
+     * are looked up directly.
+     *
+     * @param pattern
+     *            The pattern.
+     * @return The resources, an empty list if there are none.
+     */
+    public List<String> glob(final String pattern)
+    {
+        final TreeSet<String> ret = new TreeSet<>();
+        this.root().glob(segments(pattern), 0, new StringBuilder(), ret);
+        return Colls.list(ret);
+    }
+
+    private static List<String> segments(final String path)
+    {
+        final List<String> ret = Colls.list();
+        for (final String s : Strings.split(path, '/'))
+        {
+            if (!s.isEmpty()) ret.add(s);
+        }
+        return ret;
+    }
+
+    /**
+     * Matches a name against a glob segment (<code>'*'</code> and
+     * <code>'?'</code>).
+     */
+    static boolean matches(final String pattern, final int p, final String name, final int n)
+    {
+        if (p == pattern.length()) return n == name.length();
+        final char c = pattern.charAt(p);
+        if (c == '*')
+        {
+            for (int i = n; i <= name.length(); i++)
+            {
+                if (matches(pattern, p + 1, name, i)) return true;
+            }
+            return false;
+        }
+        return n < name.length() && (c == '?' || c == name.charAt(n)) && matches(pattern, p + 1, name, n + 1);
+    }
+
+    private static boolean isGlob(final String segment)
+    {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+    }
+
+    static JarListing listJar(final File file)
+    {
+        final long modified = file.lastModified();
+        final long size = file.length();
+        final List<String> names = Colls.list();
+        try (final JarFile jar = new JarFile(file))
+        {
+            final Enumeration<JarEntry> j = jar.entries();
+            while (j.hasMoreElements())
+            {
+                final JarEntry je = j.nextElement();
+                if (!je.isDirectory())
+                {
+                    names.add("/" + je.getName());
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            // Unreadable jars are skipped and tried again on refresh
+            return null;
+        }
+        return new JarListing(file.getAbsolutePath(), modified, size, names.toArray(new String[names.size()]));
+    }
+
+    private void loadCache()
+    {
+        // Every count or length is bounded by the file size, a broken cache
+        // must not make us allocate arbitrary amounts of memory
+        final long limit = this.cacheFile.length();
+        try (final NInputStream in = NInputStream.buffered(new FileInputStream(this.cacheFile), ByteOrder.LITTLE_ENDIAN))
+        {
+            if (in.readI32() != CACHE_MAGIC || in.readI32() != CACHE_VERSION) return;
+            final int count = readCount(in, limit);
+            for (int i = 0; i < count; i++)
+            {
+                final String path = readString(in, limit);
+                final long modified = in.readI64();
+                final long size = in.readI64();
+                final String[] names = new String[readCount(in, limit)];
+                for (int n = 0; n < names.length; n++)
+                    names[n] = readString(in, limit);
+                this.jars.put(path, new JarListing(path, modified, size, names));
+            }
+        }
+        catch (final IOException e)
+        {
+            // Broken cache, rebuild
+            this.jars.clear();
+        }
+    }
+
+    private static int readCount(final NInputStream in, final long limit) throws IOException
+    {
+        final int count = in.readI32();
+        if (count < 0 || count > limit) throw new IOException("Invalid count in cache: " + count);
+        return count;
+    }
+
+    private static String readString(final NInputStream in, final long limit) throws IOException
+    {
+        final byte[] bytes = new byte[readCount(in, limit)];
+        in.readFully(bytes, 0, bytes.length);
+        return new String(bytes, "UTF-8");
+    }
+
+    private void saveCache()
+    {
+        try (final NOutputStream out = NOutputStream.buffered(new FileOutputStream(this.cacheFile), ByteOrder.LITTLE_ENDIAN))
+        {
+            out.write32(CACHE_MAGIC);
+            out.write32(CACHE_VERSION);
+            out.write32(this.jars.size());
+            for (final JarListing l : this.jars.values())
+            {
+                out.writeString32(l.path);
+                out.write64(l.modified);
+                out.write64(l.size);
+                out.write32(l.names.length);
+                for (final String name : l.names)
+                    out.writeString32(name);
+            }
+        }
+        catch (final IOException e)
+        {
+            // Not cached then
+            this.cacheFile.delete();
+        }
+    }
+
+    private final static class JarListing
+    {
+        final String   path;
+        final long     modified;
+        final long     size;
+        final String[] names;
+
+        public JarListing(final String path, final long modified, final long size, final String[] names)
+        {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Trie node, one per path segment.
+     */
+    private final static class Node
+    {
+        TreeMap<String, Node> children = null;
+        boolean               resource = false;
+
+        /**
+         * @return <code>true</code> if the resource was new.
+         */
+        boolean add(final String name)
+        {
+            Node n = this;
+            for (final String s : segments(name))
+            {
+                if (n.children == null) n.children = new TreeMap<>();
+                Node c = n.children.get(s);
+                if (c == null) n.children.put(s, c = new Node());
+                n = c;
+            }
+            if (n.resource || n == this) return false;
+            return n.resource = true;
+        }
+
+        Node find(final List<String> segments)
+        {
+            Node n = this;
+            for (final String s : segments)
+            {
+                n = n.children != null ? n.children.get(s) : null;
+                if (n == null) return null;
+            }
+            return n;
+        }
+
+        void collect(final StringBuilder path, final List<String> out)
+        {
+            if (this.resource) out.add(path.toString());
+            if (this.children == null) return;
+            final int len = path.length();
+            for (final Map.Entry<String, Node> e : this.children.entrySet())
+            {
+                path.append('/').append(e.getKey());
+                e.getValue().collect(path, out);
+                path.setLength(len);
+            }
+        }
+
+        void glob(final List<String> segments, final int index, final StringBuilder path, final TreeSet<String> out)
+        {
+            if (index == segments.size())
+            {
+                if (this.resource) out.add(path.toString());
+                return;
+            }
+            final String seg = segments.get(index);
+            final int len = path.length();
+            if (seg.equals("**"))
+            {
+                // Zero segments
+                this.glob(segments, index + 1, path, out);
+                if (this.children == null) return;
+                // One or more segments
+                for (final Map.Entry<String, Node> e : this.children.entrySet())
+                {
+                    path.append('/').append(e.getKey());
+                    e.getValue().glob(segments, index, path, out);
+                    path.setLength(len);
+                }
+            }
+            else if (this.children != null)
+            {
+                if (!isGlob(seg))
+                {
+                    final Node c = this.children.get(seg);
+                    if (c != null)
+                    {
+                        path.append('/').append(seg);
+                        c.glob(segments, index + 1, path, out);
+                        path.setLength(len);
+                    }
+                    return;
+                }
+                for (final Map.Entry<String, Node> e : this.children.entrySet())
+                {
+                    if (matches(seg, 0, e.getKey(), 0))
+                    {
+                        path.append('/').append(e.getKey());
+                        e.getValue().glob(segments, index + 1, path, out);
+                        path.setLength(len);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+/**
+ * Progress callback for the {@code copy} methods in {@link Files}.
+ *
+ * <p>
+ * Calls are never concurrent, but may come from different threads for
+ * parallel copies.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public interface CopyProgressCallback
+{
+    /**
+     * @param copied
+     *            Number of bytes copied so far.
+     * @param total
+     *            Total number of bytes to copy.
+     */
+    public void progress(long copied, long total);
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for direct and mapped {@code ByteBuffer}s.
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class DirectBuffers
+{
+    /** Unsafe instance (Java 9+). */
+    private final static Object UNSAFE;
+    /** Unsafe.invokeCleaner (Java 9+). */
+    private final static Method INVOKE_CLEANER;
+
+    static
+    {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try
+        {
+            final Class<?> clazz = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field f = clazz.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+        }
+        catch (final Throwable t)
+        {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectBuffers()
+    {
+        // meh!
+    }
+
+    /**
+     * Releases the native memory (or mapping) of the given buffer, if
+     * possible. Otherwise the buffer is left to the garbage collector.
+     *
+     * <p>
+     * The buffer (and all views of it) must not be used afterwards.
+     * </p>
+     *
+     * @param buffer
+     *            The buffer, may be <code>null</code>.
+     */
+    public static void free(final ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect()) return;
+        try
+        {
+            if (INVOKE_CLEANER != null)
+            {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            }
+            else
+            {
+                final Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                final Object c = cleaner.invoke(buffer);
+                if (c != null) c.getClass().getMethod("clean").invoke(c);
+            }
+        }
+        catch (final Throwable t)
+        {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.fn.FnPredicate;
+import com.github.rjeschke.neetutils.iterables.Iterables;
+import com.github.rjeschke.neetutils.iterables.XIterable;
+
+/**
+ * Recursive directory walker.
+ *
+ * <p>
+ * Lists directories using {@code DirectoryStream} and reads the attributes of
+ * each entry once, which are then used for all checks and passed on to the
+ * callback. Files can be filtered by extension, size and predicate, whole
+ * subtrees can be pruned by depth and predicate. Symbolic links to files are
+ * reported, symbolic links to directories are not followed. Directories which
+ * can not be read are skipped, like {@code File.listFiles()} does.
+ * </p>
+ *
+ * <p>
+ * Results are either streamed lazily through {@link #iterable()}, or pushed to
+ * a callback by {@link #walk(FileWalkerCallback)}, which traverses subtrees in
+ * parallel on the shared {@link Parallel#pool()}.
+ * </p>
+ *
+ * <pre>
+ * <code>List&lt;Path&gt; sources = new FileWalker(root).extensions("java").maxDepth(8).list();</code>
+ * </pre>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class FileWalker
+{
+    private final static LinkOption[] NO_FOLLOW       = { LinkOption.NOFOLLOW_LINKS };
+    private final static LinkOption[] FOLLOW          = {};
+
+    private final Path                root;
+    private int                       maxDepth        = Integer.MAX_VALUE;
+    private long                      minSize         = 0;
+    private long                      maxSize         = Long.MAX_VALUE;
+    private String[]                  extensions      = null;
+    private FnPredicate<Path>         filter          = null;
+    private FnPredicate<Path>         directoryFilter = null;
+
+    public FileWalker(final Path root)
+    {
+        this.root = root;
+    }
+
+    public FileWalker(final File root)
+    {
+        this(root.toPath());
+    }
+
+    /**
+     * Sets the maximum depth to descend to, files directly inside the root
+     * have a depth of <code>1</code>.
+     *
+     * @return this
+     */
+    public FileWalker maxDepth(final int depth)
+    {
+        this.maxDepth = depth;
+        return this;
+    }
+
+    /**
+     * Only accepts files with a size in <code>[min, max]</code>.
+     *
+     * @return this
+     */
+    public FileWalker size(final long min, final long max)
+    {
+        this.minSize = min;
+        this.maxSize = max;
+        return this;
+    }
+
+    /**
+     * Only accepts files with one of the given extensions (without the dot,
+     * case insensitive).
+     *
+     * @return this
+     */
+    public FileWalker extensions(final String... extensions)
+    {
+        this.extensions = new String[extensions.length];
+        for (int i = 0; i < extensions.length; i++)
+            this.extensions[i] = "." + extensions[i].toLowerCase(Locale.ENGLISH);
+        return this;
+    }
+
+    /**
+     * Only accepts files for which {@code filter} returns <code>true</code>.
+     * Called concurrently by {@link #walk(FileWalkerCallback)}.
+     *
+     * @return this
+     */
+    public FileWalker filter(final FnPredicate<Path> filter)
+    {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Only descends into directories for which {@code filter} returns
+     * <code>true</code>. The root is not tested. Called concurrently by
+     * {@link #walk(FileWalkerCallback)}.
+     *
+     * @return this
+     */
+    public FileWalker directoryFilter(final FnPredicate<Path> filter)
+    {
+        this.directoryFilter = filter;
+        return this;
+    }
+
+    /**
+     * Calls {@code callback} for every accepted file. Subtrees are walked in
+     * parallel, so the callback is called concurrently and in no particular
+     * order. Returns when all files were reported.
+     *
+     * @param callback
+     *            The (thread safe) callback.
+     */
+    public void walk(final FileWalkerCallback callback)
+    {
+        final BasicFileAttributes attr = attributes(this.root);
+        if (attr == null) return;
+        if (!attr.isDirectory())
+        {
+            if (this.accept(this.root, attr)) callback.file(this.root, attr);
+            return;
+        }
+        final WalkAction action = new WalkAction(this, callback, this.root, 0);
+        if (ForkJoinTask.inForkJoinPool() || Parallel.pool().getParallelism() < 2)
+        {
+            action.invoke();
+        }
+        else
+        {
+            Parallel.pool().invoke(action);
+        }
+    }
+
+    /**
+     * Walks in parallel and collects all accepted files.
+     *
+     * @return The files, in no particular order.
+     */
+    public List<Path> list()
+    {
+        final List<Path> ret = Collections.synchronizedList(new ArrayList<Path>());
+        this.walk(new FileWalkerCallback()
+        {
+            @Override
+            public void file(final Path path, final BasicFileAttributes attributes)
+            {
+                ret.add(path);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Gets a lazy, sequential view of all accepted files. Each iterator walks
+     * the tree depth first, reading one directory at a time.
+     *
+     * @return The files.
+     */
+    public XIterable<Path> iterable()
+    {
+        return Iterables.asXIterable(new Iterable<Path>()
+        {
+            @Override
+            public Iterator<Path> iterator()
+            {
+                return new WalkIterator(FileWalker.this);
+            }
+        });
+    }
+
+    boolean accept(final Path path, final BasicFileAttributes attr)
+    {
+        final long size = attr.size();
+        if (size < this.minSize || size > this.maxSize) return false;
+        if (this.extensions != null)
+        {
+            final String name = path.getFileName().toString();
+            boolean found = false;
+            for (final String ext : this.extensions)
+            {
+                if (name.regionMatches(true, name.length() - ext.length(), ext, 0, ext.length()))
+                {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return this.filter == null || this.filter.applyPredicate(path);
+    }
+
+    boolean descend(final Path dir, final int depth)
+    {
+        return depth < this.maxDepth && (this.directoryFilter == null || this.directoryFilter.applyPredicate(dir));
+    }
+
+    /**
+     * Reads the attributes of {@code path}, following a symbolic link only if
+     * it points to a file.
+     *
+     * @return The attributes or <code>null</code> if the entry should be
+     *         ignored.
+     */
+    static BasicFileAttributes attributes(final Path path)
+    {
+        try
+        {
+            final BasicFileAttributes attr = java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, NO_FOLLOW);
+            if (!attr.isSymbolicLink()) return attr;
+            final BasicFileAttributes target = java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, FOLLOW);
+            return target.isRegularFile() ? target : null;
+        }
+        catch (final IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return The entries of {@code dir}, empty if it can not be read.
+     */
+    static List<Path> entries(final Path dir)
+    {
+        final List<Path> ret = Colls.list();
+        try (final DirectoryStream<Path> ds = java.nio.file.Files.newDirectoryStream(dir))
+        {
+            for (final Path p : ds)
+                ret.add(p);
+        }
+        catch (final IOException | SecurityException e)
+        {
+            // skipped
+        }
+        return ret;
+    }
+
+    private final static class WalkAction extends RecursiveAction
+    {
+        private static final long        serialVersionUID = 1L;
+        private final FileWalker         walker;
+        private final FileWalkerCallback callback;
+        private final Path               dir;
+        private final int                depth;
+
+        public WalkAction(final FileWalker walker, final FileWalkerCallback callback, final Path dir, final int depth)
+        {
+            this.walker = walker;
+            this.callback = callback;
+            this.dir = dir;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute()
+        {
+            final int d = this.depth + 1;
+            final List<WalkAction> subs = Colls.list();
+            for (final Path p : entries(this.dir))
+            {
+                final BasicFileAttributes attr = attributes(p);
+                if (attr == null) continue;
+                if (attr.isDirectory())
+                {
+                    if (this.walker.descend(p, d)) subs.add(new WalkAction(this.walker, this.callback, p, d));
+                }
+                else if (attr.isRegularFile() && this.walker.accept(p, attr))
+                {
+                    this.callback.file(p, attr);
+                }
+            }
+            if (!subs.isEmpty()) invokeAll(subs);
+        }
+    }
+
+    private final static class WalkIterator implements Iterator<Path>
+    {
+        private final FileWalker          walker;
+        /** Pending entries, with their depth. */
+        private final ArrayDeque<Path>    paths  = new ArrayDeque<>();
+        private final ArrayDeque<Integer> depths = new ArrayDeque<>();
+        private Path                      next;
+
+        public WalkIterator(final FileWalker walker)
+        {
+            this.walker = walker;
+            final BasicFileAttributes attr = attributes(walker.root);
+            if (attr == null) return;
+            if (attr.isDirectory())
+            {
+                this.push(walker.root, 0);
+                this.next = this.advance();
+            }
+            else if (walker.accept(walker.root, attr))
+            {
+                this.next = walker.root;
+            }
+        }
+
+        private void push(final Path dir, final int depth)
+        {
+            final List<Path> entries = entries(dir);
+            final Integer d = Integer.valueOf(depth + 1);
+            // Reversed, so entries are returned in directory order
+            for (int i = entries.size() - 1; i >= 0; i--)
+            {
+                this.paths.push(entries.get(i));
+                this.depths.push(d);
+            }
+        }
+
+        private Path advance()
+        {
+            while (!this.paths.isEmpty())
+            {
+                final Path p = this.paths.pop();
+                final int depth = this.depths.pop().intValue();
+                final BasicFileAttributes attr = attributes(p);
+                if (attr == null) continue;
+                if (attr.isDirectory())
+                {
+                    if (this.walker.descend(p, depth)) this.push(p, depth);
+                }
+                else if (attr.isRegularFile() && this.walker.accept(p, attr))
+                {
+                    return p;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next != null;
+        }
+
+        @Override
+        public Path next()
+        {
+            if (this.next == null) throw new NoSuchElementException();
+            final Path ret = this.next;
+            this.next = this.advance();
+            return ret;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
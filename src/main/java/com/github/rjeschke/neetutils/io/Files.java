@@ -15,16 +15,19 @@
  */
 package com.github.rjeschke.neetutils.io;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,14 +38,21 @@ import java.util.jar.JarFile;
 import com.github.rjeschke.neetutils.Once;
 import com.github.rjeschke.neetutils.Strings;
 import com.github.rjeschke.neetutils.SysUtils;
+import com.github.rjeschke.neetutils.WrappedCheckedException;
 import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
 import com.github.rjeschke.neetutils.rng.RNG;
 import com.github.rjeschke.neetutils.rng.RNGFactory;
 import com.github.rjeschke.neetutils.rng.RNGType;
 
 public final class Files implements Runnable
 {
-    private final static ConcurrentLinkedQueue<File> TEMP_FOLDERS = new ConcurrentLinkedQueue<>();
+    private final static ConcurrentLinkedQueue<File> TEMP_FOLDERS   = new ConcurrentLinkedQueue<>();
+    /** Bytes per transfer call if progress is reported. */
+    private final static long                        TRANSFER_STEP  = 1L << 23;
+    /** Bytes per block for parallel copies. */
+    private final static long                        PARALLEL_BLOCK = 1L << 26;
 
     private Files()
     {
@@ -60,6 +70,7 @@ public final class Files implements Runnable
      * @param parent
      *            Path.
      * @return List of files.
+     * @see #walker(File)
      */
     public final static List<File> listFiles(final File parent)
     {
@@ -68,6 +79,19 @@ public final class Files implements Runnable
         return files;
     }
 
+    /**
+     * Creates a (parallel) walker for the given path, which streams its results
+     * and supports filtering.
+     *
+     * @param root
+     *            Path.
+     * @return The walker.
+     */
+    public final static FileWalker walker(final File root)
+    {
+        return new FileWalker(root);
+    }
+
     private final static void listFiles(final File parent, final List<File> files)
     {
         if (parent.isFile())
@@ -165,17 +189,172 @@ public final class Files implements Runnable
         }
     }
 
+    /**
+     * Copies a file using {@code FileChannel.transferTo}, which lets the OS
+     * copy the data without passing it through the Java heap.
+     *
+     * @param input
+     *            The source file.
+     * @param output
+     *            The destination file.
+     * @throws IOException
+     */
     public final static void copy(final File input, final File output) throws IOException
     {
-        try (final InputStream in = new FileInputStream(input))
+        copy(input, output, null);
+    }
+
+    /**
+     * Copies a file using {@code FileChannel.transferTo}.
+     *
+     * @param input
+     *            The source file.
+     * @param output
+     *            The destination file.
+     * @param callback
+     *            Progress callback, may be <code>null</code>.
+     * @throws IOException
+     */
+    public final static void copy(final File input, final File output, final CopyProgressCallback callback) throws IOException
+    {
+        // Open the source first, so a missing source leaves the destination alone
+        try (final FileInputStream in = new FileInputStream(input))
         {
-            try (final OutputStream out = new FileOutputStream(output))
+            try (final FileOutputStream out = new FileOutputStream(output))
             {
-                copy(in, out);
+                copy(in.getChannel(), out.getChannel(), callback);
             }
         }
     }
 
+    public final static void copy(final File input, final WritableByteChannel output) throws IOException
+    {
+        copy(input, output, null);
+    }
+
+    /**
+     * Copies a file into the given channel using
+     * {@code FileChannel.transferTo}, starting at the channel's current
+     * position.
+     *
+     * @param input
+     *            The source file.
+     * @param output
+     *            The destination channel, not closed by this method.
+     * @param callback
+     *            Progress callback, may be <code>null</code>.
+     * @throws IOException
+     */
+    public final static void copy(final File input, final WritableByteChannel output, final CopyProgressCallback callback)
+            throws IOException
+    {
+        try (final FileInputStream in = new FileInputStream(input))
+        {
+            copy(in.getChannel(), output, callback);
+        }
+    }
+
+    private final static void copy(final FileChannel input, final WritableByteChannel output, final CopyProgressCallback callback)
+            throws IOException
+    {
+        final long size = input.size();
+        transfer(input, 0, size, output, callback != null ? new Progress(callback, size) : null);
+    }
+
+    public final static void copyParallel(final File input, final File output) throws IOException
+    {
+        copyParallel(input, output, null);
+    }
+
+    /**
+     * Copies a file by transferring several ranges of it in parallel, using
+     * the shared {@link Parallel#pool()}. Falls back to
+     * {@link #copy(File, File, CopyProgressCallback)} for small files or a
+     * single processor.
+     *
+     * @param input
+     *            The source file.
+     * @param output
+     *            The destination file.
+     * @param callback
+     *            Progress callback, may be <code>null</code>.
+     * @throws IOException
+     */
+    public final static void copyParallel(final File input, final File output, final CopyProgressCallback callback) throws IOException
+    {
+        // Open the source first, so a missing source leaves the destination alone
+        try (final FileInputStream in = new FileInputStream(input))
+        {
+            final FileChannel source = in.getChannel();
+            final long size = source.size();
+            final int blocks = (int)Math.min(Integer.MAX_VALUE, (size + PARALLEL_BLOCK - 1) / PARALLEL_BLOCK);
+            final int chunks = Parallel.chunkCount(blocks, 1);
+            if (chunks < 2)
+            {
+                try (final FileOutputStream out = new FileOutputStream(output))
+                {
+                    copy(source, out.getChannel(), callback);
+                }
+                return;
+            }
+
+            try (final RandomAccessFile raf = new RandomAccessFile(output, "rw"))
+            {
+                raf.setLength(size);
+            }
+
+            final Progress progress = callback != null ? new Progress(callback, size) : null;
+            try
+            {
+                Parallel.forEachChunk(0, blocks, chunks, new ParallelRange()
+                {
+                    @Override
+                    public void apply(final int chunk, final int from, final int to)
+                    {
+                        final long start = from * PARALLEL_BLOCK;
+                        final long end = Math.min(size, to * PARALLEL_BLOCK);
+                        // Positional transfers, so the source channel can be shared
+                        try (final RandomAccessFile out = new RandomAccessFile(output, "rw"))
+                        {
+                            final FileChannel channel = out.getChannel();
+                            channel.position(start);
+                            transfer(source, start, end - start, channel, progress);
+                        }
+                        catch (final IOException e)
+                        {
+                            throw new WrappedCheckedException(e);
+                        }
+                    }
+                });
+            }
+            catch (final WrappedCheckedException e)
+            {
+                throw (IOException)e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Transfers {@code count} bytes starting at {@code position} into
+     * {@code out}.
+     */
+    private final static void transfer(final FileChannel in, final long position, final long count, final WritableByteChannel out,
+            final Progress progress) throws IOException
+    {
+        final long step = progress != null ? TRANSFER_STEP : count;
+        long done = 0;
+        while (done < count)
+        {
+            final long n = in.transferTo(position + done, Math.min(step, count - done), out);
+            if (n <= 0 && position + done >= in.size())
+            {
+                throw new EOFException("Unexpected end of file, expected " + count + ", got " + done + " bytes");
+            }
+            done += n;
+            if (progress != null && n > 0) progress.add(n);
+        }
+    }
+
     public final static void copy(final InputStream in, final File output) throws IOException
     {
         try (final OutputStream out = new FileOutputStream(output))
@@ -186,6 +365,11 @@ public final class Files implements Runnable
 
     public final static void copy(final File input, final OutputStream out) throws IOException
     {
+        if (out instanceof FileOutputStream)
+        {
+            copy(input, ((FileOutputStream)out).getChannel(), null);
+            return;
+        }
         try (final InputStream in = new FileInputStream(input))
         {
             copy(in, out);
@@ -194,13 +378,19 @@ public final class Files implements Runnable
 
     public final static void copy(final InputStream input, final OutputStream output) throws IOException
     {
-        final byte[] buffer = new byte[65536];
-
-        for (;;)
+        final byte[] buffer = BufferPool.lease(65536);
+        try
         {
-            final int read = input.read(buffer);
-            if (read == -1) break;
-            output.write(buffer, 0, read);
+            for (;;)
+            {
+                final int read = input.read(buffer);
+                if (read == -1) break;
+                output.write(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            BufferPool.release(buffer);
         }
     }
 
@@ -226,23 +416,57 @@ public final class Files implements Runnable
         }
     }
 
+    /**
+     * Reads the given stream into a byte array and closes it.
+     *
+     * <p>
+     * The data is collected in a list of pooled chunks of growing size and
+     * copied once into the result, so every byte is copied exactly once.
+     * </p>
+     *
+     * @param in
+     *            The stream.
+     * @return The bytes read.
+     * @throws IOException
+     */
     public final static byte[] asBytes(final InputStream in) throws IOException
     {
-        byte[] buffer = new byte[65536];
+        final List<byte[]> chunks = new ArrayList<>();
         try
         {
+            long total = 0;
+            byte[] chunk = BufferPool.lease(1 << BufferPool.MIN_SHIFT);
+            chunks.add(chunk);
             int p = 0;
             for (;;)
             {
-                final int r = in.read(buffer, p, buffer.length - p);
+                if (p == chunk.length)
+                {
+                    chunk = BufferPool.lease(Math.min(chunk.length << 1, 1 << BufferPool.MAX_SHIFT));
+                    chunks.add(chunk);
+                    p = 0;
+                }
+                final int r = in.read(chunk, p, chunk.length - p);
                 if (r < 0) break;
                 p += r;
-                if (p >= buffer.length) buffer = Arrays.copyOf(buffer, buffer.length + 65536);
+                total += r;
+                if (total > Integer.MAX_VALUE - 8) throw new IOException("Stream too large for a byte array");
+            }
+
+            final byte[] ret = new byte[(int)total];
+            int offs = 0;
+            for (final byte[] c : chunks)
+            {
+                final int n = Math.min(c.length, ret.length - offs);
+                System.arraycopy(c, 0, ret, offs, n);
+                offs += n;
             }
-            return p != buffer.length ? Arrays.copyOf(buffer, p) : buffer;
+            return ret;
         }
         finally
         {
+            for (final byte[] c : chunks)
+                BufferPool.release(c);
             in.close();
         }
     }
@@ -286,7 +510,8 @@ public final class Files implements Runnable
     }
 
     /**
-     * Lists all resources in the given package.
+     * Lists all resources in the given package. Packages on the class path are
+     * looked up in {@link ClasspathIndex#get()}.
      *
      * @param pkgName
      *            The package name
@@ -297,40 +522,23 @@ public final class Files implements Runnable
         final URL url = SysUtils.class.getResource("/" + pkgName.replace('.', '/'));
         if (url == null) return null;
 
+        final List<String> indexed = ClasspathIndex.get().listPackage(pkgName);
+        if (!indexed.isEmpty()) return Colls.list(indexed);
+
         if (url.getProtocol().equals("jar")) return getJars(url, pkgName.replace('.', '/'));
 
         return getFiles(url.getPath(), pkgName);
     }
 
     /**
-     * Gets a list of all resources on the classpath.
+     * Gets a list of all resources on the classpath. The classpath is scanned
+     * once, see {@link ClasspathIndex#refresh()}.
      *
      * @return A list of Strings.
      */
     public final static List<String> getFilesOnClasspath()
     {
-        final ArrayList<String> ret = new ArrayList<>();
-        final char sep = System.getProperty("path.separator").charAt(0);
-        final List<String> paths = Strings.split(System.getProperty("java.class.path"), sep);
-
-        for (final String path : paths)
-        {
-            final File file = new File(path);
-            if (file.isDirectory())
-            {
-                final List<File> files = listFiles(file);
-                final int cut = file.toString().length();
-                for (final File f : files)
-                {
-                    ret.add(f.toString().substring(cut).replace('\\', '/'));
-                }
-            }
-            else if (file.isFile() && file.getName().toLowerCase().endsWith(".jar"))
-            {
-                ret.addAll(getJarFiles(file));
-            }
-        }
-        return ret;
+        return new ArrayList<>(ClasspathIndex.get().list(""));
     }
 
     private final static List<String> getFiles(final String path, final String basePackage)
@@ -354,32 +562,6 @@ public final class Files implements Runnable
         return classes;
     }
 
-    private final static List<String> getJarFiles(final File file)
-    {
-        final ArrayList<String> classes = new ArrayList<>();
-        try
-        {
-            try (final JarFile jar = new JarFile(file))
-            {
-                final Enumeration<JarEntry> j = jar.entries();
-                while (j.hasMoreElements())
-                {
-                    final JarEntry je = j.nextElement();
-                    if (!je.isDirectory())
-                    {
-                        classes.add("/" + je.getName());
-                    }
-                }
-            }
-        }
-        catch (final Exception e)
-        {
-            e.printStackTrace();
-            return null;
-        }
-        return classes;
-    }
-
     private final static List<String> getJars(final URL furl, final String pkgname)
     {
         final ArrayList<String> classes = new ArrayList<>();
@@ -530,6 +712,28 @@ public final class Files implements Runnable
         return possibleChild.isAbsolute() ? possibleChild : new File(parent, possibleChild.toString());
     }
 
+    /**
+     * Serializes progress reports of (parallel) copies.
+     */
+    private final static class Progress
+    {
+        private final CopyProgressCallback callback;
+        private final long                 total;
+        private long                       copied = 0;
+
+        Progress(final CopyProgressCallback callback, final long total)
+        {
+            this.callback = callback;
+            this.total = total;
+        }
+
+        synchronized void add(final long n)
+        {
+            this.copied += n;
+            this.callback.progress(this.copied, this.total);
+        }
+    }
+
     @Override
     public void run()
     {
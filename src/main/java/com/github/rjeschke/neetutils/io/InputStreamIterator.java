@@ -17,41 +17,70 @@ package com.github.rjeschke.neetutils.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import com.github.rjeschke.neetutils.WrappedCheckedException;
 import com.github.rjeschke.neetutils.iterables.AbstractXIterable;
+import com.github.rjeschke.neetutils.iterables.Iterables;
+import com.github.rjeschke.neetutils.iterables.XIterable;
+import com.github.rjeschke.neetutils.lists.IntCursor;
 import com.github.rjeschke.neetutils.math.Numbers;
 
 /**
+ * Single pass iteration over the bytes of an {@code InputStream}.
+ *
+ * <p>
+ * Reads blocks into a (pooled) buffer. Besides the boxing
+ * {@code XIterable<Integer>} view there is a non-boxing {@link #cursor()} and a
+ * view over whole chunks, {@link #chunks()}. All views share the same position
+ * in the stream. The stream is closed when its end is reached.
+ * </p>
  *
  * @author René Jeschke (rene_jeschke@yahoo.de)
  *
  */
 public class InputStreamIterator extends AbstractXIterable<Integer> implements AutoCloseable
 {
-    final InputStream in;
-    boolean           closed        = false;
-    volatile boolean  iteratorInUse = false;
-    int               current;
+    private final static int BUFFER_SIZE   = 8192;
+    final InputStream        in;
+    byte[]                   buffer;
+    int                      position      = 0;
+    int                      limit         = 0;
+    boolean                  closed        = false;
+    volatile boolean         iteratorInUse = false;
+    int                      current;
 
     public InputStreamIterator(final InputStream in)
     {
         this.in = in;
+        this.buffer = BufferPool.lease(BUFFER_SIZE);
         this.current = this.read();
     }
 
     int read()
     {
+        if (this.position < this.limit) return this.current = this.buffer[this.position++] & 255;
         if (this.closed) return this.current = -1;
         try
         {
-            this.current = this.in.read();
-            if (this.current == -1)
+            int r;
+            do
+            {
+                r = this.in.read(this.buffer, 0, this.buffer.length);
+            }
+            while (r == 0);
+            if (r == -1)
             {
-                this.in.close();
-                this.closed = true;
+                this.current = -1;
+                this.close();
+            }
+            else
+            {
+                this.position = 1;
+                this.limit = r;
+                this.current = this.buffer[0] & 255;
             }
         }
         catch (final IOException e)
@@ -59,8 +88,7 @@ public class InputStreamIterator extends AbstractXIterable<Integer> implements A
             this.current = -1;
             try
             {
-                this.in.close();
-                this.closed = true;
+                this.close();
             }
             catch (final IOException e1)
             {
@@ -77,6 +105,51 @@ public class InputStreamIterator extends AbstractXIterable<Integer> implements A
         return new StreamIterator(this);
     }
 
+    /**
+     * Gets a non-boxing cursor over the remaining bytes, returning unsigned
+     * values (<code>0 - 255</code>).
+     *
+     * @return The cursor.
+     */
+    public IntCursor cursor()
+    {
+        return new IntCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return InputStreamIterator.this.current != -1;
+            }
+
+            @Override
+            public int next()
+            {
+                if (!this.hasNext()) throw new NoSuchElementException("Trying to read past end of stream");
+                final int ret = InputStreamIterator.this.current;
+                InputStreamIterator.this.read();
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Gets a view over the remaining bytes in chunks of up to the buffer size.
+     * Each chunk is a new array, so chunks may be kept.
+     *
+     * @return The chunks.
+     */
+    public XIterable<byte[]> chunks()
+    {
+        return Iterables.asXIterable(new Iterable<byte[]>()
+        {
+            @Override
+            public Iterator<byte[]> iterator()
+            {
+                return new ChunkIterator(InputStreamIterator.this);
+            }
+        });
+    }
+
     private class StreamIterator implements Iterator<Integer>
     {
         final InputStreamIterator ist;
@@ -108,11 +181,51 @@ public class InputStreamIterator extends AbstractXIterable<Integer> implements A
         }
     }
 
+    private static class ChunkIterator implements Iterator<byte[]>
+    {
+        final InputStreamIterator ist;
+
+        public ChunkIterator(final InputStreamIterator ist)
+        {
+            this.ist = ist;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.ist.current != -1;
+        }
+
+        @Override
+        public byte[] next()
+        {
+            if (!this.hasNext()) throw new NoSuchElementException("Trying to read past end of stream");
+            final InputStreamIterator ist = this.ist;
+            // 'current' is buffer[position - 1]
+            final byte[] ret = Arrays.copyOfRange(ist.buffer, ist.position - 1, ist.limit);
+            ist.position = ist.limit;
+            ist.read();
+            return ret;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Can not remove characters from an InputStream");
+        }
+    }
+
     @Override
     public void close() throws IOException
     {
-        this.in.close();
         this.current = -1;
-        this.closed = true;
+        if (!this.closed)
+        {
+            this.closed = true;
+            this.position = this.limit = 0;
+            BufferPool.release(this.buffer);
+            this.buffer = null;
+        }
+        this.in.close();
     }
 }
@@ -110,6 +110,31 @@ public final class LEIO
         out.write(bytes);
     }
 
+    public final static void writeVarInt(final OutputStream out, final int value) throws IOException
+    {
+        BEIO.writeVarInt(out, value);
+    }
+
+    public final static void writeVarLong(final OutputStream out, final long value) throws IOException
+    {
+        BEIO.writeVarLong(out, value);
+    }
+
+    public final static void writeZigZagInt(final OutputStream out, final int value) throws IOException
+    {
+        BEIO.writeZigZagInt(out, value);
+    }
+
+    public final static void writeZigZagLong(final OutputStream out, final long value) throws IOException
+    {
+        BEIO.writeZigZagLong(out, value);
+    }
+
+    public final static void writeVarString(final OutputStream out, final String value) throws IOException
+    {
+        BEIO.writeVarString(out, value);
+    }
+
     public final static byte readI8(final InputStream in) throws IOException
     {
         return (byte)in.read();
@@ -199,6 +224,31 @@ public final class LEIO
         return BEIO.readStringN(in, readI32(in));
     }
 
+    public final static int readVarInt(final InputStream in) throws IOException
+    {
+        return BEIO.readVarInt(in);
+    }
+
+    public final static long readVarLong(final InputStream in) throws IOException
+    {
+        return BEIO.readVarLong(in);
+    }
+
+    public final static int readZigZagInt(final InputStream in) throws IOException
+    {
+        return BEIO.readZigZagInt(in);
+    }
+
+    public final static long readZigZagLong(final InputStream in) throws IOException
+    {
+        return BEIO.readZigZagLong(in);
+    }
+
+    public final static String readVarString(final InputStream in) throws IOException
+    {
+        return BEIO.readVarString(in);
+    }
+
     public final static String readString(final InputStream in, final int length, final int padding, final String charsetName) throws IOException
     {
         return BEIO.readString(in, length, padding, charsetName);
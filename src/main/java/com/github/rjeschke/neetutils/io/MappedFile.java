@@ -0,0 +1,585 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access binary reader/writer over a memory mapped file.
+ *
+ * <p>
+ * Provides the typed reads and writes of {@link NInputStream} and
+ * {@link NOutputStream} at absolute offsets. The file is mapped in segments of
+ * 1 GiB, so files larger than 2 GiB are supported. Segments overlap by 8 bytes,
+ * so every single value is read or written with one buffer access, even across
+ * segment boundaries. Nothing is read up front, pages are loaded by the OS on
+ * first access.
+ * </p>
+ *
+ * <p>
+ * Reads are thread safe. The file has a fixed size, accesses outside of it
+ * throw an {@code IndexOutOfBoundsException}, writes to a read-only mapping a
+ * {@code ReadOnlyBufferException}. A {@code MappedFile} must not be used after
+ * {@link #close()}.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class MappedFile implements Closeable
+{
+    /** Default segment size (1 GiB) as a shift. */
+    final static int           SEGMENT_SHIFT = 30;
+    /** Segment overlap, the size of the largest value. */
+    private final static int   OVERLAP       = 8;
+
+    private final File         file;
+    private final ByteOrder    byteOrder;
+    private final boolean      writable;
+    private final long         size;
+    private final int          segmentShift;
+    private final long         segmentMask;
+    private final ByteBuffer[] segments;
+    private volatile boolean   closed        = false;
+
+    MappedFile(final File file, final ByteOrder byteOrder, final boolean writable, final long createSize,
+            final int segmentShift) throws IOException
+    {
+        this.file = file;
+        this.byteOrder = byteOrder;
+        this.writable = writable;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+
+        final RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+        try
+        {
+            if (createSize >= 0) raf.setLength(createSize);
+            this.size = raf.length();
+            final FileChannel channel = raf.getChannel();
+            final int count = (int)((this.size + this.segmentMask) >>> segmentShift);
+            this.segments = new ByteBuffer[count];
+            try
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    final long start = (long)i << segmentShift;
+                    final long len = Math.min(this.size - start, (1L << segmentShift) + OVERLAP);
+                    this.segments[i] = channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                            : FileChannel.MapMode.READ_ONLY, start, len).order(byteOrder);
+                }
+            }
+            catch (final IOException e)
+            {
+                this.free();
+                throw e;
+            }
+        }
+        finally
+        {
+            // Mappings stay valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Maps the given file read-only.
+     *
+     * @param file
+     *            The file.
+     * @param byteOrder
+     *            The byte order.
+     * @return A new {@code MappedFile}.
+     * @throws IOException
+     */
+    public static MappedFile open(final File file, final ByteOrder byteOrder) throws IOException
+    {
+        return new MappedFile(file, byteOrder, false, -1, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Maps the given file.
+     *
+     * @param file
+     *            The file.
+     * @param byteOrder
+     *            The byte order.
+     * @param writable
+     *            <code>true</code> to map it read-write.
+     * @return A new {@code MappedFile}.
+     * @throws IOException
+     */
+    public static MappedFile open(final File file, final ByteOrder byteOrder, final boolean writable)
+            throws IOException
+    {
+        return new MappedFile(file, byteOrder, writable, -1, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Creates (or resizes) the given file to {@code size} bytes and maps it
+     * read-write.
+     *
+     * @param file
+     *            The file.
+     * @param size
+     *            The file size in bytes.
+     * @param byteOrder
+     *            The byte order.
+     * @return A new {@code MappedFile}.
+     * @throws IOException
+     */
+    public static MappedFile create(final File file, final long size, final ByteOrder byteOrder) throws IOException
+    {
+        if (size < 0) throw new IllegalArgumentException("Negative size: " + size);
+        return new MappedFile(file, byteOrder, true, size, SEGMENT_SHIFT);
+    }
+
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    public ByteOrder getByteOrder()
+    {
+        return this.byteOrder;
+    }
+
+    public boolean isWritable()
+    {
+        return this.writable;
+    }
+
+    /**
+     * @return The file size in bytes.
+     */
+    public long size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets the segment holding the {@code n} bytes at {@code position}, or
+     * {@code null} if {@code n} is zero (the position may then be the end of
+     * the last segment).
+     */
+    private ByteBuffer segment(final long position, final long n)
+    {
+        if (this.closed) throw new IllegalStateException("File is closed");
+        if (position < 0 || position > this.size - n)
+        {
+            throw new IndexOutOfBoundsException("Position: " + position + ", length: " + n + ", size: " + this.size);
+        }
+        if (n == 0) return null;
+        return this.segments[(int)(position >>> this.segmentShift)];
+    }
+
+    private int offset(final long position)
+    {
+        return (int)(position & this.segmentMask);
+    }
+
+    public int readI8(final long position)
+    {
+        return this.segment(position, 1).get(this.offset(position));
+    }
+
+    public int readU8(final long position)
+    {
+        return this.segment(position, 1).get(this.offset(position)) & 255;
+    }
+
+    public int readI16(final long position)
+    {
+        return this.segment(position, 2).getShort(this.offset(position));
+    }
+
+    public int readU16(final long position)
+    {
+        return this.segment(position, 2).getShort(this.offset(position)) & 0xffff;
+    }
+
+    public int readI24(final long position)
+    {
+        return (this.readU24(position) << 8) >> 8;
+    }
+
+    public int readU24(final long position)
+    {
+        final ByteBuffer seg = this.segment(position, 3);
+        final int o = this.offset(position);
+        final int b0 = seg.get(o) & 255, b1 = seg.get(o + 1) & 255, b2 = seg.get(o + 2) & 255;
+        return this.byteOrder == ByteOrder.BIG_ENDIAN ? (b0 << 16) | (b1 << 8) | b2 : b0 | (b1 << 8) | (b2 << 16);
+    }
+
+    public int readI32(final long position)
+    {
+        return this.segment(position, 4).getInt(this.offset(position));
+    }
+
+    public long readU32(final long position)
+    {
+        return this.segment(position, 4).getInt(this.offset(position)) & 0xffffffffL;
+    }
+
+    public long readI64(final long position)
+    {
+        return this.segment(position, 8).getLong(this.offset(position));
+    }
+
+    public float readFloat(final long position)
+    {
+        return this.segment(position, 4).getFloat(this.offset(position));
+    }
+
+    public double readDouble(final long position)
+    {
+        return this.segment(position, 8).getDouble(this.offset(position));
+    }
+
+    /**
+     * Copies {@code len} bytes starting at {@code position} into {@code b}.
+     */
+    public void read(final long position, final byte[] b, final int off, final int len)
+    {
+        this.segment(position, len);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate();
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, seg.limit() - o);
+            seg.position(o);
+            seg.get(b, off + done, n);
+            done += n;
+            pos += n;
+        }
+    }
+
+    public void readI16s(final long position, final short[] b, final int off, final int len)
+    {
+        this.segment(position, (long)len << 1);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate().order(this.byteOrder);
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, (seg.limit() - o) >> 1);
+            seg.position(o);
+            seg.asShortBuffer().get(b, off + done, n);
+            done += n;
+            pos += (long)n << 1;
+        }
+    }
+
+    public void readI32s(final long position, final int[] b, final int off, final int len)
+    {
+        this.segment(position, (long)len << 2);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate().order(this.byteOrder);
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, (seg.limit() - o) >> 2);
+            seg.position(o);
+            seg.asIntBuffer().get(b, off + done, n);
+            done += n;
+            pos += (long)n << 2;
+        }
+    }
+
+    public void readI64s(final long position, final long[] b, final int off, final int len)
+    {
+        this.segment(position, (long)len << 3);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate().order(this.byteOrder);
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, (seg.limit() - o) >> 3);
+            seg.position(o);
+            seg.asLongBuffer().get(b, off + done, n);
+            done += n;
+            pos += (long)n << 3;
+        }
+    }
+
+    public void readFloats(final long position, final float[] b, final int off, final int len)
+    {
+        this.segment(position, (long)len << 2);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate().order(this.byteOrder);
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, (seg.limit() - o) >> 2);
+            seg.position(o);
+            seg.asFloatBuffer().get(b, off + done, n);
+            done += n;
+            pos += (long)n << 2;
+        }
+    }
+
+    public void readDoubles(final long position, final double[] b, final int off, final int len)
+    {
+        this.segment(position, (long)len << 3);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate().order(this.byteOrder);
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, (seg.limit() - o) >> 3);
+            seg.position(o);
+            seg.asDoubleBuffer().get(b, off + done, n);
+            done += n;
+            pos += (long)n << 3;
+        }
+    }
+
+    private String readString(final long position, final int length, final String charsetName) throws IOException
+    {
+        final byte[] bytes = new byte[length];
+        this.read(position, bytes, 0, length);
+        return new String(bytes, charsetName);
+    }
+
+    /**
+     * Reads an UTF-8 string with an 8 bit length prefix, the string occupies
+     * {@code 1 + readU8(position)} bytes.
+     */
+    public String readString8(final long position) throws IOException
+    {
+        return this.readString(position + 1, this.readU8(position), "UTF-8");
+    }
+
+    /**
+     * Reads an UTF-8 string with a 16 bit length prefix, the string occupies
+     * {@code 2 + readU16(position)} bytes.
+     */
+    public String readString16(final long position) throws IOException
+    {
+        return this.readString(position + 2, this.readU16(position), "UTF-8");
+    }
+
+    /**
+     * Reads an UTF-8 string with a 32 bit length prefix, the string occupies
+     * {@code 4 + readI32(position)} bytes.
+     */
+    public String readString32(final long position) throws IOException
+    {
+        return this.readString(position + 4, this.readI32(position), "UTF-8");
+    }
+
+    /**
+     * Reads a fixed length string, stripping trailing {@code padding} bytes.
+     */
+    public String readString(final long position, final int length, final int padding, final String charsetName)
+            throws IOException
+    {
+        final byte[] bytes = new byte[length];
+        this.read(position, bytes, 0, length);
+        int n = length - 1;
+        while (n >= 0 && bytes[n] == padding)
+            n--;
+        return new String(bytes, 0, n + 1, charsetName);
+    }
+
+    public String readString(final long position, final int length, final int padding) throws IOException
+    {
+        return this.readString(position, length, padding, "UTF-8");
+    }
+
+    public String readString(final long position, final int length) throws IOException
+    {
+        return this.readString(position, length, 0, "UTF-8");
+    }
+
+    public void write8(final long position, final int value)
+    {
+        this.segment(position, 1).put(this.offset(position), (byte)value);
+    }
+
+    public void write16(final long position, final int value)
+    {
+        this.segment(position, 2).putShort(this.offset(position), (short)value);
+    }
+
+    public void write24(final long position, final int value)
+    {
+        final ByteBuffer seg = this.segment(position, 3);
+        final int o = this.offset(position);
+        if (this.byteOrder == ByteOrder.BIG_ENDIAN)
+        {
+            seg.put(o, (byte)(value >> 16));
+            seg.put(o + 1, (byte)(value >> 8));
+            seg.put(o + 2, (byte)value);
+        }
+        else
+        {
+            seg.put(o, (byte)value);
+            seg.put(o + 1, (byte)(value >> 8));
+            seg.put(o + 2, (byte)(value >> 16));
+        }
+    }
+
+    public void write32(final long position, final int value)
+    {
+        this.segment(position, 4).putInt(this.offset(position), value);
+    }
+
+    public void write64(final long position, final long value)
+    {
+        this.segment(position, 8).putLong(this.offset(position), value);
+    }
+
+    public void writeFloat(final long position, final float value)
+    {
+        this.segment(position, 4).putFloat(this.offset(position), value);
+    }
+
+    public void writeDouble(final long position, final double value)
+    {
+        this.segment(position, 8).putDouble(this.offset(position), value);
+    }
+
+    /**
+     * Copies {@code len} bytes from {@code b} to {@code position}.
+     */
+    public void write(final long position, final byte[] b, final int off, final int len)
+    {
+        this.segment(position, len);
+        long pos = position;
+        int done = 0;
+        while (done < len)
+        {
+            final ByteBuffer seg = this.segments[(int)(pos >>> this.segmentShift)].duplicate();
+            final int o = this.offset(pos);
+            final int n = Math.min(len - done, seg.limit() - o);
+            seg.position(o);
+            seg.put(b, off + done, n);
+            done += n;
+            pos += n;
+        }
+    }
+
+    /**
+     * Writes an UTF-8 string with an 8 bit length prefix.
+     *
+     * @return The number of bytes written.
+     */
+    public int writeString8(final long position, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        if (bytes.length > 255) throw new IOException("String too long (" + bytes.length + ")");
+        this.write8(position, bytes.length);
+        this.write(position + 1, bytes, 0, bytes.length);
+        return bytes.length + 1;
+    }
+
+    /**
+     * Writes an UTF-8 string with a 16 bit length prefix.
+     *
+     * @return The number of bytes written.
+     */
+    public int writeString16(final long position, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        if (bytes.length > 65535) throw new IOException("String too long (" + bytes.length + ")");
+        this.write16(position, bytes.length);
+        this.write(position + 2, bytes, 0, bytes.length);
+        return bytes.length + 2;
+    }
+
+    /**
+     * Writes an UTF-8 string with a 32 bit length prefix.
+     *
+     * @return The number of bytes written.
+     */
+    public int writeString32(final long position, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        this.write32(position, bytes.length);
+        this.write(position + 4, bytes, 0, bytes.length);
+        return bytes.length + 4;
+    }
+
+    /**
+     * Writes a fixed length string, padded with {@code padding} bytes to
+     * {@code length} bytes.
+     */
+    public void writeString(final long position, final String value, final int length, final int padding,
+            final String charsetName) throws IOException
+    {
+        final byte[] bytes = value.getBytes(charsetName);
+        if (bytes.length > length) throw new IOException("String too long, expected max. " + length + ", got " + bytes.length);
+        this.write(position, bytes, 0, bytes.length);
+        for (int i = bytes.length; i < length; i++)
+            this.write8(position + i, padding);
+    }
+
+    public void writeString(final long position, final String value, final int length, final int padding)
+            throws IOException
+    {
+        this.writeString(position, value, length, padding, "UTF-8");
+    }
+
+    public void writeString(final long position, final String value, final int length) throws IOException
+    {
+        this.writeString(position, value, length, 0, "UTF-8");
+    }
+
+    /**
+     * Forces all changes of a writable mapping to disk.
+     */
+    public void force()
+    {
+        if (!this.writable || this.closed) return;
+        for (final ByteBuffer seg : this.segments)
+            ((MappedByteBuffer)seg).force();
+    }
+
+    private void free()
+    {
+        for (int i = 0; i < this.segments.length; i++)
+        {
+            DirectBuffers.free(this.segments[i]);
+            this.segments[i] = null;
+        }
+    }
+
+    /**
+     * Forces all changes to disk and unmaps the file.
+     */
+    @Override
+    public void close()
+    {
+        if (this.closed) return;
+        this.force();
+        this.closed = true;
+        this.free();
+    }
+}
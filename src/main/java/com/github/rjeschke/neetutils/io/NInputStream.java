@@ -15,10 +15,13 @@
  */
 package com.github.rjeschke.neetutils.io;
 
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 
 /**
  *
@@ -27,6 +30,9 @@ import java.nio.ByteOrder;
  */
 public abstract class NInputStream extends FilterInputStream
 {
+    /** String dictionary for {@link #readStringRef()}. */
+    private ArrayList<String> strings = null;
+
     protected NInputStream(final InputStream in)
     {
         super(in);
@@ -38,6 +44,38 @@ public abstract class NInputStream extends FilterInputStream
         return new NInputStreamLE(in);
     }
 
+    /**
+     * Creates a buffered stream which decodes values from an internal buffer
+     * instead of reading each byte from {@code in}.
+     *
+     * @param in
+     *            The stream to read from.
+     * @param byteOrder
+     *            The byte order.
+     * @return The stream.
+     * @see NInputStreamBuffered
+     */
+    public static NInputStream buffered(final InputStream in, final ByteOrder byteOrder)
+    {
+        return new NInputStreamBuffered(in, byteOrder);
+    }
+
+    /**
+     * Creates a buffered stream which reads ahead on a background thread, so
+     * decoding overlaps with reading {@code in}.
+     *
+     * @param in
+     *            The stream to read from.
+     * @param byteOrder
+     *            The byte order.
+     * @return The stream.
+     * @see ReadAheadInputStream
+     */
+    public static NInputStream readAhead(final InputStream in, final ByteOrder byteOrder)
+    {
+        return new NInputStreamBuffered(new ReadAheadInputStream(in), byteOrder, 8192);
+    }
+
     public abstract int readI8() throws IOException;
 
     public abstract int readU8() throws IOException;
@@ -74,6 +112,185 @@ public abstract class NInputStream extends FilterInputStream
 
     public abstract ByteOrder getByteOrder();
 
+    /**
+     * Reads exactly {@code len} bytes.
+     *
+     * @throws EOFException
+     *             if the stream ended before
+     */
+    public void readFully(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (this.read(b, off, len) != len) throw new EOFException("Unexpected end of stream, expected " + len + " bytes");
+    }
+
+    public void readI16s(final short[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 2);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 1);
+            this.readFully(bb.array(), 0, n << 1);
+            bb.clear();
+            bb.asShortBuffer().get(b, off + done, n);
+            done += n;
+        }
+    }
+
+    public void readI32s(final int[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 4);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 2);
+            this.readFully(bb.array(), 0, n << 2);
+            bb.clear();
+            bb.asIntBuffer().get(b, off + done, n);
+            done += n;
+        }
+    }
+
+    public void readI64s(final long[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 8);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 3);
+            this.readFully(bb.array(), 0, n << 3);
+            bb.clear();
+            bb.asLongBuffer().get(b, off + done, n);
+            done += n;
+        }
+    }
+
+    public void readFloats(final float[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 4);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 2);
+            this.readFully(bb.array(), 0, n << 2);
+            bb.clear();
+            bb.asFloatBuffer().get(b, off + done, n);
+            done += n;
+        }
+    }
+
+    public void readDoubles(final double[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 8);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 3);
+            this.readFully(bb.array(), 0, n << 3);
+            bb.clear();
+            bb.asDoubleBuffer().get(b, off + done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint, see
+     * {@link NOutputStream#writeVarInt(int)}.
+     */
+    public int readVarInt() throws IOException
+    {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            final int b = this.readU8();
+            if (b == -1) throw new EOFException("Unexpected end of stream while reading varint");
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readVarLong() throws IOException
+    {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7)
+        {
+            final int b = this.readU8();
+            if (b == -1) throw new EOFException("Unexpected end of stream while reading varint");
+            v |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int readZigZagInt() throws IOException
+    {
+        final int v = this.readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public long readZigZagLong() throws IOException
+    {
+        final long v = this.readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public String readVarString() throws IOException
+    {
+        final int length = this.readVarInt();
+        if (length < 0) throw new IOException("Invalid string length: " + (length & 0xffffffffL));
+        final byte[] bytes = new byte[length];
+        this.readFully(bytes, 0, length);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Reads a string written by {@link NOutputStream#writeStringRef(String)}.
+     */
+    public String readStringRef() throws IOException
+    {
+        if (this.strings == null) this.strings = new ArrayList<>();
+        final int ref = this.readVarInt();
+        if (ref == 0)
+        {
+            final String value = this.readVarString();
+            this.strings.add(value);
+            return value;
+        }
+        if (ref < 0 || ref > this.strings.size()) throw new IOException("Invalid string reference: " + ref);
+        return this.strings.get(ref - 1);
+    }
+
+    /**
+     * Clears the string dictionary, see
+     * {@link NOutputStream#resetStringRefs()}.
+     */
+    public void resetStringRefs()
+    {
+        this.strings = null;
+    }
+
+    /**
+     * Reads values written by {@link NOutputStream#writeDeltas(int[], int, int)}.
+     */
+    public void readDeltas(final int[] b, final int off, final int len) throws IOException
+    {
+        int prev = 0;
+        for (int i = off; i < off + len; i++)
+            b[i] = prev += this.readZigZagInt();
+    }
+
+    public void readDeltas(final long[] b, final int off, final int len) throws IOException
+    {
+        long prev = 0;
+        for (int i = off; i < off + len; i++)
+            b[i] = prev += this.readZigZagLong();
+    }
+
+    /**
+     * Creates a scratch buffer for bulk reads of {@code len} elements of
+     * {@code size} bytes.
+     */
+    private ByteBuffer bulkBuffer(final int len, final int size)
+    {
+        return ByteBuffer.wrap(new byte[Math.max(size, (int)Math.min((long)len * size, 8192))]).order(this.getByteOrder());
+    }
+
     @Override
     public int read(final byte[] b) throws IOException
     {
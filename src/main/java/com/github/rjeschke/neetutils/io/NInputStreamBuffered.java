@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Buffered {@code NInputStream} for both byte orders.
+ *
+ * <p>
+ * Reads blocks from the underlying stream into an internal buffer and decodes
+ * values from it with a single bounds check per value. Multi-byte reads throw
+ * an {@code EOFException} at the end of the stream, {@code readU8()} returns
+ * <code>-1</code>. Mark/reset is not supported.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class NInputStreamBuffered extends NInputStream
+{
+    public final static int      DEFAULT_BUFFER_SIZE = 65536;
+    private final static Charset UTF_8               = Charset.forName("UTF-8");
+
+    private final ByteOrder      byteOrder;
+    private final boolean        bigEndian;
+    private final byte[]         buffer;
+    private final ByteBuffer     bb;
+    private int                  position            = 0;
+    private int                  limit               = 0;
+
+    public NInputStreamBuffered(final InputStream in, final ByteOrder byteOrder)
+    {
+        this(in, byteOrder, DEFAULT_BUFFER_SIZE);
+    }
+
+    public NInputStreamBuffered(final InputStream in, final ByteOrder byteOrder, final int bufferSize)
+    {
+        super(in);
+        this.byteOrder = byteOrder;
+        this.bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+        this.bb = ByteBuffer.wrap(this.buffer).order(byteOrder);
+    }
+
+    /**
+     * Reads from the underlying stream until at least {@code n} bytes are
+     * buffered or the stream ended.
+     *
+     * @return <code>true</code> if at least {@code n} bytes are available.
+     */
+    private boolean fill(final int n) throws IOException
+    {
+        if (this.position > 0)
+        {
+            final int rem = this.limit - this.position;
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, rem);
+            this.position = 0;
+            this.limit = rem;
+        }
+        while (this.limit < n)
+        {
+            final int r = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (r == -1) return false;
+            this.limit += r;
+        }
+        return true;
+    }
+
+    /**
+     * Ensures {@code n} (at most 8) buffered bytes and returns the current
+     * position, advancing it by {@code n}.
+     */
+    private int take(final int n) throws IOException
+    {
+        if (this.limit - this.position < n && !this.fill(n)) throw new EOFException();
+        final int p = this.position;
+        this.position = p + n;
+        return p;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (this.position == this.limit && !this.fill(1)) return -1;
+        return this.buffer[this.position++] & 255;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException
+    {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        int done = Math.min(len, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, b, off, done);
+        this.position += done;
+        while (done < len)
+        {
+            final int todo = len - done;
+            if (todo >= this.buffer.length)
+            {
+                final int r = this.in.read(b, off + done, todo);
+                if (r == -1) break;
+                done += r;
+            }
+            else
+            {
+                if (!this.fill(1)) break;
+                final int n = Math.min(todo, this.limit);
+                System.arraycopy(this.buffer, 0, b, off + done, n);
+                this.position = n;
+                done += n;
+            }
+        }
+        return done == 0 && len > 0 ? -1 : done;
+    }
+
+    @Override
+    public void readFully(final byte[] b, final int off, final int len) throws IOException
+    {
+        final int r = this.read(b, off, len);
+        if (r != len) throw new EOFException("Unexpected end of stream, expected " + len + " bytes, got " + Math.max(r, 0));
+    }
+
+    @Override
+    public long skip(final long n) throws IOException
+    {
+        if (n <= 0) return 0;
+        final int buffered = (int)Math.min(n, this.limit - this.position);
+        this.position += buffered;
+        return buffered + (n > buffered ? BEIO.skipBytes(this.in, n - buffered) : 0);
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return this.limit - this.position + this.in.available();
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit)
+    {
+        // meh!
+    }
+
+    @Override
+    public synchronized void reset() throws IOException
+    {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public int readI8() throws IOException
+    {
+        return (byte)this.read();
+    }
+
+    @Override
+    public int readU8() throws IOException
+    {
+        return this.read();
+    }
+
+    @Override
+    public int readI16() throws IOException
+    {
+        return this.bb.getShort(this.take(2));
+    }
+
+    @Override
+    public int readU16() throws IOException
+    {
+        return this.bb.getShort(this.take(2)) & 0xffff;
+    }
+
+    @Override
+    public int readI24() throws IOException
+    {
+        return (this.readU24() << 8) >> 8;
+    }
+
+    @Override
+    public int readU24() throws IOException
+    {
+        final int p = this.take(3);
+        final byte[] b = this.buffer;
+        if (this.bigEndian) return ((b[p] & 255) << 16) | ((b[p + 1] & 255) << 8) | (b[p + 2] & 255);
+        return (b[p] & 255) | ((b[p + 1] & 255) << 8) | ((b[p + 2] & 255) << 16);
+    }
+
+    @Override
+    public int readI32() throws IOException
+    {
+        return this.bb.getInt(this.take(4));
+    }
+
+    @Override
+    public long readU32() throws IOException
+    {
+        return this.bb.getInt(this.take(4)) & 0xffffffffL;
+    }
+
+    @Override
+    public long readI64() throws IOException
+    {
+        return this.bb.getLong(this.take(8));
+    }
+
+    @Override
+    public float readFloat() throws IOException
+    {
+        return this.bb.getFloat(this.take(4));
+    }
+
+    @Override
+    public double readDouble() throws IOException
+    {
+        return this.bb.getDouble(this.take(8));
+    }
+
+    @Override
+    public void readI16s(final short[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final int n = Math.min(len - done, (this.limit - this.position) >> 1);
+            if (n == 0)
+            {
+                this.take(2);
+                this.position -= 2;
+                continue;
+            }
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 2)
+                b[i] = this.bb.getShort(p);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void readI32s(final int[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final int n = Math.min(len - done, (this.limit - this.position) >> 2);
+            if (n == 0)
+            {
+                this.take(4);
+                this.position -= 4;
+                continue;
+            }
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 4)
+                b[i] = this.bb.getInt(p);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void readI64s(final long[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final int n = Math.min(len - done, (this.limit - this.position) >> 3);
+            if (n == 0)
+            {
+                this.take(8);
+                this.position -= 8;
+                continue;
+            }
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 8)
+                b[i] = this.bb.getLong(p);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void readFloats(final float[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final int n = Math.min(len - done, (this.limit - this.position) >> 2);
+            if (n == 0)
+            {
+                this.take(4);
+                this.position -= 4;
+                continue;
+            }
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 4)
+                b[i] = this.bb.getFloat(p);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void readDoubles(final double[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final int n = Math.min(len - done, (this.limit - this.position) >> 3);
+            if (n == 0)
+            {
+                this.take(8);
+                this.position -= 8;
+                continue;
+            }
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 8)
+                b[i] = this.bb.getDouble(p);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    private String readStringN(final int length, final Charset charset) throws IOException
+    {
+        if (length <= this.buffer.length)
+        {
+            if (this.limit - this.position < length && !this.fill(length))
+            {
+                throw new EOFException("Unexpected end of stream while reading string, expected " + length + ", got " + this.limit + " bytes");
+            }
+            final String ret = new String(this.buffer, this.position, length, charset);
+            this.position += length;
+            return ret;
+        }
+        final byte[] bytes = new byte[length];
+        this.readFully(bytes, 0, length);
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String readString8() throws IOException
+    {
+        final int len = this.readU8();
+        if (len < 0) throw new EOFException();
+        return this.readStringN(len, UTF_8);
+    }
+
+    @Override
+    public String readString16() throws IOException
+    {
+        return this.readStringN(this.readU16(), UTF_8);
+    }
+
+    @Override
+    public String readString32() throws IOException
+    {
+        return this.readStringN(this.readI32(), UTF_8);
+    }
+
+    @Override
+    public String readString(final int length, final int padding, final String charsetName) throws IOException
+    {
+        final byte[] bytes = new byte[length];
+        this.readFully(bytes, 0, length);
+        int n = length - 1;
+        while (n >= 0 && bytes[n] == padding)
+            n--;
+        return new String(bytes, 0, n + 1, charsetName);
+    }
+
+    @Override
+    public String readString(final int length, final int padding) throws IOException
+    {
+        return this.readString(length, padding, "UTF-8");
+    }
+
+    @Override
+    public String readString(final int length) throws IOException
+    {
+        return this.readString(length, 0, "UTF-8");
+    }
+
+    @Override
+    public ByteOrder getByteOrder()
+    {
+        return this.byteOrder;
+    }
+}
@@ -18,7 +18,9 @@ package com.github.rjeschke.neetutils.io;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.HashMap;
 
 /**
  *
@@ -27,6 +29,9 @@ import java.nio.ByteOrder;
  */
 public abstract class NOutputStream extends FilterOutputStream
 {
+    /** String dictionary for {@link #writeStringRef(String)}. */
+    private HashMap<String, Integer> strings = null;
+
     protected NOutputStream(final OutputStream out)
     {
         super(out);
@@ -38,6 +43,39 @@ public abstract class NOutputStream extends FilterOutputStream
         return new NOutputStreamLE(in);
     }
 
+    /**
+     * Creates a buffered stream which encodes values into an internal buffer
+     * instead of writing each byte to {@code out}.
+     *
+     * @param out
+     *            The stream to write to.
+     * @param byteOrder
+     *            The byte order.
+     * @return The stream.
+     * @see NOutputStreamBuffered
+     */
+    public static NOutputStream buffered(final OutputStream out, final ByteOrder byteOrder)
+    {
+        return new NOutputStreamBuffered(out, byteOrder);
+    }
+
+    /**
+     * Creates a buffered stream which writes behind on a background thread, so
+     * encoding overlaps with writing to {@code out}. Data is only guaranteed to
+     * be written after {@code flush()} or {@code close()}.
+     *
+     * @param out
+     *            The stream to write to.
+     * @param byteOrder
+     *            The byte order.
+     * @return The stream.
+     * @see WriteBehindOutputStream
+     */
+    public static NOutputStream writeBehind(final OutputStream out, final ByteOrder byteOrder)
+    {
+        return new NOutputStreamBuffered(new WriteBehindOutputStream(out), byteOrder, 8192);
+    }
+
     public abstract void write8(final int value) throws IOException;
 
     public abstract void write16(final int value) throws IOException;
@@ -65,4 +103,191 @@ public abstract class NOutputStream extends FilterOutputStream
     public abstract void writeString32(final String value) throws IOException;
 
     public abstract ByteOrder getByteOrder();
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        this.out.write(b, off, len);
+    }
+
+    public void write16s(final short[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 2);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 1);
+            bb.clear();
+            bb.asShortBuffer().put(b, off + done, n);
+            this.write(bb.array(), 0, n << 1);
+            done += n;
+        }
+    }
+
+    public void write32s(final int[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 4);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 2);
+            bb.clear();
+            bb.asIntBuffer().put(b, off + done, n);
+            this.write(bb.array(), 0, n << 2);
+            done += n;
+        }
+    }
+
+    public void write64s(final long[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 8);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 3);
+            bb.clear();
+            bb.asLongBuffer().put(b, off + done, n);
+            this.write(bb.array(), 0, n << 3);
+            done += n;
+        }
+    }
+
+    public void writeFloats(final float[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 4);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 2);
+            bb.clear();
+            bb.asFloatBuffer().put(b, off + done, n);
+            this.write(bb.array(), 0, n << 2);
+            done += n;
+        }
+    }
+
+    public void writeDoubles(final double[] b, final int off, final int len) throws IOException
+    {
+        final ByteBuffer bb = this.bulkBuffer(len, 8);
+        for (int done = 0; done < len;)
+        {
+            final int n = Math.min(len - done, bb.capacity() >> 3);
+            bb.clear();
+            bb.asDoubleBuffer().put(b, off + done, n);
+            this.write(bb.array(), 0, n << 3);
+            done += n;
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint, see
+     * {@link BEIO#writeVarInt(OutputStream, int)}.
+     */
+    public void writeVarInt(final int value) throws IOException
+    {
+        int v = value;
+        while ((v & ~0x7f) != 0)
+        {
+            this.write8((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        this.write8(v);
+    }
+
+    public void writeVarLong(final long value) throws IOException
+    {
+        long v = value;
+        while ((v & ~0x7fL) != 0)
+        {
+            this.write8((int)(v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        this.write8((int)v);
+    }
+
+    /**
+     * Writes a signed value as zigzag encoded varint.
+     */
+    public void writeZigZagInt(final int value) throws IOException
+    {
+        this.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeZigZagLong(final long value) throws IOException
+    {
+        this.writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a UTF-8 string with a varint length prefix.
+     */
+    public void writeVarString(final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        this.writeVarInt(bytes.length);
+        this.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a string using a dictionary shared by all calls: the first
+     * occurrence of a string is written as <code>0</code> followed by the
+     * string, later occurrences only as a varint reference. Good for repeated
+     * keys or names. The dictionary grows until {@link #resetStringRefs()} is
+     * called, read with {@link NInputStream#readStringRef()}.
+     */
+    public void writeStringRef(final String value) throws IOException
+    {
+        if (this.strings == null) this.strings = new HashMap<>();
+        final Integer ref = this.strings.get(value);
+        if (ref != null)
+        {
+            this.writeVarInt(ref.intValue());
+        }
+        else
+        {
+            this.write8(0);
+            this.writeVarString(value);
+            this.strings.put(value, Integer.valueOf(this.strings.size() + 1));
+        }
+    }
+
+    /**
+     * Clears the string dictionary, the reader must do the same at the same
+     * position.
+     */
+    public void resetStringRefs()
+    {
+        this.strings = null;
+    }
+
+    /**
+     * Writes the differences between consecutive values (the first one to
+     * <code>0</code>) as zigzag varints. Sorted or slowly changing values,
+     * like offsets or timestamps, take one or two bytes each. The length is
+     * not written.
+     */
+    public void writeDeltas(final int[] b, final int off, final int len) throws IOException
+    {
+        int prev = 0;
+        for (int i = off; i < off + len; i++)
+        {
+            this.writeZigZagInt(b[i] - prev);
+            prev = b[i];
+        }
+    }
+
+    public void writeDeltas(final long[] b, final int off, final int len) throws IOException
+    {
+        long prev = 0;
+        for (int i = off; i < off + len; i++)
+        {
+            this.writeZigZagLong(b[i] - prev);
+            prev = b[i];
+        }
+    }
+
+    /**
+     * Creates a scratch buffer for bulk writes of {@code len} elements of
+     * {@code size} bytes.
+     */
+    private ByteBuffer bulkBuffer(final int len, final int size)
+    {
+        return ByteBuffer.wrap(new byte[Math.max(size, (int)Math.min((long)len * size, 8192))]).order(this.getByteOrder());
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Buffered {@code NOutputStream} for both byte orders.
+ *
+ * <p>
+ * Encodes values into an internal buffer which is written to the underlying
+ * stream when full, on {@link #flush()} and on {@link #close()}.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class NOutputStreamBuffered extends NOutputStream
+{
+    public final static int  DEFAULT_BUFFER_SIZE = 65536;
+
+    private final ByteOrder  byteOrder;
+    private final boolean    bigEndian;
+    private final byte[]     buffer;
+    private final ByteBuffer bb;
+    private int              position            = 0;
+
+    public NOutputStreamBuffered(final OutputStream out, final ByteOrder byteOrder)
+    {
+        this(out, byteOrder, DEFAULT_BUFFER_SIZE);
+    }
+
+    public NOutputStreamBuffered(final OutputStream out, final ByteOrder byteOrder, final int bufferSize)
+    {
+        super(out);
+        this.byteOrder = byteOrder;
+        this.bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+        this.bb = ByteBuffer.wrap(this.buffer).order(byteOrder);
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (this.position > 0)
+        {
+            this.out.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+
+    /**
+     * Ensures room for {@code n} (at most 8) bytes and returns the current
+     * position, advancing it by {@code n}.
+     */
+    private int take(final int n) throws IOException
+    {
+        if (this.buffer.length - this.position < n) this.flushBuffer();
+        final int p = this.position;
+        this.position = p + n;
+        return p;
+    }
+
+    @Override
+    public void write(final int b) throws IOException
+    {
+        if (this.position == this.buffer.length) this.flushBuffer();
+        this.buffer[this.position++] = (byte)b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (len >= this.buffer.length)
+        {
+            this.flushBuffer();
+            this.out.write(b, off, len);
+            return;
+        }
+        if (this.buffer.length - this.position < len) this.flushBuffer();
+        System.arraycopy(b, off, this.buffer, this.position, len);
+        this.position += len;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        this.flushBuffer();
+        this.out.flush();
+    }
+
+    @Override
+    public void write8(final int value) throws IOException
+    {
+        this.write(value);
+    }
+
+    @Override
+    public void write16(final int value) throws IOException
+    {
+        this.bb.putShort(this.take(2), (short)value);
+    }
+
+    @Override
+    public void write24(final int value) throws IOException
+    {
+        final int p = this.take(3);
+        final byte[] b = this.buffer;
+        if (this.bigEndian)
+        {
+            b[p] = (byte)(value >> 16);
+            b[p + 1] = (byte)(value >> 8);
+            b[p + 2] = (byte)value;
+        }
+        else
+        {
+            b[p] = (byte)value;
+            b[p + 1] = (byte)(value >> 8);
+            b[p + 2] = (byte)(value >> 16);
+        }
+    }
+
+    @Override
+    public void write32(final int value) throws IOException
+    {
+        this.bb.putInt(this.take(4), value);
+    }
+
+    @Override
+    public void write64(final long value) throws IOException
+    {
+        this.bb.putLong(this.take(8), value);
+    }
+
+    @Override
+    public void writeFloat(final float value) throws IOException
+    {
+        this.bb.putFloat(this.take(4), value);
+    }
+
+    @Override
+    public void writeDouble(final double value) throws IOException
+    {
+        this.bb.putDouble(this.take(8), value);
+    }
+
+    @Override
+    public void write16s(final short[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            if (this.buffer.length - this.position < 2) this.flushBuffer();
+            final int n = Math.min(len - done, (this.buffer.length - this.position) >> 1);
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 2)
+                this.bb.putShort(p, b[i]);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void write32s(final int[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            if (this.buffer.length - this.position < 4) this.flushBuffer();
+            final int n = Math.min(len - done, (this.buffer.length - this.position) >> 2);
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 4)
+                this.bb.putInt(p, b[i]);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void write64s(final long[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            if (this.buffer.length - this.position < 8) this.flushBuffer();
+            final int n = Math.min(len - done, (this.buffer.length - this.position) >> 3);
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 8)
+                this.bb.putLong(p, b[i]);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeFloats(final float[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            if (this.buffer.length - this.position < 4) this.flushBuffer();
+            final int n = Math.min(len - done, (this.buffer.length - this.position) >> 2);
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 4)
+                this.bb.putFloat(p, b[i]);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeDoubles(final double[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            if (this.buffer.length - this.position < 8) this.flushBuffer();
+            final int n = Math.min(len - done, (this.buffer.length - this.position) >> 3);
+            int p = this.position;
+            for (int i = off + done, end = i + n; i < end; i++, p += 8)
+                this.bb.putDouble(p, b[i]);
+            this.position = p;
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeString(final String value, final int length, final int padding, final String charsetName) throws IOException
+    {
+        BEIO.writeString(this, value, length, padding, charsetName);
+    }
+
+    @Override
+    public void writeString(final String value, final int length, final int padding) throws IOException
+    {
+        BEIO.writeString(this, value, length, padding);
+    }
+
+    @Override
+    public void writeString(final String value, final int length) throws IOException
+    {
+        BEIO.writeString(this, value, length, 0);
+    }
+
+    @Override
+    public void writeString8(final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        if (bytes.length > 255) throw new IOException("String too long (" + bytes.length + ")");
+        this.write8(bytes.length);
+        this.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void writeString16(final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        if (bytes.length > 65535) throw new IOException("String too long (" + bytes.length + ")");
+        this.write16(bytes.length);
+        this.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void writeString32(final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes("UTF-8");
+        this.write32(bytes.length);
+        this.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public ByteOrder getByteOrder()
+    {
+        return this.byteOrder;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * {@code InputStream} which reads ahead on a background thread.
+ *
+ * <p>
+ * A daemon thread reads the wrapped stream into a fixed number of buffers, so
+ * reading (and decoding) on the caller's thread overlaps with the IO. IO
+ * errors are rethrown to the caller once all data read before the error was
+ * consumed. Not thread safe, use one reader thread.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class ReadAheadInputStream extends InputStream
+{
+    public final static int                 DEFAULT_BUFFER_SIZE  = 65536;
+    public final static int                 DEFAULT_BUFFER_COUNT = 4;
+    /** End of stream marker. */
+    private final static Block              END                  = new Block(0);
+
+    private final InputStream               in;
+    private final ArrayBlockingQueue<Block> full;
+    private final ArrayBlockingQueue<Block> empty;
+    private final Thread                    thread;
+    private volatile IOException            error                = null;
+    private volatile boolean                closed               = false;
+    private Block                           current              = null;
+    private int                             position             = 0;
+    private boolean                         eof                  = false;
+
+    public ReadAheadInputStream(final InputStream in)
+    {
+        this(in, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param in
+     *            The stream to read from, closed by {@link #close()}.
+     * @param bufferSize
+     *            Size of a single buffer.
+     * @param bufferCount
+     *            Number of buffers, at least 2.
+     */
+    public ReadAheadInputStream(final InputStream in, final int bufferSize, final int bufferCount)
+    {
+        if (bufferCount < 2) throw new IllegalArgumentException("Need at least 2 buffers");
+        this.in = in;
+        // + 1 for END
+        this.full = new ArrayBlockingQueue<>(bufferCount + 1);
+        this.empty = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++)
+            this.empty.add(new Block(bufferSize));
+        this.thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ReadAheadInputStream.this.readLoop();
+            }
+        }, "neetutils-read-ahead");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void readLoop()
+    {
+        try
+        {
+            for (;;)
+            {
+                final Block b = this.empty.take();
+                int r;
+                try
+                {
+                    do
+                    {
+                        r = this.in.read(b.data, 0, b.data.length);
+                    }
+                    while (r == 0);
+                }
+                catch (final IOException e)
+                {
+                    this.error = e;
+                    r = -1;
+                }
+                if (r < 0)
+                {
+                    this.full.put(END);
+                    return;
+                }
+                b.length = r;
+                this.full.put(b);
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            // closed
+        }
+    }
+
+    /**
+     * Makes sure there are bytes in {@code current}.
+     *
+     * @return <code>false</code> at the end of the stream.
+     */
+    private boolean next() throws IOException
+    {
+        if (this.closed) throw new IOException("Stream closed");
+        if (this.current != null && this.position < this.current.length) return true;
+        if (this.eof) return false;
+        if (this.current != null)
+        {
+            this.empty.add(this.current);
+            this.current = null;
+        }
+        final Block b;
+        try
+        {
+            b = this.full.take();
+        }
+        catch (final InterruptedException e)
+        {
+            throw new InterruptedIOException();
+        }
+        if (b == END)
+        {
+            this.eof = true;
+            if (this.error != null) throw this.error;
+            return false;
+        }
+        this.current = b;
+        this.position = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!this.next()) return -1;
+        return this.current.data[this.position++] & 255;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (len == 0) return 0;
+        int done = 0;
+        while (done < len)
+        {
+            // Only block for the first byte
+            if (done > 0 && this.position == this.current.length && this.full.isEmpty()) break;
+            if (!this.next()) break;
+            final int n = Math.min(len - done, this.current.length - this.position);
+            System.arraycopy(this.current.data, this.position, b, off + done, n);
+            this.position += n;
+            done += n;
+        }
+        return done == 0 ? -1 : done;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException
+    {
+        long done = 0;
+        while (done < n && this.next())
+        {
+            final int k = (int)Math.min(n - done, this.current.length - this.position);
+            this.position += k;
+            done += k;
+        }
+        return done;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return this.current != null ? this.current.length - this.position : 0;
+    }
+
+    /**
+     * Stops the background thread and closes the wrapped stream. Does not wait
+     * for the thread, closing the stream unblocks a read in progress which
+     * ignores the interrupt (sockets, pipes).
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed) return;
+        this.closed = true;
+        this.thread.interrupt();
+        this.in.close();
+    }
+
+    private final static class Block
+    {
+        final byte[] data;
+        int          length;
+
+        Block(final int size)
+        {
+            this.data = new byte[size];
+        }
+    }
+}
@@ -17,41 +17,70 @@ package com.github.rjeschke.neetutils.io;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import com.github.rjeschke.neetutils.WrappedCheckedException;
 import com.github.rjeschke.neetutils.iterables.AbstractXIterable;
+import com.github.rjeschke.neetutils.iterables.Iterables;
+import com.github.rjeschke.neetutils.iterables.XIterable;
+import com.github.rjeschke.neetutils.lists.IntCursor;
 import com.github.rjeschke.neetutils.math.Numbers;
 
 /**
+ * Single pass iteration over the characters of a {@code Reader}.
+ *
+ * <p>
+ * Reads blocks into an internal buffer. Besides the boxing
+ * {@code XIterable<Character>} view there is a non-boxing {@link #cursor()} and
+ * a view over whole chunks, {@link #chunks()}. All views share the same
+ * position in the reader. The reader is closed when its end is reached.
+ * </p>
  *
  * @author René Jeschke (rene_jeschke@yahoo.de)
  *
  */
 public class ReaderIterator extends AbstractXIterable<Character> implements AutoCloseable
 {
-    final Reader     in;
-    boolean          closed        = false;
-    volatile boolean iteratorInUse = false;
-    int              current;
+    private final static int BUFFER_SIZE   = 8192;
+    final Reader             in;
+    char[]                   buffer;
+    int                      position      = 0;
+    int                      limit         = 0;
+    boolean                  closed        = false;
+    volatile boolean         iteratorInUse = false;
+    int                      current;
 
     public ReaderIterator(final Reader in)
     {
         this.in = in;
+        this.buffer = new char[BUFFER_SIZE];
         this.current = this.read();
     }
 
     int read()
     {
+        if (this.position < this.limit) return this.current = this.buffer[this.position++];
         if (this.closed) return this.current = -1;
         try
         {
-            this.current = this.in.read();
-            if (this.current == -1)
+            int r;
+            do
+            {
+                r = this.in.read(this.buffer, 0, this.buffer.length);
+            }
+            while (r == 0);
+            if (r == -1)
             {
-                this.in.close();
-                this.closed = true;
+                this.current = -1;
+                this.close();
+            }
+            else
+            {
+                this.position = 1;
+                this.limit = r;
+                this.current = this.buffer[0];
             }
         }
         catch (final IOException e)
@@ -59,8 +88,7 @@ public class ReaderIterator extends AbstractXIterable<Character> implements Auto
             this.current = -1;
             try
             {
-                this.in.close();
-                this.closed = true;
+                this.close();
             }
             catch (final IOException e1)
             {
@@ -77,6 +105,50 @@ public class ReaderIterator extends AbstractXIterable<Character> implements Auto
         return new StreamIterator(this);
     }
 
+    /**
+     * Gets a non-boxing cursor over the remaining characters.
+     *
+     * @return The cursor.
+     */
+    public IntCursor cursor()
+    {
+        return new IntCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return ReaderIterator.this.current != -1;
+            }
+
+            @Override
+            public int next()
+            {
+                if (!this.hasNext()) throw new NoSuchElementException("Trying to read past end of stream");
+                final int ret = ReaderIterator.this.current;
+                ReaderIterator.this.read();
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Gets a view over the remaining characters in chunks of up to the buffer
+     * size. Each chunk is a new array, so chunks may be kept.
+     *
+     * @return The chunks.
+     */
+    public XIterable<char[]> chunks()
+    {
+        return Iterables.asXIterable(new Iterable<char[]>()
+        {
+            @Override
+            public Iterator<char[]> iterator()
+            {
+                return new ChunkIterator(ReaderIterator.this);
+            }
+        });
+    }
+
     private class StreamIterator implements Iterator<Character>
     {
         final ReaderIterator ri;
@@ -104,15 +176,54 @@ public class ReaderIterator extends AbstractXIterable<Character> implements Auto
         @Override
         public void remove()
         {
-            throw new UnsupportedOperationException("Can not remove characters from an InputStream");
+            throw new UnsupportedOperationException("Can not remove characters from a Reader");
+        }
+    }
+
+    private static class ChunkIterator implements Iterator<char[]>
+    {
+        final ReaderIterator ri;
+
+        public ChunkIterator(final ReaderIterator ri)
+        {
+            this.ri = ri;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.ri.current != -1;
+        }
+
+        @Override
+        public char[] next()
+        {
+            if (!this.hasNext()) throw new NoSuchElementException("Trying to read past end of stream");
+            final ReaderIterator ri = this.ri;
+            // 'current' is buffer[position - 1]
+            final char[] ret = Arrays.copyOfRange(ri.buffer, ri.position - 1, ri.limit);
+            ri.position = ri.limit;
+            ri.read();
+            return ret;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Can not remove characters from a Reader");
         }
     }
 
     @Override
     public void close() throws IOException
     {
-        this.in.close();
-        this.closed = true;
         this.current = -1;
+        if (!this.closed)
+        {
+            this.closed = true;
+            this.position = this.limit = 0;
+            this.buffer = null;
+        }
+        this.in.close();
     }
 }
@@ -154,4 +154,24 @@ public final class Streams
     {
         return new BufferedOutputStream(new FileOutputStream(file));
     }
+
+    /**
+     * Opens a file for reading with read-ahead on a background thread.
+     *
+     * @see ReadAheadInputStream
+     */
+    public final static ReadAheadInputStream newReadAheadInputStream(final File file) throws IOException
+    {
+        return new ReadAheadInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * Opens a file for writing with write-behind on a background thread.
+     *
+     * @see WriteBehindOutputStream
+     */
+    public final static WriteBehindOutputStream newWriteBehindOutputStream(final File file) throws IOException
+    {
+        return new WriteBehindOutputStream(new FileOutputStream(file));
+    }
 }
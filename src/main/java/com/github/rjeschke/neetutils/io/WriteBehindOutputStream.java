@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * {@code OutputStream} which writes behind on a background thread.
+ *
+ * <p>
+ * Data is collected in a fixed number of buffers, full buffers are written to
+ * the wrapped stream by a daemon thread, so producing (and encoding) data on
+ * the caller's thread overlaps with the IO. {@link #flush()} waits until all
+ * data is written. IO errors of the background thread are rethrown by the next
+ * call. Not thread safe, use one writer thread.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class WriteBehindOutputStream extends OutputStream
+{
+    public final static int                 DEFAULT_BUFFER_SIZE  = 65536;
+    public final static int                 DEFAULT_BUFFER_COUNT = 4;
+
+    private final OutputStream              out;
+    private final ArrayBlockingQueue<Block> full;
+    private final ArrayBlockingQueue<Block> empty;
+    private final Thread                    thread;
+    /** Lock for {@code written}. */
+    private final Object                    lock                 = new Object();
+    private volatile IOException            error                = null;
+    private long                            written              = 0;
+    private long                            submitted            = 0;
+    private boolean                         closed               = false;
+    private Block                           current              = null;
+
+    public WriteBehindOutputStream(final OutputStream out)
+    {
+        this(out, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *            The stream to write to, closed by {@link #close()}.
+     * @param bufferSize
+     *            Size of a single buffer.
+     * @param bufferCount
+     *            Number of buffers, at least 2.
+     */
+    public WriteBehindOutputStream(final OutputStream out, final int bufferSize, final int bufferCount)
+    {
+        if (bufferCount < 2) throw new IllegalArgumentException("Need at least 2 buffers");
+        this.out = out;
+        this.full = new ArrayBlockingQueue<>(bufferCount);
+        this.empty = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++)
+            this.empty.add(new Block(bufferSize));
+        this.thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                WriteBehindOutputStream.this.writeLoop();
+            }
+        }, "neetutils-write-behind");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void writeLoop()
+    {
+        try
+        {
+            for (;;)
+            {
+                final Block b = this.full.take();
+                if (this.error == null)
+                {
+                    try
+                    {
+                        this.out.write(b.data, 0, b.length);
+                    }
+                    catch (final IOException e)
+                    {
+                        this.error = e;
+                    }
+                }
+                b.length = 0;
+                this.empty.put(b);
+                synchronized (this.lock)
+                {
+                    this.written++;
+                    this.lock.notifyAll();
+                }
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            // closed
+        }
+    }
+
+    private void check() throws IOException
+    {
+        if (this.closed) throw new IOException("Stream closed");
+        // New instance per call, the error may be reported more than once
+        if (this.error != null) throw new IOException("Write behind failed", this.error);
+    }
+
+    /**
+     * Gets a buffer with free space.
+     */
+    private Block block() throws IOException
+    {
+        if (this.current != null && this.current.length < this.current.data.length) return this.current;
+        this.check();
+        if (this.current != null) this.submit();
+        try
+        {
+            this.current = this.empty.take();
+        }
+        catch (final InterruptedException e)
+        {
+            throw new InterruptedIOException();
+        }
+        return this.current;
+    }
+
+    private void submit() throws IOException
+    {
+        try
+        {
+            this.full.put(this.current);
+        }
+        catch (final InterruptedException e)
+        {
+            throw new InterruptedIOException();
+        }
+        this.current = null;
+        this.submitted++;
+    }
+
+    @Override
+    public void write(final int b) throws IOException
+    {
+        final Block block = this.block();
+        block.data[block.length++] = (byte)b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        int done = 0;
+        while (done < len)
+        {
+            final Block block = this.block();
+            final int n = Math.min(len - done, block.data.length - block.length);
+            System.arraycopy(b, off + done, block.data, block.length, n);
+            block.length += n;
+            done += n;
+        }
+    }
+
+    /**
+     * Waits until all data is written and flushes the wrapped stream.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        this.check();
+        if (this.current != null && this.current.length > 0) this.submit();
+        synchronized (this.lock)
+        {
+            while (this.written < this.submitted)
+            {
+                try
+                {
+                    this.lock.wait();
+                }
+                catch (final InterruptedException e)
+                {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+        this.check();
+        this.out.flush();
+    }
+
+    /**
+     * Flushes, stops the background thread and closes the wrapped stream.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed) return;
+        try
+        {
+            this.flush();
+        }
+        finally
+        {
+            // No join, closing the stream unblocks a write in progress
+            this.closed = true;
+            try
+            {
+                this.out.close();
+            }
+            finally
+            {
+                this.thread.interrupt();
+            }
+        }
+    }
+
+    private final static class Block
+    {
+        final byte[] data;
+        int          length;
+
+        Block(final int size)
+        {
+            this.data = new byte[size];
+        }
+    }
+}
@@ -184,6 +184,12 @@ public abstract class AbstractXIterable<A> implements XIterable<A>
         return Iterables.asString(this);
     }
 
+    @Override
+    public ParallelXIterable<A> parallel()
+    {
+        return Iterables.parallel(this);
+    }
+
     @Override
     public String toString()
     {
@@ -26,7 +26,7 @@ import java.util.Iterator;
  */
 public class ArrayIterator<A> extends AbstractXIterable<A>
 {
-    private final A[] values;
+    final A[] values;
 
     @SafeVarargs
     public ArrayIterator(final boolean defensiveCopy, final A... values)
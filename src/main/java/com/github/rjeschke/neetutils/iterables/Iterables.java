@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import com.github.rjeschke.neetutils.collections.Tuple;
@@ -50,6 +51,50 @@ public final class Iterables
         return new XIterableGeneric<>(iterable);
     }
 
+    /**
+     * Creates a parallel {@code XIterable} over the given iterable. Random
+     * access lists and arrays are used as they are, other iterables are
+     * copied into a list.
+     *
+     * @param iterable
+     *            The iterable.
+     * @return The parallel {@code XIterable}.
+     */
+    public final static <A> ParallelXIterable<A> parallel(final Iterable<A> iterable)
+    {
+        if (iterable instanceof ParallelXIterable)
+        {
+            return (ParallelXIterable<A>)iterable;
+        }
+        if (iterable instanceof ArrayIterator)
+        {
+            return new ParallelXIterable<>(((ArrayIterator<A>)iterable).values, null);
+        }
+        if (iterable instanceof XIterableGeneric)
+        {
+            return parallel(((XIterableGeneric<A>)iterable).iterable);
+        }
+        if (iterable instanceof List && iterable instanceof RandomAccess)
+        {
+            return new ParallelXIterable<>(null, (List<A>)iterable);
+        }
+        return new ParallelXIterable<>(null, asList(iterable));
+    }
+
+    /**
+     * Creates a parallel {@code XIterable} over the given array, which is not
+     * copied.
+     *
+     * @param values
+     *            The values.
+     * @return The parallel {@code XIterable}.
+     */
+    @SafeVarargs
+    public final static <A> ParallelXIterable<A> parallel(final A... values)
+    {
+        return new ParallelXIterable<>(values, null);
+    }
+
     public final static <A> String asString(final Iterable<A> iterable)
     {
         final StringBuilder sb = new StringBuilder();
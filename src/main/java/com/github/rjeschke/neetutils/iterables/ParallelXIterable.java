@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.iterables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import com.github.rjeschke.neetutils.collections.Tuple;
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
+import com.github.rjeschke.neetutils.fn.FnCombine;
+import com.github.rjeschke.neetutils.fn.FnFoldStep;
+import com.github.rjeschke.neetutils.fn.FnMapping;
+import com.github.rjeschke.neetutils.fn.FnPredicate;
+
+/**
+ * Parallel {@code XIterable} over a sized source (a {@code RandomAccess} list
+ * or an array), see {@link XIterable#parallel()}.
+ *
+ * <p>
+ * {@code map}, {@code filter}, {@code zip} and {@code zipWith} (with a sized
+ * argument and no preceding filter) are fused into a single per-element
+ * function. The terminal operations {@code reduce}, {@code asList},
+ * {@code asSet} and {@code consume} split the source into chunks and run them
+ * on the shared pool of {@link Parallel}. Partial results are combined in
+ * encounter order, unless {@link #unordered()} was requested.
+ * </p>
+ *
+ * <p>
+ * Iteration and all other operations (e.g. {@code take}, {@code collect}) are
+ * sequential and lazy. Functions used with a parallel {@code XIterable} must
+ * be thread safe, fold steps must be associative.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ *
+ * @param <A>
+ */
+public class ParallelXIterable<A> extends AbstractXIterable<A>
+{
+    /** Default minimum number of source elements per chunk. */
+    public final static int     DEFAULT_MIN_CHUNK_SIZE = 1 << 10;
+
+    private final static byte   MAP                    = 0;
+    private final static byte   FILTER                 = 1;
+    private final static byte   ZIP                    = 2;
+    /** Marks filtered out elements. */
+    private final static Object SKIP                   = new Object();
+
+    private final Object[]      array;
+    private final List<?>       list;
+    private final Object[]      stages;
+    private final byte[]        kinds;
+    private final boolean       ordered;
+    private final int           minChunkSize;
+
+    ParallelXIterable(final Object[] array, final List<?> list)
+    {
+        this(array, list, new Object[0], new byte[0], true, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    private ParallelXIterable(final Object[] array, final List<?> list, final Object[] stages, final byte[] kinds, final boolean ordered,
+            final int minChunkSize)
+    {
+        this.array = array;
+        this.list = list;
+        this.stages = stages;
+        this.kinds = kinds;
+        this.ordered = ordered;
+        this.minChunkSize = minChunkSize;
+    }
+
+    private <B> ParallelXIterable<B> with(final Object stage, final byte kind)
+    {
+        final Object[] s = Arrays.copyOf(this.stages, this.stages.length + 1);
+        final byte[] k = Arrays.copyOf(this.kinds, this.kinds.length + 1);
+        s[this.stages.length] = stage;
+        k[this.kinds.length] = kind;
+        return new ParallelXIterable<>(this.array, this.list, s, k, this.ordered, this.minChunkSize);
+    }
+
+    /**
+     * Returns a parallel {@code XIterable} combining partial results in
+     * completion order, fold steps and combiners must then be commutative.
+     *
+     * @return The parallel {@code XIterable}.
+     */
+    public ParallelXIterable<A> unordered()
+    {
+        return new ParallelXIterable<>(this.array, this.list, this.stages, this.kinds, false, this.minChunkSize);
+    }
+
+    /**
+     * Returns a parallel {@code XIterable} combining partial results in
+     * encounter order (the default).
+     *
+     * @return The parallel {@code XIterable}.
+     */
+    public ParallelXIterable<A> ordered()
+    {
+        return new ParallelXIterable<>(this.array, this.list, this.stages, this.kinds, true, this.minChunkSize);
+    }
+
+    /**
+     * Returns a parallel {@code XIterable} using the given minimum chunk size.
+     * Use small values for expensive per-element functions.
+     *
+     * @param size
+     *            Minimum number of source elements per chunk.
+     * @return The parallel {@code XIterable}.
+     */
+    public ParallelXIterable<A> minChunkSize(final int size)
+    {
+        return new ParallelXIterable<>(this.array, this.list, this.stages, this.kinds, this.ordered, Math.max(1, size));
+    }
+
+    @Override
+    public ParallelXIterable<A> parallel()
+    {
+        return this;
+    }
+
+    @Override
+    public ParallelXIterable<A> filter(final FnPredicate<? super A> predicate)
+    {
+        return this.with(predicate, FILTER);
+    }
+
+    @Override
+    public <B> ParallelXIterable<B> map(final FnMapping<? super A, B> mapping)
+    {
+        return this.with(mapping, MAP);
+    }
+
+    @Override
+    public <B> XIterable<Tuple<A, B>> zip(final Iterable<B> iterable)
+    {
+        return this.zipWith(iterable, new FnCombine<A, B, Tuple<A, B>>()
+        {
+            @Override
+            public Tuple<A, B> applyCombine(final A a, final B b)
+            {
+                return Tuple.of(a, b);
+            }
+        });
+    }
+
+    /**
+     * Zips this {@code XIterable} with the given one. This is a parallel
+     * stage if {@code iterable} is sized and there's no preceding filter,
+     * otherwise a sequential {@code XIterable} is returned.
+     */
+    @Override
+    public <B, C> XIterable<C> zipWith(final Iterable<B> iterable, final FnCombine<? super A, ? super B, C> combine)
+    {
+        boolean filtered = false;
+        for (final byte k : this.kinds)
+            filtered |= k == FILTER;
+        if (!filtered)
+        {
+            if (iterable instanceof ArrayIterator) return this.with(new Zip(((ArrayIterator<?>)iterable).values, null, combine), ZIP);
+            if (iterable instanceof List && iterable instanceof RandomAccess) return this.with(new Zip(null, (List<?>)iterable, combine), ZIP);
+        }
+        return super.zipWith(iterable, combine);
+    }
+
+    @Override
+    public A reduce(final FnFoldStep<? super A, A> foldStep)
+    {
+        final Object[] partials = new Object[1];
+        final boolean[] hasPartial = new boolean[1];
+        this.evaluate(new ChunkTask<Object>()
+        {
+            @Override
+            public Object init()
+            {
+                return SKIP;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object accept(final Object state, final Object a)
+            {
+                return state == SKIP ? a : foldStep.applyFoldStep((A)a, (A)state);
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public void combine(final Object state)
+            {
+                if (state == SKIP) return;
+                partials[0] = hasPartial[0] ? foldStep.applyFoldStep((A)state, (A)partials[0]) : state;
+                hasPartial[0] = true;
+            }
+        });
+        @SuppressWarnings("unchecked")
+        final A ret = (A)partials[0];
+        return ret;
+    }
+
+    /**
+     * Parallel reduction.
+     *
+     * @param foldStep
+     *            The fold step.
+     * @param identity
+     *            The initial value for each chunk, must be an identity for
+     *            {@code combine}.
+     * @param combine
+     *            Combines two partial results.
+     * @return The result.
+     */
+    public <B> B reduce(final FnFoldStep<? super A, B> foldStep, final B identity, final FnCombine<B, B, B> combine)
+    {
+        final List<B> result = new ArrayList<>(1);
+        result.add(identity);
+        this.evaluate(new ChunkTask<B>()
+        {
+            @Override
+            public B init()
+            {
+                return identity;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public B accept(final B state, final Object a)
+            {
+                return foldStep.applyFoldStep((A)a, state);
+            }
+
+            @Override
+            public void combine(final B state)
+            {
+                result.set(0, combine.applyCombine(result.get(0), state));
+            }
+        });
+        return result.get(0);
+    }
+
+    @Override
+    public List<A> asList()
+    {
+        return this.asList(new ArrayList<A>());
+    }
+
+    @Override
+    public List<A> asList(final List<A> list)
+    {
+        this.evaluate(new ChunkTask<List<A>>()
+        {
+            @Override
+            public List<A> init()
+            {
+                return new ArrayList<>();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<A> accept(final List<A> state, final Object a)
+            {
+                state.add((A)a);
+                return state;
+            }
+
+            @Override
+            public void combine(final List<A> state)
+            {
+                list.addAll(state);
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public Set<A> asSet(final Set<A> set)
+    {
+        set.addAll(this.asList());
+        return set;
+    }
+
+    /**
+     * Runs all stages for all elements, in parallel.
+     */
+    @Override
+    public void consume()
+    {
+        this.evaluate(new ChunkTask<Object>()
+        {
+            @Override
+            public Object init()
+            {
+                return null;
+            }
+
+            @Override
+            public Object accept(final Object state, final Object a)
+            {
+                return null;
+            }
+
+            @Override
+            public void combine(final Object state)
+            {
+                // meh!
+            }
+        });
+    }
+
+    @Override
+    public Iterator<A> iterator()
+    {
+        return new XIterator<>(this);
+    }
+
+    private int length()
+    {
+        int len = this.array != null ? this.array.length : this.list.size();
+        for (int i = 0; i < this.kinds.length; i++)
+        {
+            if (this.kinds[i] == ZIP) len = Math.min(len, ((Zip)this.stages[i]).length());
+        }
+        return len;
+    }
+
+    /**
+     * Applies all stages to the element at {@code index}.
+     *
+     * @return The result or {@code SKIP} if it was filtered out.
+     */
+    @SuppressWarnings("unchecked")
+    private Object apply(final int index)
+    {
+        Object v = this.array != null ? this.array[index] : this.list.get(index);
+        for (int s = 0; s < this.kinds.length; s++)
+        {
+            switch (this.kinds[s])
+            {
+            case MAP:
+                v = ((FnMapping<Object, Object>)this.stages[s]).applyMapping(v);
+                break;
+            case FILTER:
+                if (!((FnPredicate<Object>)this.stages[s]).applyPredicate(v)) return SKIP;
+                break;
+            default:
+                final Zip z = (Zip)this.stages[s];
+                v = z.combine.applyCombine(v, z.get(index));
+                break;
+            }
+        }
+        return v;
+    }
+
+    private <S> void evaluate(final ChunkTask<S> task)
+    {
+        final int length = this.length();
+        final int chunks = Parallel.chunkCount(length, this.minChunkSize);
+        final Object[] states = new Object[chunks];
+        final boolean[] done = new boolean[chunks];
+        final int[] next = new int[1];
+        Parallel.forEachChunk(0, length, chunks, new ParallelRange()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void apply(final int chunk, final int from, final int to)
+            {
+                S state = task.init();
+                for (int i = from; i < to; i++)
+                {
+                    final Object v = ParallelXIterable.this.apply(i);
+                    if (v != SKIP) state = task.accept(state, v);
+                }
+                synchronized (states)
+                {
+                    if (!ParallelXIterable.this.ordered)
+                    {
+                        task.combine(state);
+                        return;
+                    }
+                    states[chunk] = state;
+                    done[chunk] = true;
+                    // Combine all finished chunks in order
+                    while (next[0] < chunks && done[next[0]])
+                    {
+                        task.combine((S)states[next[0]]);
+                        states[next[0]++] = null;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Per chunk evaluation callbacks, {@code combine} is called serialized.
+     */
+    private interface ChunkTask<S>
+    {
+        public S init();
+
+        public S accept(S state, Object a);
+
+        public void combine(S state);
+    }
+
+    private final static class Zip
+    {
+        final Object[]                          array;
+        final List<?>                           list;
+        final FnCombine<Object, Object, Object> combine;
+
+        @SuppressWarnings("unchecked")
+        public Zip(final Object[] array, final List<?> list, final FnCombine<?, ?, ?> combine)
+        {
+            this.array = array;
+            this.list = list;
+            this.combine = (FnCombine<Object, Object, Object>)combine;
+        }
+
+        int length()
+        {
+            return this.array != null ? this.array.length : this.list.size();
+        }
+
+        Object get(final int index)
+        {
+            return this.array != null ? this.array[index] : this.list.get(index);
+        }
+    }
+
+    private final static class XIterator<A> implements Iterator<A>
+    {
+        private final ParallelXIterable<A> iterable;
+        private final int                  length;
+        private int                        index      = 0;
+        private Object                     element    = null;
+        private boolean                    hasElement = false;
+
+        public XIterator(final ParallelXIterable<A> iterable)
+        {
+            this.iterable = iterable;
+            this.length = iterable.length();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (!this.hasElement && this.index < this.length)
+            {
+                final Object v = this.iterable.apply(this.index++);
+                if (v != SKIP)
+                {
+                    this.element = v;
+                    this.hasElement = true;
+                }
+            }
+            return this.hasElement;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public A next()
+        {
+            if (!this.hasNext()) throw new NoSuchElementException();
+            this.hasElement = false;
+            return (A)this.element;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new IllegalStateException("XIterators are read-only.");
+        }
+    }
+}
@@ -83,4 +83,14 @@ public interface XIterable<A> extends Iterable<A>
     public <B> Map<? super B, ? super A> asMapVK(Iterable<? extends B> iterable, Map<? super B, ? super A> list);
 
     public String asString();
+
+    /**
+     * Returns a parallel version of this {@code XIterable}. Sized sources
+     * (RandomAccess lists, arrays) are used directly, other sources are
+     * buffered into a list first.
+     *
+     * @return The parallel {@code XIterable}.
+     * @see ParallelXIterable
+     */
+    public ParallelXIterable<A> parallel();
 }
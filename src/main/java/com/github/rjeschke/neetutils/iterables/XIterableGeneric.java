@@ -25,7 +25,7 @@ import java.util.Iterator;
  */
 class XIterableGeneric<A> extends AbstractXIterable<A>
 {
-    private final Iterable<A> iterable;
+    final Iterable<A> iterable;
 
     public XIterableGeneric(final Iterable<A> iterable)
     {
@@ -16,6 +16,7 @@
 package com.github.rjeschke.neetutils.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
@@ -23,6 +24,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +34,7 @@ import java.util.Map.Entry;
 import com.github.rjeschke.neetutils.Classes;
 import com.github.rjeschke.neetutils.Objects;
 import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.collections.Tuple;
 import com.github.rjeschke.neetutils.json.JSONTokenizer.Token;
 import com.github.rjeschke.neetutils.json.annotations.JSONCatchAllField;
 import com.github.rjeschke.neetutils.json.annotations.JSONForceField;
@@ -39,6 +42,10 @@ import com.github.rjeschke.neetutils.json.annotations.JSONGenericType;
 import com.github.rjeschke.neetutils.json.annotations.JSONIgnoreField;
 import com.github.rjeschke.neetutils.json.annotations.JSONObject;
 import com.github.rjeschke.neetutils.json.annotations.JSONReadOnlyField;
+import com.github.rjeschke.neetutils.lists.DoubleList;
+import com.github.rjeschke.neetutils.lists.FloatList;
+import com.github.rjeschke.neetutils.lists.IntList;
+import com.github.rjeschke.neetutils.lists.LongList;
 
 /**
  * JSON encoder, decoder and utilities.
@@ -123,12 +130,64 @@ public final class JSON
      *             if an IO or processing error occurred.
      */
     public final static Object decode(final Reader reader) throws IOException
+    {
+        return decode(reader, null);
+    }
+
+    /**
+     * Decodes the given JSON string into an object using compact, shape sharing
+     * maps for JSON objects.
+     *
+     * @param string
+     *            The string to decode.
+     * @return The decoded object.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     * @see JSONShapes
+     */
+    public final static Object decodeCompact(final String string) throws IOException
+    {
+        try (final StringReader reader = new StringReader(string))
+        {
+            return decode(reader, new JSONShapes());
+        }
+    }
+
+    /**
+     * Decodes a JSON string read from the given {@link Reader} into an object
+     * using compact, shape sharing maps for JSON objects.
+     *
+     * @param reader
+     *            The reader to read from.
+     * @return The decoded object.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     * @see JSONShapes
+     */
+    public final static Object decodeCompact(final Reader reader) throws IOException
+    {
+        return decode(reader, new JSONShapes());
+    }
+
+    /**
+     * Decodes a JSON string read from the given {@link Reader} into an object.
+     *
+     * @param reader
+     *            The reader to read from.
+     * @param shapes
+     *            The shapes to use for JSON objects, {@code null} for plain
+     *            {@code HashMap}s.
+     * @return The decoded object.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     */
+    public final static Object decode(final Reader reader, final JSONShapes shapes) throws IOException
     {
         final JSONTokenizer tokenizer = new JSONTokenizer(reader);
 
         tokenizer.next();
 
-        final Object ret = readObject(tokenizer);
+        final Object ret = readObject(tokenizer, shapes);
 
         if (tokenizer.getCurrentToken() != Token.EOF) throw new IOException("Multiple JSON values in string" + tokenizer.getPosition());
 
@@ -167,11 +226,16 @@ public final class JSON
      */
     public final static <T extends JSONMarshallable> T decodeInto(final Reader reader, final T object) throws IOException
     {
-        final Object obj = decode(reader);
+        final JSONTokenizer tokenizer = new JSONTokenizer(reader);
+
+        if (tokenizer.next() != Token.OBJECT_OPEN) throw new IOException("JSON value ist not of type 'object'.");
+        tokenizer.next();
+
+        readInto(tokenizer, object);
 
-        if (!Objects.isMap(obj)) throw new IOException("JSON value ist not of type 'object'.");
+        if (tokenizer.getCurrentToken() != Token.EOF) throw new IOException("Multiple JSON values in string" + tokenizer.getPosition());
 
-        return decodeInto(asMap(obj), object);
+        return object;
     }
 
     /**
@@ -187,7 +251,6 @@ public final class JSON
      */
     public final static <T extends JSONMarshallable> T decodeInto(final Map<String, Object> jsonObject, final T object) throws IOException
     {
-        Field catchAll = null;
         final Map<String, Object> rest = new HashMap<>();
 
         final Class<?> toClass = object.getClass();
@@ -201,158 +264,468 @@ public final class JSON
             ignoreNull = v.ignoreNull();
         }
 
-        for (final Field f : toClass.getDeclaredFields())
+        for (final Entry<String, Object> e : jsonObject.entrySet())
         {
-            if (f.isAnnotationPresent(JSONCatchAllField.class))
+            final Field f = getDeclaredField(toClass, e.getKey());
+
+            if (f == null)
             {
-                catchAll = f;
-                break;
+                rest.put(e.getKey(), e.getValue());
+                continue;
+            }
+
+            if (ignoreNull && e.getValue() == null) continue;
+
+            if (isFieldVisible(f, vis, false))
+            {
+                decodeField(toClass, object, f, e.getKey(), e.getValue());
+            }
+            else
+            {
+                rest.put(e.getKey(), e.getValue());
             }
         }
 
-        for (final Entry<String, Object> e : jsonObject.entrySet())
+        setCatchAll(toClass, object, rest);
+
+        return object;
+    }
+
+    /**
+     * Parses a JSON object directly into a {@link JSONMarshallable}.
+     *
+     * <p>
+     * Numeric arrays assigned to {@code int[]}, {@code long[]},
+     * {@code float[]}, {@code double[]}, {@link IntList}, {@link LongList},
+     * {@link FloatList} or {@link DoubleList} fields and nested
+     * JSONMarshallables are read without creating intermediate objects.
+     * </p>
+     *
+     * @param tokenizer
+     *            The tokenizer, positioned after the opening '{'.
+     * @param object
+     *            The JSONMarshallable.
+     * @return The decoded {@code object}.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     */
+    public final static <T extends JSONMarshallable> T readInto(final JSONTokenizer tokenizer, final T object) throws IOException
+    {
+        final Map<String, Object> rest = new HashMap<>();
+
+        final Class<?> toClass = object.getClass();
+
+        boolean ignoreNull = true;
+        int vis = JSONObjectVisibility.PUBLIC;
+        if (toClass.isAnnotationPresent(JSONObject.class))
         {
-            try
+            final JSONObject v = toClass.getAnnotation(JSONObject.class);
+            vis = v.visibility();
+            ignoreNull = v.ignoreNull();
+        }
+
+        for (;;)
+        {
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.OBJECT_CLOSE)
             {
-                final Field f = toClass.getDeclaredField(e.getKey());
+                tokenizer.next();
+                break;
+            }
 
-                if (ignoreNull && e.getValue() == null) continue;
+            if (t != Token.STRING) throw new IOException("Object key expected" + tokenizer.getPosition());
+            final String key = tokenizer.getStringValue();
+            if (Token.COLON != tokenizer.next()) throw new IOException("':' expected" + tokenizer.getPosition());
+            tokenizer.next();
+
+            final Field f = getDeclaredField(toClass, key);
+            final boolean visible = f != null && isFieldVisible(f, vis, false);
 
-                if (isFieldVisible(f, vis, false))
+            if (visible && tokenizer.getCurrentToken() == Token.ARRAY_OPEN && isPrimitiveArrayType(f.getType()))
+            {
+                tokenizer.next();
+                setFieldValue(toClass, object, f, key, readPrimitiveArray(tokenizer, f.getType()));
+            }
+            else if (visible && tokenizer.getCurrentToken() == Token.OBJECT_OPEN && !f.getType().isEnum()
+                    && Classes.implementsInterface(f.getType(), JSONMarshallable.class))
+            {
+                tokenizer.next();
+                setFieldValue(toClass, object, f, key, readInto(tokenizer, newJSONInstance(f.getType())));
+            }
+            else
+            {
+                final Object value = readObject(tokenizer);
+                if (f == null)
+                {
+                    rest.put(key, value);
+                }
+                else if (!ignoreNull || value != null)
                 {
-                    final boolean isAccessible = f.isAccessible();
-                    f.setAccessible(true);
-                    if (f.getType().isEnum())
+                    if (visible)
                     {
-                        Method m;
-                        try
-                        {
-                            m = f.getType().getMethod("fromJSONString", String.class);
-                        }
-                        catch (final NoSuchMethodException ex)
-                        {
-                            m = f.getType().getMethod("valueOf", String.class);
-                        }
-                        f.set(object, m.invoke(null, e.getValue().toString()));
+                        decodeField(toClass, object, f, key, value);
                     }
                     else
                     {
-                        if (Classes.implementsInterface(f.getType(), JSONMarshallable.class))
+                        rest.put(key, value);
+                    }
+                }
+            }
+
+            if (tokenizer.getCurrentToken() != Token.COMMA && tokenizer.getCurrentToken() != Token.OBJECT_CLOSE)
+            {
+                throw new IOException("',' or '}' expected" + tokenizer.getPosition());
+            }
+            if (tokenizer.getCurrentToken() == Token.COMMA) tokenizer.next();
+        }
+
+        setCatchAll(toClass, object, rest);
+
+        return object;
+    }
+
+    private final static Field getDeclaredField(final Class<?> toClass, final String name) throws IOException
+    {
+        try
+        {
+            return toClass.getDeclaredField(name);
+        }
+        catch (final NoSuchFieldException ex)
+        {
+            return null;
+        }
+        catch (final SecurityException ex)
+        {
+            throw new IOException("Marshalling for type " + toClass + " failed for '" + name + "'", ex);
+        }
+    }
+
+    private final static void setCatchAll(final Class<?> toClass, final Object object, final Map<String, Object> rest) throws IOException
+    {
+        Field catchAll = null;
+        for (final Field f : toClass.getDeclaredFields())
+        {
+            if (f.isAnnotationPresent(JSONCatchAllField.class))
+            {
+                catchAll = f;
+                break;
+            }
+        }
+
+        if (catchAll != null)
+        {
+            setFieldValue(toClass, object, catchAll, catchAll.getName(), rest);
+        }
+    }
+
+    private final static void setFieldValue(final Class<?> toClass, final Object object, final Field f, final String key, final Object value)
+            throws IOException
+    {
+        try
+        {
+            final boolean isAccessible = f.isAccessible();
+            f.setAccessible(true);
+            f.set(object, value);
+            f.setAccessible(isAccessible);
+        }
+        catch (IllegalArgumentException | IllegalAccessException | SecurityException ex)
+        {
+            throw new IOException("Marshalling for type " + toClass + " failed for '" + key + "'", ex);
+        }
+    }
+
+    private final static void decodeField(final Class<?> toClass, final Object object, final Field f, final String key, final Object value)
+            throws IOException
+    {
+        try
+        {
+            final boolean isAccessible = f.isAccessible();
+            f.setAccessible(true);
+            if (f.getType().isEnum())
+            {
+                Method m;
+                try
+                {
+                    m = f.getType().getMethod("fromJSONString", String.class);
+                }
+                catch (final NoSuchMethodException ex)
+                {
+                    m = f.getType().getMethod("valueOf", String.class);
+                }
+                f.set(object, m.invoke(null, value.toString()));
+            }
+            else
+            {
+                if (Classes.implementsInterface(f.getType(), JSONMarshallable.class))
+                {
+                    f.set(object, decodeInto(asMap(value), newJSONInstance(f.getType())));
+                }
+                else if (isPrimitiveArrayType(f.getType()) && value instanceof List)
+                {
+                    f.set(object, toPrimitiveArray(asArray(value), f.getType()));
+                }
+                else
+                {
+                    if (f.isAnnotationPresent(JSONGenericType.class))
+                    {
+                        final Class<?> t = f.getAnnotation(JSONGenericType.class).type();
+
+                        if (Classes.implementsInterface(f.getType(), Map.class))
                         {
-                            f.set(object, decodeInto(asMap(e.getValue()), newJSONInstance(f.getType())));
+                            final Map<String, Object> in = asMap(value);
+                            final Map<String, Object> out = new HashMap<>();
+
+                            if (t.isEnum())
+                            {
+                                Method m;
+                                try
+                                {
+                                    m = t.getMethod("fromJSONString", String.class);
+                                }
+                                catch (final NoSuchMethodException ex)
+                                {
+                                    m = t.getMethod("valueOf", String.class);
+                                }
+                                for (final Entry<String, Object> e2 : in.entrySet())
+                                {
+                                    out.put(e2.getKey(), m.invoke(null, e2.getValue().toString()));
+                                }
+                            }
+                            else
+                            {
+                                for (final Entry<String, Object> e2 : in.entrySet())
+                                {
+                                    out.put(e2.getKey(), decodeInto(asMap(e2.getValue()), newJSONInstance(t)));
+                                }
+                            }
+
+                            f.set(object, out);
                         }
-                        else
+                        else if (Classes.implementsInterface(f.getType(), List.class))
                         {
-                            if (f.isAnnotationPresent(JSONGenericType.class))
-                            {
-                                final Class<?> t = f.getAnnotation(JSONGenericType.class).type();
+                            final List<Object> in = asArray(value);
+                            final List<Object> out = Colls.list();
 
-                                if (Classes.implementsInterface(f.getType(), Map.class))
+                            if (t.isEnum())
+                            {
+                                Method m;
+                                try
                                 {
-                                    final Map<String, Object> in = asMap(e.getValue());
-                                    final Map<String, Object> out = new HashMap<>();
-
-                                    if (t.isEnum())
-                                    {
-                                        Method m;
-                                        try
-                                        {
-                                            m = t.getMethod("fromJSONString", String.class);
-                                        }
-                                        catch (final NoSuchMethodException ex)
-                                        {
-                                            m = t.getMethod("valueOf", String.class);
-                                        }
-                                        for (final Entry<String, Object> e2 : in.entrySet())
-                                        {
-                                            out.put(e2.getKey(), m.invoke(null, e2.getValue().toString()));
-                                        }
-                                    }
-                                    else
-                                    {
-                                        for (final Entry<String, Object> e2 : in.entrySet())
-                                        {
-                                            out.put(e2.getKey(), decodeInto(asMap(e2.getValue()), newJSONInstance(t)));
-                                        }
-                                    }
-
-                                    f.set(object, out);
+                                    m = t.getMethod("fromJSONString", String.class);
                                 }
-                                else if (Classes.implementsInterface(f.getType(), List.class))
+                                catch (final NoSuchMethodException ex)
                                 {
-                                    final List<Object> in = asArray(e.getValue());
-                                    final List<Object> out = Colls.list();
-
-                                    if (t.isEnum())
-                                    {
-                                        Method m;
-                                        try
-                                        {
-                                            m = t.getMethod("fromJSONString", String.class);
-                                        }
-                                        catch (final NoSuchMethodException ex)
-                                        {
-                                            m = t.getMethod("valueOf", String.class);
-                                        }
-                                        for (final Object o : in)
-                                        {
-                                            out.add(m.invoke(null, o.toString()));
-                                        }
-                                    }
-                                    else
-                                    {
-                                        for (final Object o : in)
-                                        {
-                                            out.add(decodeInto(asMap(o), newJSONInstance(t)));
-                                        }
-                                    }
-                                    f.set(object, out);
+                                    m = t.getMethod("valueOf", String.class);
                                 }
-                                else
+                                for (final Object o : in)
                                 {
-                                    throw new IOException("Marshalling for type " + toClass + " failed for '" + e.getKey() + "'");
+                                    out.add(m.invoke(null, o.toString()));
                                 }
                             }
                             else
                             {
-                                f.set(object, e.getValue());
+                                for (final Object o : in)
+                                {
+                                    out.add(decodeInto(asMap(o), newJSONInstance(t)));
+                                }
                             }
+                            f.set(object, out);
+                        }
+                        else
+                        {
+                            throw new IOException("Marshalling for type " + toClass + " failed for '" + key + "'");
                         }
                     }
-                    f.setAccessible(isAccessible);
-                }
-                else
-                {
-                    rest.put(e.getKey(), e.getValue());
+                    else
+                    {
+                        f.set(object, value);
+                    }
                 }
             }
-            catch (final NoSuchFieldException ex)
+            f.setAccessible(isAccessible);
+        }
+        catch (IllegalArgumentException | IllegalAccessException | ClassCastException | InvocationTargetException | SecurityException
+                | NoSuchMethodException ex)
+        {
+            throw new IOException("Marshalling for type " + toClass + " failed for '" + key + "'", ex);
+        }
+    }
+
+    private final static boolean isPrimitiveArrayType(final Class<?> type)
+    {
+        return type == int[].class || type == long[].class || type == float[].class || type == double[].class || type == IntList.class
+                || type == LongList.class || type == FloatList.class || type == DoubleList.class;
+    }
+
+    private final static Object toPrimitiveArray(final List<Object> in, final Class<?> type)
+    {
+        final int size = in.size();
+        if (type == int[].class || type == IntList.class)
+        {
+            final int[] a = new int[size];
+            for (int i = 0; i < size; i++)
+                a[i] = ((Number)in.get(i)).intValue();
+            return type == int[].class ? a : IntList.fromArray(a);
+        }
+        if (type == long[].class || type == LongList.class)
+        {
+            final long[] a = new long[size];
+            for (int i = 0; i < size; i++)
+                a[i] = ((Number)in.get(i)).longValue();
+            return type == long[].class ? a : LongList.fromArray(a);
+        }
+        if (type == float[].class || type == FloatList.class)
+        {
+            final float[] a = new float[size];
+            for (int i = 0; i < size; i++)
+                a[i] = ((Number)in.get(i)).floatValue();
+            return type == float[].class ? a : FloatList.fromArray(a);
+        }
+        final double[] a = new double[size];
+        for (int i = 0; i < size; i++)
+            a[i] = ((Number)in.get(i)).doubleValue();
+        return type == double[].class ? a : DoubleList.fromArray(a);
+    }
+
+    private final static Object readPrimitiveArray(final JSONTokenizer tokenizer, final Class<?> type) throws IOException
+    {
+        if (type == int[].class) return readIntList(tokenizer).toArray();
+        if (type == IntList.class) return readIntList(tokenizer);
+        if (type == long[].class) return readLongList(tokenizer).toArray();
+        if (type == LongList.class) return readLongList(tokenizer);
+        if (type == float[].class) return readFloatList(tokenizer).toArray();
+        if (type == FloatList.class) return readFloatList(tokenizer);
+        if (type == double[].class) return readDoubleList(tokenizer).toArray();
+        return readDoubleList(tokenizer);
+    }
+
+    private final static void nextArrayElement(final JSONTokenizer tokenizer) throws IOException
+    {
+        final Token t = tokenizer.next();
+        if (t != Token.COMMA && t != Token.ARRAY_CLOSE) throw new IOException("',' or ']' expected" + tokenizer.getPosition());
+        if (t == Token.COMMA) tokenizer.next();
+    }
+
+    /**
+     * Parses a JSON array of integers without boxing.
+     *
+     * @param tokenizer
+     *            The tokenizer, positioned after the opening '['.
+     * @return The parsed array.
+     * @throws IOException
+     *             if an IO or parsing error occurred or the array contains
+     *             non-integer values.
+     */
+    public final static IntList readIntList(final JSONTokenizer tokenizer) throws IOException
+    {
+        final IntList list = new IntList();
+        for (;;)
+        {
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.ARRAY_CLOSE)
             {
-                rest.put(e.getKey(), e.getValue());
+                tokenizer.next();
+                break;
             }
-            catch (IllegalArgumentException | IllegalAccessException | ClassCastException | InvocationTargetException | SecurityException
-                    | NoSuchMethodException ex)
+            if (t != Token.LONG) throw new IOException("Integer expected, got: " + t + "," + tokenizer.getPosition());
+            final long v = tokenizer.getLongValue();
+            if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) throw new IOException("Integer out of range: " + v + "," + tokenizer.getPosition());
+            list.add((int)v);
+            nextArrayElement(tokenizer);
+        }
+        return list;
+    }
+
+    /**
+     * Parses a JSON array of integers without boxing.
+     *
+     * @param tokenizer
+     *            The tokenizer, positioned after the opening '['.
+     * @return The parsed array.
+     * @throws IOException
+     *             if an IO or parsing error occurred or the array contains
+     *             non-integer values.
+     */
+    public final static LongList readLongList(final JSONTokenizer tokenizer) throws IOException
+    {
+        final LongList list = new LongList();
+        for (;;)
+        {
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.ARRAY_CLOSE)
             {
-                throw new IOException("Marshalling for type " + toClass + " failed for '" + e.getKey() + "'", ex);
+                tokenizer.next();
+                break;
             }
+            if (t != Token.LONG) throw new IOException("Integer expected, got: " + t + "," + tokenizer.getPosition());
+            list.add(tokenizer.getLongValue());
+            nextArrayElement(tokenizer);
         }
+        return list;
+    }
 
-        if (catchAll != null)
+    /**
+     * Parses a JSON array of numbers without boxing.
+     *
+     * @param tokenizer
+     *            The tokenizer, positioned after the opening '['.
+     * @return The parsed array.
+     * @throws IOException
+     *             if an IO or parsing error occurred or the array contains
+     *             non-numeric values.
+     */
+    public final static FloatList readFloatList(final JSONTokenizer tokenizer) throws IOException
+    {
+        final FloatList list = new FloatList();
+        for (;;)
         {
-            try
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.ARRAY_CLOSE)
             {
-                final boolean isAccessible = catchAll.isAccessible();
-                catchAll.setAccessible(true);
-                catchAll.set(object, rest);
-                catchAll.setAccessible(isAccessible);
+                tokenizer.next();
+                break;
             }
-            catch (IllegalArgumentException | IllegalAccessException ex)
+            if (t == Token.DOUBLE)
+                list.add((float)tokenizer.getDoubleValue());
+            else if (t == Token.LONG)
+                list.add(tokenizer.getLongValue());
+            else
+                throw new IOException("Number expected, got: " + t + "," + tokenizer.getPosition());
+            nextArrayElement(tokenizer);
+        }
+        return list;
+    }
+
+    /**
+     * Parses a JSON array of numbers without boxing.
+     *
+     * @param tokenizer
+     *            The tokenizer, positioned after the opening '['.
+     * @return The parsed array.
+     * @throws IOException
+     *             if an IO or parsing error occurred or the array contains
+     *             non-numeric values.
+     */
+    public final static DoubleList readDoubleList(final JSONTokenizer tokenizer) throws IOException
+    {
+        final DoubleList list = new DoubleList();
+        for (;;)
+        {
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.ARRAY_CLOSE)
             {
-                throw new IOException("Marshalling for type " + toClass + " failed for '" + catchAll.getName() + "'", ex);
+                tokenizer.next();
+                break;
             }
+            if (t == Token.DOUBLE)
+                list.add(tokenizer.getDoubleValue());
+            else if (t == Token.LONG)
+                list.add(tokenizer.getLongValue());
+            else
+                throw new IOException("Number expected, got: " + t + "," + tokenizer.getPosition());
+            nextArrayElement(tokenizer);
         }
-
-        return object;
+        return list;
     }
 
     /**
@@ -382,6 +755,26 @@ public final class JSON
         return sb;
     }
 
+    /**
+     * Encodes the given object as UTF-8 JSON into the given {@link OutputStream}
+     * using a {@link JSONWriter}. The stream is flushed but not closed.
+     *
+     * @param out
+     *            The OutputStream to write to.
+     * @param obj
+     *            The object to encode.
+     * @param pretty
+     *            Whether to beautify the output or not.
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    public final static void encode(final OutputStream out, final Object obj, final boolean pretty) throws IOException
+    {
+        final JSONWriter writer = new JSONWriter(out, pretty);
+        writer.writeObject(obj);
+        writer.release();
+    }
+
     /**
      * Returns the given object casted to {@code Map<String, Object>}.
      *
@@ -511,7 +904,7 @@ public final class JSON
         return (f.getModifiers() & Modifier.PROTECTED) != 0;
     }
 
-    private final static boolean isFieldVisible(final Field f, final int vis, final boolean read)
+    final static boolean isFieldVisible(final Field f, final int vis, final boolean read)
     {
         if (f.isAnnotationPresent(JSONIgnoreField.class)) return false;
         if (f.isAnnotationPresent(JSONForceField.class)) return true;
@@ -537,6 +930,22 @@ public final class JSON
      *             if an IO or parsing error occurred.
      */
     public final static List<Object> readArray(final JSONTokenizer tokenizer) throws IOException
+    {
+        return readArray(tokenizer, null);
+    }
+
+    /**
+     * Parses a JSON array.
+     *
+     * @param tokenizer
+     *            The tokenizer.
+     * @param shapes
+     *            The shapes to use for JSON objects, may be {@code null}.
+     * @return The parsed array as a {@code List}
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static List<Object> readArray(final JSONTokenizer tokenizer, final JSONShapes shapes) throws IOException
     {
         final List<Object> list = Colls.list();
 
@@ -551,7 +960,7 @@ public final class JSON
 
             if (t == Token.EOF) throw new IOException("Unexpected end of string for array" + tokenizer.getPosition());
 
-            list.add(readObject(tokenizer));
+            list.add(readObject(tokenizer, shapes));
 
             if (tokenizer.getCurrentToken() != Token.COMMA && tokenizer.getCurrentToken() != Token.ARRAY_CLOSE)
             {
@@ -574,6 +983,24 @@ public final class JSON
      */
     public final static Map<String, Object> readMap(final JSONTokenizer tokenizer) throws IOException
     {
+        return readMap(tokenizer, null);
+    }
+
+    /**
+     * Parses a JSON object.
+     *
+     * @param tokenizer
+     *            The tokenizer.
+     * @param shapes
+     *            The shapes to use, {@code null} for a plain {@code HashMap}.
+     * @return The parsed object as a {@code Map}
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static Map<String, Object> readMap(final JSONTokenizer tokenizer, final JSONShapes shapes) throws IOException
+    {
+        if (shapes != null) return readShapedMap(tokenizer, shapes);
+
         final Map<String, Object> map = new HashMap<>();
         for (;;)
         {
@@ -598,6 +1025,33 @@ public final class JSON
         return map;
     }
 
+    private final static Map<String, Object> readShapedMap(final JSONTokenizer tokenizer, final JSONShapes shapes) throws IOException
+    {
+        final List<String> keys = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        for (;;)
+        {
+            final Token t = tokenizer.getCurrentToken();
+            if (t == Token.OBJECT_CLOSE)
+            {
+                tokenizer.next();
+                break;
+            }
+
+            if (t != Token.STRING) throw new IOException("Object key expected" + tokenizer.getPosition());
+            keys.add(tokenizer.getStringValue());
+            if (Token.COLON != tokenizer.next()) throw new IOException("':' expected" + tokenizer.getPosition());
+            tokenizer.next();
+            values.add(readObject(tokenizer, shapes));
+            if (tokenizer.getCurrentToken() != Token.COMMA && tokenizer.getCurrentToken() != Token.OBJECT_CLOSE)
+            {
+                throw new IOException("',' or '}' expected" + tokenizer.getPosition());
+            }
+            if (tokenizer.getCurrentToken() == Token.COMMA) tokenizer.next();
+        }
+        return shapes.createMap(keys, values);
+    }
+
     /**
      * Parses a JSON value into a Java object.
      *
@@ -608,15 +1062,31 @@ public final class JSON
      *             * if an IO or parsing error occurred.
      */
     public final static Object readObject(final JSONTokenizer tokenizer) throws IOException
+    {
+        return readObject(tokenizer, null);
+    }
+
+    /**
+     * Parses a JSON value into a Java object.
+     *
+     * @param tokenizer
+     *            The tokenizer.
+     * @param shapes
+     *            The shapes to use for JSON objects, may be {@code null}.
+     * @return The parsed object.
+     * @throws IOException
+     *             * if an IO or parsing error occurred.
+     */
+    public final static Object readObject(final JSONTokenizer tokenizer, final JSONShapes shapes) throws IOException
     {
         switch (tokenizer.getCurrentToken())
         {
         case OBJECT_OPEN:
             tokenizer.next();
-            return readMap(tokenizer);
+            return readMap(tokenizer, shapes);
         case ARRAY_OPEN:
             tokenizer.next();
-            return readArray(tokenizer);
+            return readArray(tokenizer, shapes);
         case NULL:
             tokenizer.next();
             return null;
@@ -728,6 +1198,158 @@ public final class JSON
         sb.append(']');
     }
 
+    /**
+     * Writes a {@code int[]} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final int[] values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@code long[]} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final long[] values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@code float[]} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final float[] values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append((double)values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@code double[]} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final double[] values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@link IntList} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final IntList values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values.get(i));
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@link LongList} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final LongList values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values.get(i));
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@link FloatList} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final FloatList values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append((double)values.get(i));
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Writes a {@link DoubleList} as a JSON array.
+     *
+     * @param sb
+     *            {@code StringBuilder} to write to
+     * @param values
+     *            Values to write.
+     */
+    public final static void writeArray(final StringBuilder sb, final DoubleList values)
+    {
+        sb.append('[');
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(values.get(i));
+        }
+        sb.append(']');
+    }
+
     /**
      * Writes a {@code Map} as a JSON object.
      *
@@ -757,7 +1379,7 @@ public final class JSON
         sb.append('}');
     }
 
-    private final static boolean hasInterface(final Class<?> clazz, final Class<?> inter)
+    final static boolean hasInterface(final Class<?> clazz, final Class<?> inter)
     {
         if (clazz == null) return false;
         for (final Class<?> c : clazz.getInterfaces())
@@ -767,11 +1389,20 @@ public final class JSON
         return false;
     }
 
-    private final static void writeMarshallable(final StringBuilder sb, final Object obj)
+    /**
+     * Gets the names and values of all fields of a marshallable to write,
+     * walking up the class hierarchy as long as it is marshallable. Shared by
+     * all encoders.
+     *
+     * @param obj
+     *            The marshallable.
+     * @return The fields, in declaration order.
+     * @throws IllegalArgumentException
+     *             if a field could not be read
+     */
+    final static List<Tuple<String, Object>> marshallableFields(final Object obj)
     {
-        boolean second = false;
-        sb.append('{');
-
+        final List<Tuple<String, Object>> fields = new ArrayList<>();
         try
         {
             Class<?> clazz = obj.getClass();
@@ -794,21 +1425,11 @@ public final class JSON
 
                         final Object value = f.get(obj);
 
-                        if (value == null && ignoreNull) continue;
+                        f.setAccessible(isAccessible);
 
-                        if (second)
-                        {
-                            sb.append(',');
-                        }
-                        else
-                        {
-                            second = true;
-                        }
+                        if (value == null && ignoreNull) continue;
 
-                        writeString(sb, f.getName());
-                        sb.append(':');
-                        writeObject(sb, value);
-                        f.setAccessible(isAccessible);
+                        fields.add(Tuple.of(f.getName(), value));
                     }
                 }
 
@@ -820,6 +1441,29 @@ public final class JSON
         {
             throw new IllegalArgumentException("Failed to write marshallable of type: " + obj.getClass(), e);
         }
+        return fields;
+    }
+
+    private final static void writeMarshallable(final StringBuilder sb, final Object obj)
+    {
+        boolean second = false;
+        sb.append('{');
+
+        for (final Tuple<String, Object> f : marshallableFields(obj))
+        {
+            if (second)
+            {
+                sb.append(',');
+            }
+            else
+            {
+                second = true;
+            }
+
+            writeString(sb, f.a);
+            sb.append(':');
+            writeObject(sb, f.b);
+        }
 
         sb.append('}');
     }
@@ -858,6 +1502,38 @@ public final class JSON
         {
             sb.append(((Boolean)obj).booleanValue() ? "true" : "false");
         }
+        else if (obj instanceof int[])
+        {
+            writeArray(sb, (int[])obj);
+        }
+        else if (obj instanceof long[])
+        {
+            writeArray(sb, (long[])obj);
+        }
+        else if (obj instanceof float[])
+        {
+            writeArray(sb, (float[])obj);
+        }
+        else if (obj instanceof double[])
+        {
+            writeArray(sb, (double[])obj);
+        }
+        else if (obj instanceof IntList)
+        {
+            writeArray(sb, (IntList)obj);
+        }
+        else if (obj instanceof LongList)
+        {
+            writeArray(sb, (LongList)obj);
+        }
+        else if (obj instanceof FloatList)
+        {
+            writeArray(sb, (FloatList)obj);
+        }
+        else if (obj instanceof DoubleList)
+        {
+            writeArray(sb, (DoubleList)obj);
+        }
         else if (obj instanceof JSONEnum)
         {
             writeString(sb, ((JSONEnum)obj).toJSONString());
@@ -948,7 +1624,7 @@ public final class JSON
         }
     }
 
-    private final static <T extends JSONMarshallable> T newJSONInstance(final Class<?> clazz) throws IOException
+    final static <T extends JSONMarshallable> T newJSONInstance(final Class<?> clazz) throws IOException
     {
         try
         {
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.json;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.collections.Tuple;
+import com.github.rjeschke.neetutils.io.NInputStream;
+import com.github.rjeschke.neetutils.io.NOutputStream;
+import com.github.rjeschke.neetutils.lists.DoubleList;
+import com.github.rjeschke.neetutils.lists.FloatList;
+import com.github.rjeschke.neetutils.lists.IntList;
+import com.github.rjeschke.neetutils.lists.LongList;
+
+/**
+ * Compact binary encoding sharing the object model of {@link JSON}.
+ *
+ * <p>
+ * Integers are stored as zig-zag encoded varints, floating point values as raw
+ * IEEE values (in the byte order of the used stream) and object keys are
+ * stored only once per document using a string table. Decoding yields the
+ * same objects as {@link JSON#decode(String)} ({@code Map}, {@code List},
+ * {@code Long}, {@code Double}, {@code Boolean}, {@code String} and
+ * {@code null}), {@link JSONMarshallable}s are filled using
+ * {@link JSON#decodeInto(Map, JSONMarshallable)} so all JSON annotations apply.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class JSONBinary
+{
+    private final static Charset UTF8         = Charset.forName("UTF-8");
+    private final static int     MAGIC        = 0x424a;
+    private final static int     VERSION      = 1;
+
+    final static int             T_NULL       = 0;
+    final static int             T_FALSE      = 1;
+    final static int             T_TRUE       = 2;
+    final static int             T_LONG       = 3;
+    final static int             T_FLOAT      = 4;
+    final static int             T_DOUBLE     = 5;
+    final static int             T_STRING     = 6;
+    final static int             T_ARRAY      = 7;
+    final static int             T_OBJECT     = 8;
+
+    /** Object key marker: end of object. */
+    private final static int     K_END        = 0;
+    /** Object key marker: literal key follows, gets added to the string table. */
+    private final static int     K_LITERAL    = 1;
+    /** Object key marker: first string table reference. */
+    private final static int     K_REF_OFFSET = 2;
+
+    private JSONBinary()
+    {
+        // meh!
+    }
+
+    /**
+     * Encodes the given object.
+     *
+     * @param out
+     *            The stream to write to.
+     * @param obj
+     *            The object to encode.
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    public final static void encode(final NOutputStream out, final Object obj) throws IOException
+    {
+        out.write16(MAGIC);
+        out.write8(VERSION);
+        out.write8(out.getByteOrder() == ByteOrder.BIG_ENDIAN ? 0 : 1);
+        new Encoder(out).writeObject(obj);
+    }
+
+    /**
+     * Decodes an object.
+     *
+     * @param in
+     *            The stream to read from.
+     * @return The decoded object.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     */
+    public final static Object decode(final NInputStream in) throws IOException
+    {
+        if (in.readU16() != MAGIC) throw new IOException("Not a binary JSON document");
+        final int version = in.readU8();
+        if (version != VERSION) throw new IOException("Unsupported binary JSON version: " + version);
+        final ByteOrder order = in.readU8() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        if (order != in.getByteOrder()) throw new IOException("Byte order mismatch, document was written using " + order);
+        return new Decoder(in).readObject();
+    }
+
+    /**
+     * Decodes a single object into the given {@link JSONMarshallable}.
+     *
+     * @param in
+     *            The stream to read from.
+     * @param object
+     *            The JSONMarshallable.
+     * @return The decoded {@code object}.
+     * @throws IOException
+     *             if an IO or processing error occurred.
+     */
+    public final static <T extends JSONMarshallable> T decodeInto(final NInputStream in, final T object) throws IOException
+    {
+        final Object obj = decode(in);
+
+        if (!(obj instanceof Map)) throw new IOException("JSON value ist not of type 'object'.");
+
+        return JSON.decodeInto(JSON.asMap(obj), object);
+    }
+
+    final static int readVarInt(final NInputStream in) throws IOException
+    {
+        final long v = in.readVarLong();
+        if (v < 0 || v > Integer.MAX_VALUE) throw new IOException("Varint out of range: " + v);
+        return (int)v;
+    }
+
+    private final static class Encoder
+    {
+        private final NOutputStream        out;
+        private final Map<String, Integer> keys = new HashMap<>();
+
+        public Encoder(final NOutputStream out)
+        {
+            this.out = out;
+        }
+
+        private void writeString(final String value) throws IOException
+        {
+            final byte[] bytes = value.getBytes(UTF8);
+            this.out.writeVarLong(bytes.length);
+            this.out.write(bytes);
+        }
+
+        private void beginArray(final int size) throws IOException
+        {
+            this.out.write8(T_ARRAY);
+            this.out.writeVarLong(size);
+        }
+
+        private void writeLong(final long value) throws IOException
+        {
+            this.out.write8(T_LONG);
+            this.out.writeZigZagLong(value);
+        }
+
+        private void writeFloat(final float value) throws IOException
+        {
+            this.out.write8(T_FLOAT);
+            this.out.writeFloat(value);
+        }
+
+        private void writeDouble(final double value) throws IOException
+        {
+            this.out.write8(T_DOUBLE);
+            this.out.writeDouble(value);
+        }
+
+        private void writeKey(final String key) throws IOException
+        {
+            final Integer index = this.keys.get(key);
+            if (index != null)
+            {
+                this.out.writeVarLong(index.intValue() + K_REF_OFFSET);
+            }
+            else
+            {
+                this.keys.put(key, Integer.valueOf(this.keys.size()));
+                this.out.write8(K_LITERAL);
+                this.writeString(key);
+            }
+        }
+
+        public void writeObject(final Object obj) throws IOException
+        {
+            if (obj == null)
+            {
+                this.out.write8(T_NULL);
+            }
+            else if (obj instanceof JSONMarshallable)
+            {
+                this.writeMarshallable(obj);
+            }
+            else if (obj instanceof Map)
+            {
+                this.out.write8(T_OBJECT);
+                for (final Entry<?, ?> e : ((Map<?, ?>)obj).entrySet())
+                {
+                    this.writeKey(e.getKey().toString());
+                    this.writeObject(e.getValue());
+                }
+                this.out.write8(K_END);
+            }
+            else if (obj instanceof Collection)
+            {
+                final Collection<?> list = (Collection<?>)obj;
+                this.out.write8(T_ARRAY);
+                this.out.writeVarLong(list.size());
+                for (final Object o : list)
+                {
+                    this.writeObject(o);
+                }
+            }
+            else if (obj instanceof Number)
+            {
+                if (obj instanceof Double)
+                {
+                    this.writeDouble(((Double)obj).doubleValue());
+                }
+                else if (obj instanceof Float)
+                {
+                    this.writeFloat(((Float)obj).floatValue());
+                }
+                else
+                {
+                    this.writeLong(((Number)obj).longValue());
+                }
+            }
+            else if (obj instanceof Boolean)
+            {
+                this.out.write8(((Boolean)obj).booleanValue() ? T_TRUE : T_FALSE);
+            }
+            else if (obj instanceof int[])
+            {
+                final int[] a = (int[])obj;
+                this.beginArray(a.length);
+                for (int i = 0; i < a.length; i++)
+                    this.writeLong(a[i]);
+            }
+            else if (obj instanceof long[])
+            {
+                final long[] a = (long[])obj;
+                this.beginArray(a.length);
+                for (int i = 0; i < a.length; i++)
+                    this.writeLong(a[i]);
+            }
+            else if (obj instanceof float[])
+            {
+                final float[] a = (float[])obj;
+                this.beginArray(a.length);
+                for (int i = 0; i < a.length; i++)
+                    this.writeFloat(a[i]);
+            }
+            else if (obj instanceof double[])
+            {
+                final double[] a = (double[])obj;
+                this.beginArray(a.length);
+                for (int i = 0; i < a.length; i++)
+                    this.writeDouble(a[i]);
+            }
+            else if (obj instanceof IntList)
+            {
+                final IntList a = (IntList)obj;
+                this.beginArray(a.size());
+                for (int i = 0; i < a.size(); i++)
+                    this.writeLong(a.get(i));
+            }
+            else if (obj instanceof LongList)
+            {
+                final LongList a = (LongList)obj;
+                this.beginArray(a.size());
+                for (int i = 0; i < a.size(); i++)
+                    this.writeLong(a.get(i));
+            }
+            else if (obj instanceof FloatList)
+            {
+                final FloatList a = (FloatList)obj;
+                this.beginArray(a.size());
+                for (int i = 0; i < a.size(); i++)
+                    this.writeFloat(a.get(i));
+            }
+            else if (obj instanceof DoubleList)
+            {
+                final DoubleList a = (DoubleList)obj;
+                this.beginArray(a.size());
+                for (int i = 0; i < a.size(); i++)
+                    this.writeDouble(a.get(i));
+            }
+            else if (obj instanceof JSONEnum)
+            {
+                this.out.write8(T_STRING);
+                this.writeString(((JSONEnum)obj).toJSONString());
+            }
+            else
+            {
+                this.out.write8(T_STRING);
+                this.writeString(obj.toString());
+            }
+        }
+
+        private void writeMarshallable(final Object obj) throws IOException
+        {
+            this.out.write8(T_OBJECT);
+            for (final Tuple<String, Object> f : JSON.marshallableFields(obj))
+            {
+                this.writeKey(f.a);
+                this.writeObject(f.b);
+            }
+            this.out.write8(K_END);
+        }
+    }
+
+    private final static class Decoder
+    {
+        private final NInputStream in;
+        private final List<String> keys = new ArrayList<>();
+
+        public Decoder(final NInputStream in)
+        {
+            this.in = in;
+        }
+
+        private String readString() throws IOException
+        {
+            final int len = readVarInt(this.in);
+            final byte[] bytes = new byte[len];
+            final int r = this.in.read(bytes);
+            if (r != len) throw new IOException("Unexpected end of stream while reading string, expected " + len + ", got " + r + " bytes");
+            return new String(bytes, UTF8);
+        }
+
+        public Object readObject() throws IOException
+        {
+            final int type = this.in.readU8();
+            switch (type)
+            {
+            case T_NULL:
+                return null;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_LONG:
+            {
+                return Long.valueOf(this.in.readZigZagLong());
+            }
+            case T_FLOAT:
+                return Double.valueOf(this.in.readFloat());
+            case T_DOUBLE:
+                return Double.valueOf(this.in.readDouble());
+            case T_STRING:
+                return this.readString();
+            case T_ARRAY:
+            {
+                final int size = readVarInt(this.in);
+                final List<Object> list = Colls.list(Math.min(size, 65536));
+                for (int i = 0; i < size; i++)
+                {
+                    list.add(this.readObject());
+                }
+                return list;
+            }
+            case T_OBJECT:
+            {
+                final Map<String, Object> map = new HashMap<>();
+                for (;;)
+                {
+                    final int k = readVarInt(this.in);
+                    if (k == K_END) break;
+                    final String key;
+                    if (k == K_LITERAL)
+                    {
+                        key = this.readString();
+                        this.keys.add(key);
+                    }
+                    else
+                    {
+                        if (k - K_REF_OFFSET >= this.keys.size()) throw new IOException("Illegal key reference: " + k);
+                        key = this.keys.get(k - K_REF_OFFSET);
+                    }
+                    map.put(key, this.readObject());
+                }
+                return map;
+            }
+            case -1:
+                throw new IOException("Unexpected end of stream");
+            default:
+                throw new IOException("Unexpected type: " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import com.github.rjeschke.neetutils.Objects;
+import com.github.rjeschke.neetutils.collections.Colls;
+import com.github.rjeschke.neetutils.concurrent.MapWorker;
+import com.github.rjeschke.neetutils.concurrent.MapWorkerCallback;
+import com.github.rjeschke.neetutils.concurrent.MapWorkerPool;
+import com.github.rjeschke.neetutils.concurrent.WorkerStatus;
+
+/**
+ * Parallel JSON Lines (newline delimited JSON) reader and writer.
+ *
+ * <p>
+ * Input gets split into line aligned chunks (files get memory mapped) which are
+ * parsed in parallel on a {@link MapWorkerPool}. Records are delivered to a
+ * {@link JSONLinesCallback} on a single thread, either in input order or in
+ * completion order. The number of chunks in flight is limited to twice the
+ * number of threads, so reading blocks while the consumer lags behind.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class JSONLines
+{
+    /** Default chunk size. */
+    public final static int      DEFAULT_CHUNK_SIZE = 4 << 20;
+    /** Number of records per batch when writing. */
+    private final static int     WRITE_BATCH_SIZE   = 1024;
+    private final static Charset UTF8               = Charset.forName("UTF-8");
+
+    private JSONLines()
+    {
+        // meh!
+    }
+
+    /**
+     * Reads all records of the given file.
+     *
+     * @param file
+     *            The file.
+     * @param threads
+     *            Number of threads, values &lt; 1 use all available processors.
+     * @return The records in file order.
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static List<Object> readAll(final File file, final int threads) throws IOException
+    {
+        final List<Object> ret = Colls.list();
+        read(file, threads, true, new JSONLinesCallback<Object>()
+        {
+            @Override
+            public void record(final Object value)
+            {
+                ret.add(value);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Reads all records of the given file.
+     *
+     * @param file
+     *            The file.
+     * @param threads
+     *            Number of threads, values &lt; 1 use all available processors.
+     * @param ordered
+     *            {@code true} to deliver records in file order.
+     * @param callback
+     *            The record callback.
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static void read(final File file, final int threads, final boolean ordered, final JSONLinesCallback<Object> callback)
+            throws IOException
+    {
+        read(file, null, threads, ordered, callback);
+    }
+
+    /**
+     * Reads all records of the given file into new instances of the given
+     * {@link JSONMarshallable} type.
+     *
+     * @param file
+     *            The file.
+     * @param clazz
+     *            The record type, {@code null} for plain JSON objects.
+     * @param threads
+     *            Number of threads, values &lt; 1 use all available processors.
+     * @param ordered
+     *            {@code true} to deliver records in file order.
+     * @param callback
+     *            The record callback.
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static <T> void read(final File file, final Class<? extends JSONMarshallable> clazz, final int threads, final boolean ordered,
+            final JSONLinesCallback<T> callback) throws IOException
+    {
+        final Runner<ByteBuffer, List<T>> runner = new Runner<>(new ChunkParser<T>(clazz), threads, ordered, new RecordSink<>(callback));
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            long pos = 0;
+            int chunkSize = DEFAULT_CHUNK_SIZE;
+            while (pos < size && runner.isOk())
+            {
+                final long len = Math.min(chunkSize, size - pos);
+                final ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                int end = (int)len;
+                if (pos + len < size)
+                {
+                    end = lastLineEnd(buf, (int)len);
+                    if (end == 0)
+                    {
+                        // Line longer than chunk
+                        if (chunkSize == Integer.MAX_VALUE) throw new IOException("Line too long at offset " + pos);
+                        chunkSize = (int)Math.min(Integer.MAX_VALUE, chunkSize * 2L);
+                        continue;
+                    }
+                }
+                buf.limit(end);
+                runner.submit(buf);
+                pos += end;
+                chunkSize = DEFAULT_CHUNK_SIZE;
+            }
+        }
+        finally
+        {
+            runner.finish();
+        }
+    }
+
+    /**
+     * Reads all records from the given stream, the stream is not closed.
+     *
+     * @param in
+     *            The stream.
+     * @param clazz
+     *            The record type, {@code null} for plain JSON objects.
+     * @param threads
+     *            Number of threads, values &lt; 1 use all available processors.
+     * @param ordered
+     *            {@code true} to deliver records in stream order.
+     * @param callback
+     *            The record callback.
+     * @throws IOException
+     *             if an IO or parsing error occurred.
+     */
+    public final static <T> void read(final InputStream in, final Class<? extends JSONMarshallable> clazz, final int threads, final boolean ordered,
+            final JSONLinesCallback<T> callback) throws IOException
+    {
+        final Runner<ByteBuffer, List<T>> runner = new Runner<>(new ChunkParser<T>(clazz), threads, ordered, new RecordSink<>(callback));
+        try
+        {
+            byte[] buffer = new byte[DEFAULT_CHUNK_SIZE];
+            int fill = 0;
+            boolean eof = false;
+            while (!eof && runner.isOk())
+            {
+                final int r = in.read(buffer, fill, buffer.length - fill);
+                if (r < 0)
+                    eof = true;
+                else
+                    fill += r;
+
+                if (eof || fill == buffer.length)
+                {
+                    final int end = eof ? fill : lastLineEnd(ByteBuffer.wrap(buffer), fill);
+                    if (end == 0)
+                    {
+                        if (!eof) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+                    final byte[] next = new byte[Math.max(DEFAULT_CHUNK_SIZE, fill - end)];
+                    System.arraycopy(buffer, end, next, 0, fill - end);
+                    runner.submit(ByteBuffer.wrap(buffer, 0, end));
+                    buffer = next;
+                    fill -= end;
+                }
+            }
+        }
+        finally
+        {
+            runner.finish();
+        }
+    }
+
+    /**
+     * Writes the given records, one per line, encoding batches of records in
+     * parallel. The stream is flushed but not closed.
+     *
+     * @param out
+     *            The stream to write to.
+     * @param records
+     *            The records.
+     * @param threads
+     *            Number of threads, values &lt; 1 use all available processors.
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    public final static void write(final OutputStream out, final Iterable<?> records, final int threads) throws IOException
+    {
+        final Runner<List<Object>, byte[]> runner = new Runner<>(new BatchEncoder(), threads, true, new Sink<byte[]>()
+        {
+            @Override
+            public void accept(final byte[] value) throws IOException
+            {
+                out.write(value);
+            }
+        });
+        try
+        {
+            List<Object> batch = Colls.list(WRITE_BATCH_SIZE);
+            for (final Object o : records)
+            {
+                if (!runner.isOk()) break;
+                batch.add(o);
+                if (batch.size() == WRITE_BATCH_SIZE)
+                {
+                    runner.submit(batch);
+                    batch = Colls.list(WRITE_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) runner.submit(batch);
+        }
+        finally
+        {
+            runner.finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the number of bytes up to and including the last '\n' in the
+     * first {@code len} bytes of {@code buf}.
+     */
+    private final static int lastLineEnd(final ByteBuffer buf, final int len)
+    {
+        for (int i = len - 1; i >= 0; i--)
+        {
+            if (buf.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    private final static boolean isBlank(final CharBuffer chars, final int start, final int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Character.isWhitespace(chars.get(i))) return false;
+        }
+        return true;
+    }
+
+    private final static class ChunkParser<T> implements MapWorker<ByteBuffer, List<T>>
+    {
+        private final Class<? extends JSONMarshallable> clazz;
+
+        public ChunkParser(final Class<? extends JSONMarshallable> clazz)
+        {
+            this.clazz = clazz;
+        }
+
+        @Override
+        public List<T> run(final ByteBuffer chunk)
+        {
+            final CharBuffer chars = UTF8.decode(chunk);
+            final List<T> records = Colls.list();
+            final int len = chars.limit();
+            int start = 0;
+            try
+            {
+                while (start < len)
+                {
+                    int end = start;
+                    while (end < len && chars.get(end) != '\n')
+                        end++;
+                    if (!isBlank(chars, start, end))
+                    {
+                        final Reader reader = new CharBufferReader(chars, start, end);
+                        final Object value = this.clazz == null ? JSON.decode(reader) : JSON.decodeInto(reader,
+                                JSON.newJSONInstance(this.clazz));
+                        final T t = Objects.uncheckedCast(value);
+                        records.add(t);
+                    }
+                    start = end + 1;
+                }
+            }
+            catch (final IOException e)
+            {
+                throw new JSONLinesException(e);
+            }
+            return records;
+        }
+    }
+
+    private final static class BatchEncoder implements MapWorker<List<Object>, byte[]>
+    {
+        public BatchEncoder()
+        {
+            // empty
+        }
+
+        @Override
+        public byte[] run(final List<Object> batch)
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try
+            {
+                final JSONWriter writer = new JSONWriter(bytes, 8192, false);
+                for (final Object o : batch)
+                {
+                    writer.writeObject(o);
+                }
+                writer.release();
+            }
+            catch (final IOException e)
+            {
+                throw new JSONLinesException(e);
+            }
+            bytes.write('\n');
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Minimal reader over a range of a CharBuffer.
+     */
+    private final static class CharBufferReader extends Reader
+    {
+        private final CharBuffer chars;
+        private int              pos;
+        private final int        end;
+
+        public CharBufferReader(final CharBuffer chars, final int start, final int end)
+        {
+            this.chars = chars;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.pos < this.end ? this.chars.get(this.pos++) : -1;
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len)
+        {
+            if (this.pos >= this.end) return -1;
+            final int n = Math.min(len, this.end - this.pos);
+            for (int i = 0; i < n; i++)
+                cbuf[off + i] = this.chars.get(this.pos++);
+            return n;
+        }
+
+        @Override
+        public void close()
+        {
+            // nothing to close
+        }
+    }
+
+    /**
+     * Unchecked wrapper for IO errors inside workers.
+     */
+    private final static class JSONLinesException extends RuntimeException
+    {
+        private static final long serialVersionUID = -3081516476186213042L;
+
+        public JSONLinesException(final IOException cause)
+        {
+            super(cause);
+        }
+    }
+
+    private abstract static class Sink<B>
+    {
+        public Sink()
+        {
+            // empty
+        }
+
+        public abstract void accept(B value) throws IOException;
+    }
+
+    private final static class RecordSink<T> extends Sink<List<T>>
+    {
+        private final JSONLinesCallback<T> callback;
+
+        public RecordSink(final JSONLinesCallback<T> callback)
+        {
+            this.callback = callback;
+        }
+
+        @Override
+        public void accept(final List<T> value)
+        {
+            for (final T t : value)
+            {
+                this.callback.record(t);
+            }
+        }
+    }
+
+    /**
+     * Runs jobs on a MapWorkerPool, limits the number of jobs in flight and
+     * delivers results (optionally in submission order) on the pool's
+     * callback thread.
+     */
+    private final static class Runner<A, B> implements MapWorkerCallback<Runner.Item<A>, B>
+    {
+        private final MapWorkerPool<Item<A>, B> pool;
+        private final MapWorker<Item<A>, B>     worker;
+        private final Semaphore                 permits;
+        private final boolean                   ordered;
+        private final Sink<B>                   sink;
+        private final HashMap<Long, B>          pending = new HashMap<>();
+        private long                            next    = 0;
+        private long                            count   = 0;
+        private volatile Throwable              error   = null;
+
+        public Runner(final MapWorker<A, B> worker, final int threads, final boolean ordered, final Sink<B> sink)
+        {
+            this.worker = new MapWorker<Item<A>, B>()
+            {
+                @Override
+                public B run(final Item<A> object)
+                {
+                    return worker.run(object.value);
+                }
+            };
+            this.ordered = ordered;
+            this.sink = sink;
+            this.pool = MapWorkerPool.start(this, threads, 0, true);
+            this.permits = new Semaphore(this.pool.threadCount() * 2);
+        }
+
+        public boolean isOk()
+        {
+            return this.error == null;
+        }
+
+        public void submit(final A value)
+        {
+            this.permits.acquireUninterruptibly();
+            this.pool.enqueue(this.worker, new Item<>(this.count++, value));
+        }
+
+        public void finish() throws IOException
+        {
+            this.pool.stop();
+            final Throwable t = this.error;
+            if (t != null)
+            {
+                final Throwable cause = t instanceof JSONLinesException ? t.getCause() : t;
+                if (cause instanceof IOException) throw (IOException)cause;
+                throw new IOException(cause);
+            }
+        }
+
+        private void deliver(final B value)
+        {
+            if (this.error == null && value != null)
+            {
+                try
+                {
+                    this.sink.accept(value);
+                }
+                catch (final Throwable t)
+                {
+                    this.error = t;
+                }
+            }
+            this.permits.release();
+        }
+
+        @Override
+        public void workerCallback(final MapWorkerPool<Item<A>, B> p, final MapWorker<Item<A>, B> w, final WorkerStatus status, final Item<A> input,
+                final B output)
+        {
+            if (!status.isOk() && this.error == null) this.error = status.getThrowable();
+
+            if (this.ordered)
+            {
+                this.pending.put(Long.valueOf(input.index), output);
+                Long key;
+                while (this.pending.containsKey(key = Long.valueOf(this.next)))
+                {
+                    this.next++;
+                    this.deliver(this.pending.remove(key));
+                }
+            }
+            else
+            {
+                this.deliver(output);
+            }
+        }
+
+        static class Item<A>
+        {
+            final long index;
+            final A    value;
+
+            public Item(final long index, final A value)
+            {
+                this.index = index;
+                this.value = value;
+            }
+        }
+    }
+}
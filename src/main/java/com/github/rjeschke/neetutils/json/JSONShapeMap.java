@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.rjeschke.neetutils.json.JSONShapes.Shape;
+
+/**
+ * A {@code Map<String, Object>} storing only its values, keys are provided by a
+ * shared {@link Shape}.
+ *
+ * <p>
+ * Adding new keys moves the map to the next shape, removing keys or running out
+ * of shapes converts it into a {@code HashMap} backed map.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+final class JSONShapeMap extends AbstractMap<String, Object>
+{
+    private Shape                   shape;
+    private Object[]                values;
+    private HashMap<String, Object> fallback = null;
+
+    JSONShapeMap(final Shape shape, final Object[] values)
+    {
+        this.shape = shape;
+        this.values = values;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.fallback != null ? this.fallback.size() : this.shape.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return this.fallback != null ? this.fallback.containsKey(key) : this.shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(final Object key)
+    {
+        if (this.fallback != null) return this.fallback.get(key);
+        final int idx = this.shape.indexOf(key);
+        return idx >= 0 ? this.values[idx] : null;
+    }
+
+    @Override
+    public Object put(final String key, final Object value)
+    {
+        if (this.fallback != null) return this.fallback.put(key, value);
+        final int idx = this.shape.indexOf(key);
+        if (idx >= 0)
+        {
+            final Object old = this.values[idx];
+            this.values[idx] = value;
+            return old;
+        }
+        final Shape next = this.shape.with(key);
+        if (next == null)
+        {
+            this.toFallback().put(key, value);
+            return null;
+        }
+        this.shape = next;
+        this.values = Arrays.copyOf(this.values, next.size());
+        this.values[next.size() - 1] = value;
+        return null;
+    }
+
+    @Override
+    public Object remove(final Object key)
+    {
+        if (this.fallback == null && this.shape.indexOf(key) < 0) return null;
+        return this.toFallback().remove(key);
+    }
+
+    @Override
+    public void clear()
+    {
+        if (this.fallback != null)
+        {
+            this.fallback.clear();
+        }
+        else
+        {
+            this.shape = this.shape.owner.root;
+            this.values = new Object[0];
+        }
+    }
+
+    private HashMap<String, Object> toFallback()
+    {
+        if (this.fallback == null)
+        {
+            final HashMap<String, Object> map = new HashMap<>();
+            for (int i = 0; i < this.values.length; i++)
+            {
+                map.put(this.shape.keys[i], this.values[i]);
+            }
+            this.fallback = map;
+            this.shape = null;
+            this.values = null;
+        }
+        return this.fallback;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        return new EntrySet();
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>>
+    {
+        public EntrySet()
+        {
+            // empty
+        }
+
+        @Override
+        public int size()
+        {
+            return JSONShapeMap.this.size();
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator()
+        {
+            if (JSONShapeMap.this.fallback != null) return JSONShapeMap.this.fallback.entrySet().iterator();
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * Iterates the entries of a shape. The first {@code remove()} converts the
+     * map to its fallback, later calls work on that.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>>
+    {
+        private final Shape itShape  = JSONShapeMap.this.shape;
+        private int         index    = 0;
+        private int         last     = -1;
+        /** Set when we converted the map ourselves. */
+        private boolean     switched = false;
+
+        public EntryIterator()
+        {
+            // empty
+        }
+
+        private void checkModification()
+        {
+            if (!this.switched && JSONShapeMap.this.shape != this.itShape) throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < this.itShape.size();
+        }
+
+        @Override
+        public Entry<String, Object> next()
+        {
+            if (!this.hasNext()) throw new NoSuchElementException();
+            this.checkModification();
+            this.last = this.index++;
+            return new ShapeEntry(this.last, this.itShape.keys[this.last]);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.last < 0) throw new IllegalStateException();
+            this.checkModification();
+            JSONShapeMap.this.toFallback().remove(this.itShape.keys[this.last]);
+            this.switched = true;
+            this.last = -1;
+        }
+    }
+
+    private final class ShapeEntry implements Entry<String, Object>
+    {
+        private final int    index;
+        private final String key;
+
+        public ShapeEntry(final int index, final String key)
+        {
+            this.index = index;
+            this.key = key;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return this.key;
+        }
+
+        @Override
+        public Object getValue()
+        {
+            final JSONShapeMap map = JSONShapeMap.this;
+            return map.fallback != null ? map.fallback.get(this.key) : map.values[this.index];
+        }
+
+        @Override
+        public Object setValue(final Object value)
+        {
+            final JSONShapeMap map = JSONShapeMap.this;
+            if (map.fallback != null) return map.fallback.put(this.key, value);
+            final Object old = map.values[this.index];
+            map.values[this.index] = value;
+            return old;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            final Object v = this.getValue();
+            return this.getKey().hashCode() ^ (v == null ? 0 : v.hashCode());
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (!(obj instanceof Entry)) return false;
+            final Entry<?, ?> e = (Entry<?, ?>)obj;
+            final Object v = this.getValue();
+            return this.getKey().equals(e.getKey()) && (v == null ? e.getValue() == null : v.equals(e.getValue()));
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.getKey() + "=" + this.getValue();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shape registry and key cache for compact JSON decoding.
+ *
+ * <p>
+ * JSON objects sharing the same key sequence share one shape (an array of
+ * interned keys) and only store their values. Objects with too many keys or
+ * decoded after the shape limit was reached fall back to a {@code HashMap}
+ * using keys interned through a bounded cache.
+ * </p>
+ *
+ * <p>
+ * An instance may be reused across several decode calls to share shapes
+ * between documents, but must not be used by several decoding threads
+ * concurrently.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ * @see JSON#decodeCompact(String)
+ */
+public final class JSONShapes
+{
+    /** Default maximum number of shapes. */
+    public final static int  DEFAULT_MAX_SHAPES = 4096;
+    /** Maximum number of keys per shaped object. */
+    public final static int  MAX_SHAPE_KEYS     = 64;
+    private final static int KEY_CACHE_SIZE     = 1024;
+    private final int        maxShapes;
+    private final String[]   keyCache           = new String[KEY_CACHE_SIZE];
+    final Shape              root;
+    int                      shapes            = 1;
+
+    /**
+     * Creates a registry using {@link #DEFAULT_MAX_SHAPES}.
+     */
+    public JSONShapes()
+    {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    /**
+     * Creates a registry.
+     *
+     * @param maxShapes
+     *            Maximum number of shapes to create.
+     */
+    public JSONShapes(final int maxShapes)
+    {
+        this.maxShapes = maxShapes;
+        this.root = new Shape(this, null, null);
+    }
+
+    /**
+     * Returns a canonical instance of the given key using a bounded, direct
+     * mapped cache.
+     *
+     * @param key
+     *            The key.
+     * @return The canonical key.
+     */
+    public String intern(final String key)
+    {
+        final int h = key.hashCode();
+        final int idx = (h ^ (h >>> 16)) & (KEY_CACHE_SIZE - 1);
+        final String cached = this.keyCache[idx];
+        if (cached != null && cached.equals(key)) return cached;
+        this.keyCache[idx] = key;
+        return key;
+    }
+
+    /**
+     * @return The number of shapes created so far.
+     */
+    public int getShapeCount()
+    {
+        return this.shapes;
+    }
+
+    /**
+     * Creates a map from parallel lists of keys and values.
+     *
+     * @param keys
+     *            The keys.
+     * @param values
+     *            The values.
+     * @return A shape backed map or a HashMap if no shape could be used.
+     */
+    Map<String, Object> createMap(final List<String> keys, final List<Object> values)
+    {
+        final int size = keys.size();
+        if (size <= MAX_SHAPE_KEYS)
+        {
+            Shape shape = this.root;
+            final Object[] vs = new Object[size];
+            int n = 0;
+            for (int i = 0; i < size && shape != null; i++)
+            {
+                final String key = keys.get(i);
+                final int idx = shape.indexOf(key);
+                if (idx >= 0)
+                {
+                    // Duplicate key, last one wins (just as with HashMap)
+                    vs[idx] = values.get(i);
+                }
+                else
+                {
+                    shape = shape.with(key);
+                    vs[n++] = values.get(i);
+                }
+            }
+            if (shape != null) return new JSONShapeMap(shape, n == size ? vs : Arrays.copyOf(vs, n));
+        }
+
+        final Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            map.put(this.intern(keys.get(i)), values.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * A shape, an immutable sequence of keys.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     */
+    final static class Shape
+    {
+        private final static int           HASH_THRESHOLD = 8;
+        final JSONShapes                   owner;
+        final String[]                     keys;
+        private final Map<String, Integer> index;
+        private HashMap<String, Shape>     transitions;
+
+        Shape(final JSONShapes owner, final Shape parent, final String key)
+        {
+            this.owner = owner;
+            if (parent == null)
+            {
+                this.keys = new String[0];
+            }
+            else
+            {
+                this.keys = Arrays.copyOf(parent.keys, parent.keys.length + 1);
+                this.keys[parent.keys.length] = key;
+            }
+            if (this.keys.length > HASH_THRESHOLD)
+            {
+                this.index = new HashMap<>(this.keys.length * 2);
+                for (int i = 0; i < this.keys.length; i++)
+                {
+                    this.index.put(this.keys[i], Integer.valueOf(i));
+                }
+            }
+            else
+            {
+                this.index = null;
+            }
+        }
+
+        int size()
+        {
+            return this.keys.length;
+        }
+
+        int indexOf(final Object key)
+        {
+            if (this.index != null)
+            {
+                final Integer i = this.index.get(key);
+                return i != null ? i.intValue() : -1;
+            }
+            for (int i = 0; i < this.keys.length; i++)
+            {
+                if (this.keys[i] == key) return i;
+            }
+            for (int i = 0; i < this.keys.length; i++)
+            {
+                if (this.keys[i].equals(key)) return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the shape with {@code key} appended, or {@code null} if the
+         * shape limit was reached.
+         */
+        Shape with(final String key)
+        {
+            synchronized (this.owner)
+            {
+                if (this.transitions == null) this.transitions = new HashMap<>(4);
+                Shape s = this.transitions.get(key);
+                if (s == null)
+                {
+                    if (this.owner.shapes >= this.owner.maxShapes || this.keys.length >= MAX_SHAPE_KEYS) return null;
+                    s = new Shape(this.owner, this, this.owner.intern(key));
+                    this.transitions.put(s.keys[this.keys.length], s);
+                    this.owner.shapes++;
+                }
+                return s;
+            }
+        }
+    }
+}
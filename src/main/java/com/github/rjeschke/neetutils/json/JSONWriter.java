@@ -0,0 +1,878 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.github.rjeschke.neetutils.collections.Tuple;
+import com.github.rjeschke.neetutils.io.BufferPool;
+import com.github.rjeschke.neetutils.lists.DoubleList;
+import com.github.rjeschke.neetutils.lists.FloatList;
+import com.github.rjeschke.neetutils.lists.IntList;
+import com.github.rjeschke.neetutils.lists.LongList;
+
+/**
+ * Streaming JSON writer.
+ *
+ * <p>
+ * Writes UTF-8 encoded JSON directly into a fixed size byte buffer which gets
+ * flushed to an {@link OutputStream} or a {@link WritableByteChannel} whenever
+ * it is full. Objects get written using the same rules as
+ * {@link JSON#encode(Object)}, the optional pretty print mode produces the same
+ * output as {@link JSON#beautify(String)} without re-tokenizing.
+ * </p>
+ *
+ * <p>
+ * Besides {@link #writeObject(Object)} there is a low level API (
+ * {@link #beginObject()}, {@link #name(String)}, {@link #value(long)}, ...) to
+ * write documents which do not fit into memory.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class JSONWriter implements Closeable, Flushable
+{
+    /** Default buffer size. */
+    public final static int           DEFAULT_BUFFER_SIZE = 65536;
+    private final static byte[]       HEX                 = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+    private final static byte[]       LONG_MIN            = "-9223372036854775808".getBytes();
+    private final OutputStream        out;
+    private final WritableByteChannel channel;
+    private byte[]                    buffer;
+    private ByteBuffer                byteBuffer;
+    private final boolean             pretty;
+    private int                       position            = 0;
+    /** Container stack, {@code true} for objects. */
+    private boolean[]                 isObject            = new boolean[16];
+    /** {@code true} if the current container has no elements yet. */
+    private boolean[]                 isEmpty             = new boolean[16];
+    private int                       depth               = 0;
+    private boolean                   afterName           = false;
+    private boolean                   afterRoot           = false;
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *            The OutputStream to write to.
+     */
+    public JSONWriter(final OutputStream out)
+    {
+        this(out, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *            The OutputStream to write to.
+     * @param pretty
+     *            Whether to beautify the output or not.
+     */
+    public JSONWriter(final OutputStream out, final boolean pretty)
+    {
+        this(out, DEFAULT_BUFFER_SIZE, pretty);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *            The OutputStream to write to.
+     * @param bufferSize
+     *            The buffer size, at least 16 bytes.
+     * @param pretty
+     *            Whether to beautify the output or not.
+     */
+    public JSONWriter(final OutputStream out, final int bufferSize, final boolean pretty)
+    {
+        this(out, null, bufferSize, pretty);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channel
+     *            The channel to write to.
+     * @param bufferSize
+     *            The buffer size, at least 16 bytes.
+     * @param pretty
+     *            Whether to beautify the output or not.
+     */
+    public JSONWriter(final WritableByteChannel channel, final int bufferSize, final boolean pretty)
+    {
+        this(null, channel, bufferSize, pretty);
+    }
+
+    private JSONWriter(final OutputStream out, final WritableByteChannel channel, final int bufferSize, final boolean pretty)
+    {
+        if (bufferSize < 16) throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+        this.out = out;
+        this.channel = channel;
+        this.buffer = BufferPool.lease(bufferSize);
+        this.byteBuffer = channel != null ? ByteBuffer.wrap(this.buffer) : null;
+        this.pretty = pretty;
+    }
+
+    /**
+     * @return {@code true} if this writer beautifies its output.
+     */
+    public boolean isPretty()
+    {
+        return this.pretty;
+    }
+
+    /**
+     * Starts a JSON object.
+     *
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter beginObject() throws IOException
+    {
+        this.beforeValue();
+        this.push(true);
+        this.put('{');
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter endObject() throws IOException
+    {
+        this.pop(true);
+        this.put('}');
+        return this;
+    }
+
+    /**
+     * Starts a JSON array.
+     *
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter beginArray() throws IOException
+    {
+        this.beforeValue();
+        this.push(false);
+        this.put('[');
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter endArray() throws IOException
+    {
+        this.pop(false);
+        this.put(']');
+        return this;
+    }
+
+    /**
+     * Writes an object key, must be followed by a value.
+     *
+     * @param name
+     *            The key.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter name(final String name) throws IOException
+    {
+        if (this.depth == 0 || !this.isObject[this.depth - 1] || this.afterName) throw new IllegalStateException("Object key not allowed here");
+        this.separate();
+        this.putString(name);
+        if (this.pretty)
+        {
+            this.put(' ');
+            this.put(':');
+            this.put(' ');
+        }
+        else
+        {
+            this.put(':');
+        }
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes {@code null}.
+     *
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter nullValue() throws IOException
+    {
+        this.beforeValue();
+        this.putAscii("null");
+        return this;
+    }
+
+    /**
+     * Writes a boolean.
+     *
+     * @param value
+     *            The value.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter value(final boolean value) throws IOException
+    {
+        this.beforeValue();
+        this.putAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a {@code long}.
+     *
+     * @param value
+     *            The value.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter value(final long value) throws IOException
+    {
+        this.beforeValue();
+        this.putLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a {@code double}.
+     *
+     * @param value
+     *            The value.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter value(final double value) throws IOException
+    {
+        this.beforeValue();
+        this.putDouble(value);
+        return this;
+    }
+
+    /**
+     * Writes a String.
+     *
+     * @param value
+     *            The value, may be {@code null}.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter value(final String value) throws IOException
+    {
+        if (value == null) return this.nullValue();
+        this.beforeValue();
+        this.putString(value);
+        return this;
+    }
+
+    /**
+     * Writes an object using the same rules as {@link JSON#writeObject(StringBuilder, Object)}.
+     *
+     * @param obj
+     *            The object to write.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeObject(final Object obj) throws IOException
+    {
+        if (obj == null)
+        {
+            this.nullValue();
+        }
+        else if (obj instanceof JSONMarshallable)
+        {
+            this.writeMarshallable(obj);
+        }
+        else if (obj instanceof Map)
+        {
+            this.writeMap((Map<?, ?>)obj);
+        }
+        else if (obj instanceof Collection)
+        {
+            this.writeList((Collection<?>)obj);
+        }
+        else if (obj instanceof Number)
+        {
+            if (obj instanceof Double || obj instanceof Float)
+            {
+                this.value(((Number)obj).doubleValue());
+            }
+            else
+            {
+                this.value(((Number)obj).longValue());
+            }
+        }
+        else if (obj instanceof Boolean)
+        {
+            this.value(((Boolean)obj).booleanValue());
+        }
+        else if (obj instanceof int[])
+        {
+            this.writeArray((int[])obj);
+        }
+        else if (obj instanceof long[])
+        {
+            this.writeArray((long[])obj);
+        }
+        else if (obj instanceof float[])
+        {
+            this.writeArray((float[])obj);
+        }
+        else if (obj instanceof double[])
+        {
+            this.writeArray((double[])obj);
+        }
+        else if (obj instanceof IntList)
+        {
+            this.writeArray((IntList)obj);
+        }
+        else if (obj instanceof LongList)
+        {
+            this.writeArray((LongList)obj);
+        }
+        else if (obj instanceof FloatList)
+        {
+            this.writeArray((FloatList)obj);
+        }
+        else if (obj instanceof DoubleList)
+        {
+            this.writeArray((DoubleList)obj);
+        }
+        else if (obj instanceof JSONEnum)
+        {
+            this.value(((JSONEnum)obj).toJSONString());
+        }
+        else
+        {
+            this.value(obj.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a {@code Collection} as a JSON array.
+     *
+     * @param list
+     *            The collection.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeList(final Collection<?> list) throws IOException
+    {
+        this.beginArray();
+        for (final Object o : list)
+        {
+            this.writeObject(o);
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@code int[]} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final int[] values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.length; i++)
+        {
+            this.beforeValue();
+            this.putLong(values[i]);
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@code long[]} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final long[] values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.length; i++)
+        {
+            this.beforeValue();
+            this.putLong(values[i]);
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@code float[]} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final float[] values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.length; i++)
+        {
+            this.beforeValue();
+            this.putDouble(values[i]);
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@code double[]} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final double[] values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.length; i++)
+        {
+            this.beforeValue();
+            this.putDouble(values[i]);
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@link IntList} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final IntList values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.size(); i++)
+        {
+            this.beforeValue();
+            this.putLong(values.get(i));
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@link LongList} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final LongList values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.size(); i++)
+        {
+            this.beforeValue();
+            this.putLong(values.get(i));
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@link FloatList} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final FloatList values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.size(); i++)
+        {
+            this.beforeValue();
+            this.putDouble(values.get(i));
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@link DoubleList} as a JSON array.
+     *
+     * @param values
+     *            The values.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeArray(final DoubleList values) throws IOException
+    {
+        this.beginArray();
+        for (int i = 0; i < values.size(); i++)
+        {
+            this.beforeValue();
+            this.putDouble(values.get(i));
+        }
+        return this.endArray();
+    }
+
+    /**
+     * Writes a {@code Map} as a JSON object.
+     *
+     * @param map
+     *            The map.
+     * @return this
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public JSONWriter writeMap(final Map<?, ?> map) throws IOException
+    {
+        this.beginObject();
+        for (final Entry<?, ?> e : map.entrySet())
+        {
+            this.name(e.getKey().toString());
+            this.writeObject(e.getValue());
+        }
+        return this.endObject();
+    }
+
+    private void writeMarshallable(final Object obj) throws IOException
+    {
+        this.beginObject();
+        for (final Tuple<String, Object> f : JSON.marshallableFields(obj))
+        {
+            this.name(f.a);
+            this.writeObject(f.b);
+        }
+        this.endObject();
+    }
+
+    /**
+     * Flushes the internal buffer and the underlying stream.
+     *
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        this.flushBuffer();
+        if (this.out != null) this.out.flush();
+    }
+
+    /**
+     * Flushes and closes this writer and the underlying stream or channel.
+     *
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.release();
+        }
+        finally
+        {
+            if (this.out != null)
+                this.out.close();
+            else
+                this.channel.close();
+        }
+    }
+
+    /**
+     * Flushes this writer and returns its buffer to the {@link BufferPool},
+     * without closing the underlying stream or channel. The writer must not be
+     * used afterwards.
+     *
+     * @throws IOException
+     *             if an IO error occurred
+     */
+    public void release() throws IOException
+    {
+        if (this.buffer == null) return;
+        try
+        {
+            this.flush();
+        }
+        finally
+        {
+            BufferPool.release(this.buffer);
+            this.buffer = null;
+            this.byteBuffer = null;
+        }
+    }
+
+    private void push(final boolean object)
+    {
+        if (this.depth == this.isObject.length)
+        {
+            this.isObject = Arrays.copyOf(this.isObject, this.depth * 2);
+            this.isEmpty = Arrays.copyOf(this.isEmpty, this.depth * 2);
+        }
+        this.isObject[this.depth] = object;
+        this.isEmpty[this.depth] = true;
+        this.depth++;
+    }
+
+    private void pop(final boolean object) throws IOException
+    {
+        if (this.depth == 0 || this.isObject[this.depth - 1] != object || this.afterName)
+            throw new IllegalStateException("Unbalanced " + (object ? "object" : "array"));
+        this.depth--;
+        if (this.pretty)
+        {
+            this.put('\n');
+            this.indent(this.depth);
+        }
+    }
+
+    private void separate() throws IOException
+    {
+        final int d = this.depth - 1;
+        if (this.isEmpty[d])
+        {
+            this.isEmpty[d] = false;
+            if (this.pretty) this.put('\n');
+        }
+        else
+        {
+            this.put(',');
+            if (this.pretty) this.put('\n');
+        }
+        if (this.pretty) this.indent(this.depth);
+    }
+
+    private void beforeValue() throws IOException
+    {
+        if (this.depth == 0)
+        {
+            if (this.afterRoot) this.put('\n');
+            this.afterRoot = true;
+        }
+        else if (this.afterName)
+        {
+            this.afterName = false;
+        }
+        else
+        {
+            if (this.isObject[this.depth - 1]) throw new IllegalStateException("Object key expected");
+            this.separate();
+        }
+    }
+
+    private void indent(final int level) throws IOException
+    {
+        for (int i = level * 2; i > 0; i--)
+            this.put(' ');
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (this.position > 0)
+        {
+            if (this.out != null)
+            {
+                this.out.write(this.buffer, 0, this.position);
+            }
+            else
+            {
+                this.byteBuffer.clear().limit(this.position);
+                while (this.byteBuffer.hasRemaining())
+                    this.channel.write(this.byteBuffer);
+            }
+            this.position = 0;
+        }
+    }
+
+    private void put(final int b) throws IOException
+    {
+        if (this.position == this.buffer.length) this.flushBuffer();
+        this.buffer[this.position++] = (byte)b;
+    }
+
+    private void putAscii(final String value) throws IOException
+    {
+        for (int i = 0; i < value.length(); i++)
+            this.put(value.charAt(i));
+    }
+
+    private void putLong(final long value) throws IOException
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            for (final byte b : LONG_MIN)
+                this.put(b);
+            return;
+        }
+
+        // 20 bytes is enough for '-' and 19 digits
+        if (this.buffer.length - this.position < 20) this.flushBuffer();
+
+        long v = value < 0 ? -value : value;
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10)
+            digits++;
+        if (value < 0) this.buffer[this.position++] = '-';
+        int p = this.position + digits;
+        this.position = p;
+        do
+        {
+            this.buffer[--p] = (byte)('0' + (int)(v % 10));
+            v /= 10;
+        } while (v != 0);
+    }
+
+    private void putDouble(final double value) throws IOException
+    {
+        // Same representation as StringBuilder.append(double)
+        this.putAscii(Double.toString(value));
+    }
+
+    private void putString(final String value) throws IOException
+    {
+        this.put('"');
+        final int len = value.length();
+        for (int i = 0; i < len; i++)
+        {
+            final char ch = value.charAt(i);
+            if (ch < 0x80)
+            {
+                switch (ch)
+                {
+                case '"':
+                    this.put('\\');
+                    this.put('"');
+                    break;
+                case '/':
+                    this.put('\\');
+                    this.put('/');
+                    break;
+                case '\\':
+                    this.put('\\');
+                    this.put('\\');
+                    break;
+                case '\n':
+                    this.put('\\');
+                    this.put('n');
+                    break;
+                case '\r':
+                    this.put('\\');
+                    this.put('r');
+                    break;
+                case '\t':
+                    this.put('\\');
+                    this.put('t');
+                    break;
+                case '\b':
+                    this.put('\\');
+                    this.put('b');
+                    break;
+                case '\f':
+                    this.put('\\');
+                    this.put('f');
+                    break;
+                default:
+                    if (ch < 32)
+                    {
+                        this.put('\\');
+                        this.put('u');
+                        this.put('0');
+                        this.put('0');
+                        this.put(HEX[ch >> 4]);
+                        this.put(HEX[ch & 15]);
+                    }
+                    else
+                    {
+                        this.put(ch);
+                    }
+                    break;
+                }
+            }
+            else if (ch < 0x800)
+            {
+                this.put(0xc0 | (ch >> 6));
+                this.put(0x80 | (ch & 0x3f));
+            }
+            else if (Character.isHighSurrogate(ch) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                final int cp = Character.toCodePoint(ch, value.charAt(++i));
+                this.put(0xf0 | (cp >> 18));
+                this.put(0x80 | ((cp >> 12) & 0x3f));
+                this.put(0x80 | ((cp >> 6) & 0x3f));
+                this.put(0x80 | (cp & 0x3f));
+            }
+            else if (Character.isSurrogate(ch))
+            {
+                // Unpaired surrogate, same replacement as String.getBytes("UTF-8")
+                this.put('?');
+            }
+            else
+            {
+                this.put(0xe0 | (ch >> 12));
+                this.put(0x80 | ((ch >> 6) & 0x3f));
+                this.put(0x80 | (ch & 0x3f));
+            }
+        }
+        this.put('"');
+    }
+}
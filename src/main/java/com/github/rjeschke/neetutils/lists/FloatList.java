@@ -20,8 +20,16 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.RandomAccess;
 
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
+import com.github.rjeschke.neetutils.fn.FloatFoldStep;
+import com.github.rjeschke.neetutils.fn.FloatMapping;
+import com.github.rjeschke.neetutils.fn.FloatPredicate;
+import com.github.rjeschke.neetutils.math.NMath;
+
 /**
  * Float list.
  *
@@ -213,11 +221,39 @@ public class FloatList implements RandomAccess, Cloneable, Serializable
     }
 
     /**
-     * @see Arrays#sort(int[])
+     * Sorts this list ascending.
+     *
+     * @see Sorts#sort(float[], int, int)
      */
     public void sort()
     {
-        Arrays.sort(this.data, 0, this.size);
+        Sorts.sort(this.data, 0, this.size);
+    }
+
+    /**
+     * Computes the stable sort order of this list.
+     *
+     * @return The indices of this list's elements in sorted order.
+     * @see Sorts#argsort(float[], int, int)
+     */
+    public int[] argsort()
+    {
+        return Sorts.argsort(this.data, 0, this.size);
+    }
+
+    /**
+     * Sorts this list by the given keys, the keys get sorted as well. The sort
+     * is stable.
+     *
+     * @param keys
+     *            The keys, must have the same size as this list.
+     */
+    public void sortBy(final LongList keys)
+    {
+        if (keys.size() != this.size) throw new IllegalArgumentException("Key list size " + keys.size() + " does not match list size " + this.size);
+        final int[] perm = keys.argsort();
+        keys.permute(perm);
+        this.permute(perm);
     }
 
     /**
@@ -270,6 +306,329 @@ public class FloatList implements RandomAccess, Cloneable, Serializable
         return -1;
     }
 
+    /**
+     * Adds the given values to the end of this list.
+     *
+     * @param values
+     *            The values.
+     * @param offset
+     *            Offset into <code>values</code>.
+     * @param length
+     *            Number of values to add.
+     */
+    public void addAll(final float[] values, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > values.length) throw new ArrayIndexOutOfBoundsException("Invalid range [" + offset + ", " + (offset + length) + "[");
+        this.grow(this.size + length);
+        System.arraycopy(values, offset, this.data, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Adds all values of the given list to the end of this list.
+     *
+     * @param list
+     *            The list.
+     */
+    public void addAll(final FloatList list)
+    {
+        final int length = list.size;
+        this.grow(this.size + length);
+        System.arraycopy(list.data, 0, this.data, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Sets all elements to the given value.
+     *
+     * @param v
+     *            The value.
+     */
+    public void fill(final float v)
+    {
+        Arrays.fill(this.data, 0, this.size, v);
+    }
+
+    /**
+     * Sets all elements in <code>[from, to[</code> to the given value.
+     *
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @param v
+     *            The value.
+     */
+    public void fill(final int from, final int to, final float v)
+    {
+        this.checkRange(from, to);
+        Arrays.fill(this.data, from, to, v);
+    }
+
+    /**
+     * Sums up all elements.
+     *
+     * @return The sum.
+     */
+    public double sum()
+    {
+        return sum(this.data, 0, this.size);
+    }
+
+    /**
+     * Parallel version of {@link #sum()}, runs sequentially below
+     * {@link Parallel#MIN_CHUNK_SIZE} elements per thread.
+     *
+     * @return The sum.
+     */
+    public double parallelSum()
+    {
+        final int chunks = Parallel.chunkCount(this.size, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2) return this.sum();
+        final float[] d = this.data;
+        final double[] partial = new double[chunks];
+        Parallel.forEachChunk(0, this.size, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int from, final int to)
+            {
+                partial[chunk] = sum(d, from, to);
+            }
+        });
+        double ret = partial[0];
+        for (int i = 1; i < chunks; i++)
+        {
+            ret = ret + partial[i];
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the minimum value of this list.
+     *
+     * @return The minimum or <code>Float.MAX_VALUE</code> if this list is empty.
+     * @see NMath#min(float[], int, int)
+     */
+    public float min()
+    {
+        return NMath.min(this.data, 0, this.size);
+    }
+
+    /**
+     * Parallel version of {@link #min()}, runs sequentially below
+     * {@link Parallel#MIN_CHUNK_SIZE} elements per thread.
+     *
+     * @return The min.
+     */
+    public float parallelMin()
+    {
+        final int chunks = Parallel.chunkCount(this.size, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2) return this.min();
+        final float[] d = this.data;
+        final float[] partial = new float[chunks];
+        Parallel.forEachChunk(0, this.size, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int from, final int to)
+            {
+                partial[chunk] = NMath.min(d, from, to - from);
+            }
+        });
+        float ret = partial[0];
+        for (int i = 1; i < chunks; i++)
+        {
+            ret = Math.min(ret, partial[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the maximum value of this list.
+     *
+     * @return The maximum or <code>-Float.MAX_VALUE</code> if this list is empty.
+     * @see NMath#max(float[], int, int)
+     */
+    public float max()
+    {
+        return NMath.max(this.data, 0, this.size);
+    }
+
+    /**
+     * Parallel version of {@link #max()}, runs sequentially below
+     * {@link Parallel#MIN_CHUNK_SIZE} elements per thread.
+     *
+     * @return The max.
+     */
+    public float parallelMax()
+    {
+        final int chunks = Parallel.chunkCount(this.size, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2) return this.max();
+        final float[] d = this.data;
+        final float[] partial = new float[chunks];
+        Parallel.forEachChunk(0, this.size, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int from, final int to)
+            {
+                partial[chunk] = NMath.max(d, from, to - from);
+            }
+        });
+        float ret = partial[0];
+        for (int i = 1; i < chunks; i++)
+        {
+            ret = Math.max(ret, partial[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Replaces each element by the result of the given mapping.
+     *
+     * @param mapping
+     *            The mapping.
+     */
+    public void mapInPlace(final FloatMapping mapping)
+    {
+        mapInPlace(this.data, 0, this.size, mapping);
+    }
+
+    /**
+     * Parallel version of {@link #mapInPlace(FloatMapping)}, runs sequentially
+     * below {@link Parallel#MIN_CHUNK_SIZE} elements per thread. The mapping
+     * must be thread safe.
+     *
+     * @param mapping
+     *            The mapping.
+     */
+    public void parallelMapInPlace(final FloatMapping mapping)
+    {
+        final float[] d = this.data;
+        Parallel.forEachChunk(0, this.size, Parallel.chunkCount(this.size, Parallel.MIN_CHUNK_SIZE), new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int from, final int to)
+            {
+                mapInPlace(d, from, to, mapping);
+            }
+        });
+    }
+
+    /**
+     * Removes all elements matching the given predicate.
+     *
+     * @param predicate
+     *            The predicate.
+     * @return <code>true</code> if any elements were removed.
+     */
+    public boolean removeIf(final FloatPredicate predicate)
+    {
+        final float[] d = this.data;
+        int n = 0;
+        for (int i = 0; i < this.size; i++)
+        {
+            final float v = d[i];
+            if (!predicate.applyPredicate(v)) d[n++] = v;
+        }
+        final boolean changed = n != this.size;
+        this.size = n;
+        return changed;
+    }
+
+    /**
+     * Searches a sorted list for the given value.
+     *
+     * @param v
+     *            The value.
+     * @return The index or <code>-(insertion point) - 1</code>.
+     * @see Arrays#binarySearch(float[], int, int, float)
+     */
+    public int binarySearch(final float v)
+    {
+        return Arrays.binarySearch(this.data, 0, this.size, v);
+    }
+
+    /**
+     * Sorts the elements in <code>[from, to[</code>.
+     *
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @see Arrays#sort(float[], int, int)
+     */
+    public void sortRange(final int from, final int to)
+    {
+        this.checkRange(from, to);
+        Arrays.sort(this.data, from, to);
+    }
+
+    /**
+     * Returns a cursor over this list's elements.
+     *
+     * @return The cursor.
+     */
+    public FloatCursor cursor()
+    {
+        return new Cursor(this);
+    }
+
+    /**
+     * Returns a new list containing all elements matching the given predicate.
+     *
+     * @param predicate
+     *            The predicate.
+     * @return The new list.
+     */
+    public FloatList filter(final FloatPredicate predicate)
+    {
+        final FloatList list = new FloatList();
+        for (int i = 0; i < this.size; i++)
+        {
+            final float v = this.data[i];
+            if (predicate.applyPredicate(v)) list.add(v);
+        }
+        return list;
+    }
+
+    /**
+     * Returns a new list containing the results of the given mapping applied
+     * to each element.
+     *
+     * @param mapping
+     *            The mapping.
+     * @return The new list.
+     */
+    public FloatList map(final FloatMapping mapping)
+    {
+        final FloatList list = new FloatList(this.size);
+        final float[] d = list.data;
+        for (int i = 0; i < this.size; i++)
+        {
+            d[i] = mapping.applyMapping(this.data[i]);
+        }
+        list.size = this.size;
+        return list;
+    }
+
+    /**
+     * Left folds this list.
+     *
+     * @param initial
+     *            The initial accumulator value.
+     * @param step
+     *            Fold step, called with (element, accumulator).
+     * @return The result.
+     */
+    public float reduce(final float initial, final FloatFoldStep step)
+    {
+        float acc = initial;
+        for (int i = 0; i < this.size; i++)
+        {
+            acc = step.applyFoldStep(this.data[i], acc);
+        }
+        return acc;
+    }
+
     /**
      * @see Object#toString()
      */
@@ -388,6 +747,17 @@ public class FloatList implements RandomAccess, Cloneable, Serializable
         }
     }
 
+    /**
+     * Reorders this list, element <code>i</code> becomes element
+     * <code>perm[i]</code> of the old order.
+     */
+    void permute(final int[] perm)
+    {
+        final float[] d = new float[this.maxSize];
+        Sorts.permute(this.data, perm, d);
+        this.data = d;
+    }
+
     /**
      * Grows this list if required.
      *
@@ -398,8 +768,63 @@ public class FloatList implements RandomAccess, Cloneable, Serializable
     {
         if (required > this.maxSize)
         {
-            this.maxSize = ((this.maxSize * 3) >>> 1) + 1;
+            this.maxSize = Math.max(required, ((this.maxSize * 3) >>> 1) + 1);
             this.data = Arrays.copyOf(this.data, this.maxSize);
         }
     }
+
+    /**
+     * Checks the range <code>[from, to[</code> against this list's size.
+     */
+    private void checkRange(final int from, final int to)
+    {
+        if (from < 0 || to > this.size || from > to) throw new ArrayIndexOutOfBoundsException("Invalid range [" + from + ", " + to + "[, size is " + this.size);
+    }
+
+    private static double sum(final float[] d, final int from, final int to)
+    {
+        double sum = 0;
+        for (int i = from; i < to; i++)
+        {
+            sum += d[i];
+        }
+        return sum;
+    }
+
+    private static void mapInPlace(final float[] d, final int from, final int to, final FloatMapping mapping)
+    {
+        for (int i = from; i < to; i++)
+        {
+            d[i] = mapping.applyMapping(d[i]);
+        }
+    }
+
+    /**
+     * Cursor implementation.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     */
+    private final static class Cursor implements FloatCursor
+    {
+        private final FloatList list;
+        private int             index = 0;
+
+        public Cursor(final FloatList list)
+        {
+            this.list = list;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.index < this.list.size;
+        }
+
+        @Override
+        public float next()
+        {
+            if (this.index >= this.list.size) throw new NoSuchElementException();
+            return this.list.data[this.index++];
+        }
+    }
 }
@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * {@code int} to object hash map.
+ *
+ * <p>
+ * Open addressing with linear probing, keys and values are stored in parallel
+ * arrays so there are no per-entry objects. The key {@code 0} marks free
+ * slots and is stored separately.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ * @param <V>
+ */
+public class IntObjectMap<V> implements Cloneable, Serializable
+{
+    /** serialVersionUID */
+    private static final long          serialVersionUID = 8226168818206780708L;
+    /** Initial size. */
+    private transient final static int INIT_SIZE        = 16;
+    /** Load factor. */
+    private final static float         LOAD_FACTOR      = 0.75f;
+    /** Keys, {@code 0} means free. */
+    private transient int[]            keys;
+    /** Values. */
+    private transient Object[]         values;
+    /** Whether the key {@code 0} is contained. */
+    private transient boolean          hasZeroKey;
+    /** Value of key {@code 0}. */
+    private transient V                zeroValue;
+    /** Number of entries. */
+    private int                        size;
+    /** Table size - 1. */
+    private transient int              mask;
+    /** Size at which the table grows. */
+    private transient int              threshold;
+
+    /**
+     * Creates a map with default initial capacity.
+     */
+    public IntObjectMap()
+    {
+        this(INIT_SIZE);
+    }
+
+    /**
+     * Creates a map able to hold the given number of entries without growing.
+     *
+     * @param expectedSize
+     *            Expected number of entries.
+     */
+    public IntObjectMap(final int expectedSize)
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size must not be less than 0");
+
+        this.allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Gets the size of this map.
+     *
+     * @return The size.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Checks if this map is empty.
+     *
+     * @return <code>true</code> if this map is empty.
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all entries without releasing storage.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.keys, 0);
+        Arrays.fill(this.values, null);
+        this.hasZeroKey = false;
+        this.zeroValue = null;
+        this.size = 0;
+    }
+
+    /**
+     * Makes sure this map can hold the given number of entries without growing.
+     *
+     * @param expectedSize
+     *            Expected number of entries.
+     */
+    public void ensureCapacity(final int expectedSize)
+    {
+        final int cap = tableSizeFor(expectedSize);
+        if (cap > this.keys.length) this.rehash(cap);
+    }
+
+    /**
+     * Checks if this map contains the given key.
+     *
+     * @param k
+     *            The key.
+     * @return <code>true</code> if the key is present.
+     */
+    public boolean containsKey(final int k)
+    {
+        if (k == 0) return this.hasZeroKey;
+        return this.slot(k) >= 0;
+    }
+
+    /**
+     * Gets the value for the given key.
+     *
+     * @param k
+     *            The key.
+     * @return The value or <code>null</code> if the key is not present.
+     */
+    public V get(final int k)
+    {
+        return this.get(k, null);
+    }
+
+    /**
+     * Gets the value for the given key.
+     *
+     * @param k
+     *            The key.
+     * @param defaultValue
+     *            Value to return if the key is not present.
+     * @return The value or <code>defaultValue</code>.
+     */
+    public V get(final int k, final V defaultValue)
+    {
+        if (k == 0) return this.hasZeroKey ? this.zeroValue : defaultValue;
+        final int i = this.slot(k);
+        return i >= 0 ? this.<V>cast(this.values[i]) : defaultValue;
+    }
+
+    /**
+     * Associates the given value with the given key.
+     *
+     * @param k
+     *            The key.
+     * @param v
+     *            The value.
+     * @return The previous value or <code>null</code>.
+     */
+    public V put(final int k, final V v)
+    {
+        if (k == 0)
+        {
+            final V old = this.zeroValue;
+            if (!this.hasZeroKey)
+            {
+                this.hasZeroKey = true;
+                this.size++;
+            }
+            this.zeroValue = v;
+            return old;
+        }
+        final int i = this.slot(k);
+        if (i >= 0)
+        {
+            final V old = this.<V>cast(this.values[i]);
+            this.values[i] = v;
+            return old;
+        }
+        this.insert(-i - 1, k, v);
+        return null;
+    }
+
+    /**
+     * Removes the given key.
+     *
+     * @param k
+     *            The key.
+     * @return The removed value or <code>null</code>.
+     */
+    public V remove(final int k)
+    {
+        if (k == 0)
+        {
+            if (!this.hasZeroKey) return null;
+            final V old = this.zeroValue;
+            this.hasZeroKey = false;
+            this.zeroValue = null;
+            this.size--;
+            return old;
+        }
+        final int i = this.slot(k);
+        if (i < 0) return null;
+        final V old = this.<V>cast(this.values[i]);
+        this.shiftKeys(i);
+        this.size--;
+        return old;
+    }
+
+    /**
+     * Puts all entries of the given map into this map.
+     *
+     * @param map
+     *            The map.
+     */
+    public void putAll(final IntObjectMap<? extends V> map)
+    {
+        this.ensureCapacity(this.size + map.size);
+        if (map.hasZeroKey) this.put(0, map.zeroValue);
+        final int[] ks = map.keys;
+        final Object[] vs = map.values;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) this.put(ks[i], this.<V>cast(vs[i]));
+        }
+    }
+
+    /**
+     * Puts all given key/value pairs into this map.
+     *
+     * @param ks
+     *            The keys.
+     * @param vs
+     *            The values.
+     */
+    public void putAll(final int[] ks, final V[] vs)
+    {
+        if (ks.length != vs.length) throw new IllegalArgumentException("Key and value arrays differ in length");
+        this.ensureCapacity(this.size + ks.length);
+        for (int i = 0; i < ks.length; i++)
+        {
+            this.put(ks[i], vs[i]);
+        }
+    }
+
+    /**
+     * Calls the given visitor for each entry of this map.
+     *
+     * @param visitor
+     *            The visitor.
+     */
+    public void forEach(final Visitor<? super V> visitor)
+    {
+        if (this.hasZeroKey) visitor.visit(0, this.zeroValue);
+        final int[] ks = this.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) visitor.visit(ks[i], this.<V>cast(this.values[i]));
+        }
+    }
+
+    /**
+     * Returns the keys of this map.
+     *
+     * @return The keys in table order.
+     */
+    public int[] keys()
+    {
+        final int[] ret = new int[this.size];
+        int n = 0;
+        if (this.hasZeroKey) n++;
+        final int[] ks = this.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) ret[n++] = ks[i];
+        }
+        return ret;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        boolean second = false;
+        if (this.hasZeroKey)
+        {
+            sb.append(0);
+            sb.append('=');
+            sb.append(this.zeroValue);
+            second = true;
+        }
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0)
+            {
+                if (second) sb.append(',');
+                second = true;
+                sb.append(this.keys[i]);
+                sb.append('=');
+                sb.append(this.values[i]);
+            }
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * @see Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = 0;
+        if (this.hasZeroKey) hash += (this.zeroValue == null ? 0 : this.zeroValue.hashCode());
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0) hash += hash(this.keys[i]) ^ (this.values[i] == null ? 0 : this.values[i].hashCode());
+        }
+        return hash;
+    }
+
+    /**
+     * @see Object#equals(Object)
+     */
+    @Override
+    public boolean equals(final Object other)
+    {
+        if (other == this)
+        {
+            return true;
+        }
+
+        if (!(other instanceof IntObjectMap))
+        {
+            return false;
+        }
+
+        final IntObjectMap<?> map = (IntObjectMap<?>)other;
+
+        if (map.size != this.size || map.hasZeroKey != this.hasZeroKey)
+        {
+            return false;
+        }
+
+        if (this.hasZeroKey && !((this.zeroValue == null ? map.zeroValue == null : this.zeroValue.equals(map.zeroValue))))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            final int k = this.keys[i];
+            if (k != 0)
+            {
+                final int j = map.slot(k);
+                if (j < 0 || !((this.values[i] == null ? map.values[j] == null : this.values[i].equals(map.values[j]))))
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns a clone of this map.
+     */
+    @Override
+    public IntObjectMap<V> clone()
+    {
+        final IntObjectMap<V> map = new IntObjectMap<>(0);
+        map.keys = this.keys.clone();
+        map.values = this.values.clone();
+        map.hasZeroKey = this.hasZeroKey;
+        map.zeroValue = this.zeroValue;
+        map.size = this.size;
+        map.mask = this.mask;
+        map.threshold = this.threshold;
+        return map;
+    }
+
+    /**
+     * Serialize object.
+     *
+     * @param out
+     *            Output stream.
+     * @throws IOException
+     *             on IO error.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        if (this.hasZeroKey)
+        {
+            out.writeInt(0);
+            out.writeObject(this.zeroValue);
+        }
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0)
+            {
+                out.writeInt(this.keys[i]);
+                out.writeObject(this.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Deserialize object.
+     *
+     * @param in
+     *            Input stream.
+     * @throws IOException
+     *             on IO error.
+     * @throws ClassNotFoundException
+     *             on class not found.
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        final int n = this.size;
+        this.size = 0;
+        this.allocate(tableSizeFor(n));
+        for (int i = 0; i < n; i++)
+        {
+            final int k = in.readInt();
+            this.put(k, this.<V>cast(in.readObject()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(final Object v)
+    {
+        return (T)v;
+    }
+
+    private static int hash(final int k)
+    {
+        final int h = k * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(final int expectedSize)
+    {
+        final long required = Math.max(4L, (long)Math.ceil(expectedSize / (double)LOAD_FACTOR) + 1);
+        if (required > (1 << 30)) return 1 << 30;
+        return Integer.highestOneBit((int)required - 1) << 1;
+    }
+
+    private void allocate(final int cap)
+    {
+        this.keys = new int[cap];
+        this.values = new Object[cap];
+        this.mask = cap - 1;
+        this.threshold = (int)(cap * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the slot of the given key or <code>-(free slot) - 1</code> if the
+     * key is not present.
+     */
+    private int slot(final int k)
+    {
+        final int[] ks = this.keys;
+        int i = hash(k) & this.mask;
+        for (;;)
+        {
+            final int c = ks[i];
+            if (c == 0) return -i - 1;
+            if (c == k) return i;
+            i = (i + 1) & this.mask;
+        }
+    }
+
+    private void insert(final int slot, final int k, final V v)
+    {
+        this.keys[slot] = k;
+        this.values[slot] = v;
+        if (++this.size > this.threshold) this.rehash(this.keys.length << 1);
+    }
+
+    /**
+     * Backward shift deletion, keeps probe sequences intact without
+     * tombstones.
+     */
+    private void shiftKeys(final int slot)
+    {
+        final int[] ks = this.keys;
+        int pos = slot;
+        for (;;)
+        {
+            final int last = pos;
+            pos = (pos + 1) & this.mask;
+            int k;
+            for (;;)
+            {
+                if ((k = ks[pos]) == 0)
+                {
+                    ks[last] = 0;
+                    this.values[last] = null;
+                    return;
+                }
+                final int s = hash(k) & this.mask;
+                if (last <= pos ? (last >= s || s > pos) : (last >= s && s > pos)) break;
+                pos = (pos + 1) & this.mask;
+            }
+            ks[last] = k;
+            this.values[last] = this.values[pos];
+        }
+    }
+
+    private void rehash(final int cap)
+    {
+        final int[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.allocate(cap);
+        final int[] ks = this.keys;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            final int k = oldKeys[j];
+            if (k != 0)
+            {
+                int i = hash(k) & this.mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & this.mask;
+                ks[i] = k;
+                this.values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Entry visitor.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     * @param <V>
+     */
+    public interface Visitor<V>
+    {
+        public void visit(int key, V value);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+/**
+ * Non-boxing {@code long} iterator.
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public interface LongCursor
+{
+    /**
+     * Checks if there are more elements.
+     *
+     * @return <code>true</code> if there are more elements.
+     */
+    public boolean hasNext();
+
+    /**
+     * Gets the next element.
+     *
+     * @return The next element.
+     * @throws java.util.NoSuchElementException
+     *             if there are no more elements
+     */
+    public long next();
+}
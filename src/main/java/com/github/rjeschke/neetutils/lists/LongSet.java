@@ -0,0 +1,552 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * {@code long} hash set.
+ *
+ * <p>
+ * Open addressing with linear probing, there are no per-element objects. The
+ * value {@code 0} marks free slots and is stored separately.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class LongSet implements Cloneable, Serializable
+{
+    /** serialVersionUID */
+    private static final long          serialVersionUID = 2995121992928194317L;
+    /** Initial size. */
+    private transient final static int INIT_SIZE        = 16;
+    /** Load factor. */
+    private final static float         LOAD_FACTOR      = 0.75f;
+    /** Elements, {@code 0} means free. */
+    private transient long[]           keys;
+    /** Whether {@code 0} is contained. */
+    private transient boolean          hasZeroKey;
+    /** Number of elements. */
+    private int                        size;
+    /** Table size - 1. */
+    private transient int              mask;
+    /** Size at which the table grows. */
+    private transient int              threshold;
+
+    /**
+     * Creates a set with default initial capacity.
+     */
+    public LongSet()
+    {
+        this(INIT_SIZE);
+    }
+
+    /**
+     * Creates a set able to hold the given number of elements without growing.
+     *
+     * @param expectedSize
+     *            Expected number of elements.
+     */
+    public LongSet(final int expectedSize)
+    {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size must not be less than 0");
+
+        this.allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns a set containing the given values.
+     *
+     * @param values
+     *            Values to create the set from.
+     * @return The set.
+     */
+    public static LongSet fromArray(final long... values)
+    {
+        final LongSet set = new LongSet(values.length);
+        set.addAll(values);
+        return set;
+    }
+
+    /**
+     * Gets the size of this set.
+     *
+     * @return The size.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Checks if this set is empty.
+     *
+     * @return <code>true</code> if this set is empty.
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all elements without releasing storage.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.keys, 0L);
+        this.hasZeroKey = false;
+        this.size = 0;
+    }
+
+    /**
+     * Makes sure this set can hold the given number of elements without
+     * growing.
+     *
+     * @param expectedSize
+     *            Expected number of elements.
+     */
+    public void ensureCapacity(final int expectedSize)
+    {
+        final int cap = tableSizeFor(expectedSize);
+        if (cap > this.keys.length) this.rehash(cap);
+    }
+
+    /**
+     * Checks if this set contains the given value.
+     *
+     * @param k
+     *            The value.
+     * @return <code>true</code> if the value is present.
+     */
+    public boolean contains(final long k)
+    {
+        if (k == 0) return this.hasZeroKey;
+        return this.slot(k) >= 0;
+    }
+
+    /**
+     * Adds the given value.
+     *
+     * @param k
+     *            The value.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean add(final long k)
+    {
+        if (k == 0)
+        {
+            if (this.hasZeroKey) return false;
+            this.hasZeroKey = true;
+            this.size++;
+            return true;
+        }
+        final int i = this.slot(k);
+        if (i >= 0) return false;
+        this.keys[-i - 1] = k;
+        if (++this.size > this.threshold) this.rehash(this.keys.length << 1);
+        return true;
+    }
+
+    /**
+     * Removes the given value.
+     *
+     * @param k
+     *            The value.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean remove(final long k)
+    {
+        if (k == 0)
+        {
+            if (!this.hasZeroKey) return false;
+            this.hasZeroKey = false;
+            this.size--;
+            return true;
+        }
+        final int i = this.slot(k);
+        if (i < 0) return false;
+        this.shiftKeys(i);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Adds all given values.
+     *
+     * @param values
+     *            The values.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean addAll(final long... values)
+    {
+        this.ensureCapacity(this.size + values.length);
+        boolean changed = false;
+        for (int i = 0; i < values.length; i++)
+        {
+            changed |= this.add(values[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * Adds all values of the given list.
+     *
+     * @param list
+     *            The list.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean addAll(final LongList list)
+    {
+        this.ensureCapacity(this.size + list.size());
+        boolean changed = false;
+        for (int i = 0; i < list.size(); i++)
+        {
+            changed |= this.add(list.get(i));
+        }
+        return changed;
+    }
+
+    /**
+     * Adds all values of the given set.
+     *
+     * @param set
+     *            The set.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean addAll(final LongSet set)
+    {
+        this.ensureCapacity(this.size + set.size);
+        boolean changed = set.hasZeroKey && this.add((long)0);
+        final long[] ks = set.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) changed |= this.add(ks[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes all values contained in the given set.
+     *
+     * @param set
+     *            The set.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean removeAll(final LongSet set)
+    {
+        boolean changed = set.hasZeroKey && this.remove((long)0);
+        final long[] ks = set.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) changed |= this.remove(ks[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes all values not contained in the given set.
+     *
+     * @param set
+     *            The set.
+     * @return <code>true</code> if the set changed.
+     */
+    public boolean retainAll(final LongSet set)
+    {
+        boolean changed = false;
+        if (this.hasZeroKey && !set.hasZeroKey)
+        {
+            this.remove((long)0);
+            changed = true;
+        }
+        final long[] ks = this.keys;
+        for (int i = 0; i < ks.length;)
+        {
+            // shiftKeys may move an unvisited element into slot i
+            if (ks[i] != 0 && !set.contains(ks[i]))
+            {
+                this.shiftKeys(i);
+                this.size--;
+                changed = true;
+            }
+            else
+            {
+                i++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Calls the given visitor for each element of this set.
+     *
+     * @param visitor
+     *            The visitor.
+     */
+    public void forEach(final Visitor visitor)
+    {
+        if (this.hasZeroKey) visitor.visit(0);
+        final long[] ks = this.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) visitor.visit(ks[i]);
+        }
+    }
+
+    /**
+     * Returns the elements of this set as an array.
+     *
+     * @return The elements in table order.
+     */
+    public long[] toArray()
+    {
+        final long[] ret = new long[this.size];
+        int n = 0;
+        if (this.hasZeroKey) n++;
+        final long[] ks = this.keys;
+        for (int i = 0; i < ks.length; i++)
+        {
+            if (ks[i] != 0) ret[n++] = ks[i];
+        }
+        return ret;
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        boolean second = false;
+        if (this.hasZeroKey)
+        {
+            sb.append(0);
+            second = true;
+        }
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0)
+            {
+                if (second) sb.append(',');
+                second = true;
+                sb.append(this.keys[i]);
+            }
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * @see Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        int hash = 0;
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0) hash += hash(this.keys[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @see Object#equals(Object)
+     */
+    @Override
+    public boolean equals(final Object other)
+    {
+        if (other == this)
+        {
+            return true;
+        }
+
+        if (!(other instanceof LongSet))
+        {
+            return false;
+        }
+
+        final LongSet set = (LongSet)other;
+
+        if (set.size != this.size || set.hasZeroKey != this.hasZeroKey)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0 && set.slot(this.keys[i]) < 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns a clone of this set.
+     */
+    @Override
+    public LongSet clone()
+    {
+        final LongSet set = new LongSet(0);
+        set.keys = this.keys.clone();
+        set.hasZeroKey = this.hasZeroKey;
+        set.size = this.size;
+        set.mask = this.mask;
+        set.threshold = this.threshold;
+        return set;
+    }
+
+    /**
+     * Serialize object.
+     *
+     * @param out
+     *            Output stream.
+     * @throws IOException
+     *             on IO error.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException
+    {
+        out.defaultWriteObject();
+        if (this.hasZeroKey) out.writeLong(0);
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != 0) out.writeLong(this.keys[i]);
+        }
+    }
+
+    /**
+     * Deserialize object.
+     *
+     * @param in
+     *            Input stream.
+     * @throws IOException
+     *             on IO error.
+     * @throws ClassNotFoundException
+     *             on class not found.
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        final int n = this.size;
+        this.size = 0;
+        this.allocate(tableSizeFor(n));
+        for (int i = 0; i < n; i++)
+        {
+            this.add(in.readLong());
+        }
+    }
+
+    private static int hash(final long k)
+    {
+        final long h = k * 0x9e3779b97f4a7c15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(final int expectedSize)
+    {
+        final long required = Math.max(4L, (long)Math.ceil(expectedSize / (double)LOAD_FACTOR) + 1);
+        if (required > (1 << 30)) return 1 << 30;
+        return Integer.highestOneBit((int)required - 1) << 1;
+    }
+
+    private void allocate(final int cap)
+    {
+        this.keys = new long[cap];
+        this.mask = cap - 1;
+        this.threshold = (int)(cap * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the slot of the given value or <code>-(free slot) - 1</code> if
+     * the value is not present.
+     */
+    private int slot(final long k)
+    {
+        final long[] ks = this.keys;
+        int i = hash(k) & this.mask;
+        for (;;)
+        {
+            final long c = ks[i];
+            if (c == 0) return -i - 1;
+            if (c == k) return i;
+            i = (i + 1) & this.mask;
+        }
+    }
+
+    /**
+     * Backward shift deletion, keeps probe sequences intact without
+     * tombstones.
+     */
+    private void shiftKeys(final int slot)
+    {
+        final long[] ks = this.keys;
+        int pos = slot;
+        for (;;)
+        {
+            final int last = pos;
+            pos = (pos + 1) & this.mask;
+            long k;
+            for (;;)
+            {
+                if ((k = ks[pos]) == 0)
+                {
+                    ks[last] = 0;
+                    return;
+                }
+                final int s = hash(k) & this.mask;
+                if (last <= pos ? (last >= s || s > pos) : (last >= s && s > pos)) break;
+                pos = (pos + 1) & this.mask;
+            }
+            ks[last] = k;
+        }
+    }
+
+    private void rehash(final int cap)
+    {
+        final long[] oldKeys = this.keys;
+        this.allocate(cap);
+        final long[] ks = this.keys;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            final long k = oldKeys[j];
+            if (k != 0)
+            {
+                int i = hash(k) & this.mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & this.mask;
+                ks[i] = k;
+            }
+        }
+    }
+
+    /**
+     * Element visitor.
+     *
+     * @author René Jeschke (rene_jeschke@yahoo.de)
+     */
+    public interface Visitor
+    {
+        public void visit(long value);
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import com.github.rjeschke.neetutils.dispose.Disposer;
+
+/**
+ * Off-heap long list for data sets larger than the Java heap.
+ *
+ * <p>
+ * Elements live in fixed size segments, either direct buffers or mappings of a
+ * file, indices are {@code long}s. Memory is released by {@link #close()}
+ * or, as a fallback, when the list gets garbage collected. A mapped list
+ * persists its contents, the element count is written on {@link #flush()}
+ * and {@link #close()}.
+ * </p>
+ *
+ * <p>
+ * Direct lists are limited by {@code -XX:MaxDirectMemorySize} (which defaults
+ * to the maximum heap size), mapped lists only by the file system.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public class OffHeapLongList implements Closeable
+{
+    /** Default segment size in elements. */
+    public final static int      DEFAULT_SEGMENT_SIZE = 524288;
+    /** Element size in bytes. */
+    private final static int     ELEMENT_BYTES        = 8;
+    /** Maximum segment size in elements. */
+    private final static int     MAX_SEGMENT_SIZE     = (1 << 30) / ELEMENT_BYTES;
+    /** Backing storage. */
+    private final OffHeapStorage storage;
+    /** Disposer releasing the storage. */
+    private final Disposer       disposer;
+    /** Segment views. */
+    private LongBuffer[]         segments             = new LongBuffer[0];
+    /** Number of elements. */
+    private long                 size                 = 0;
+    /** Segment size, shift and mask. */
+    private final int            segmentSize, shift, mask;
+
+    /**
+     * Creates a list using direct buffers with default segment size.
+     */
+    public OffHeapLongList()
+    {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a list using direct buffers.
+     *
+     * @param segmentSize
+     *            The segment size in elements (gets rounded up to next pow2).
+     */
+    public OffHeapLongList(final int segmentSize)
+    {
+        this(checkSegmentSize(segmentSize), null);
+    }
+
+    private OffHeapLongList(final int segmentSize, final OffHeapStorage storage)
+    {
+        this.segmentSize = segmentSize;
+        this.shift = Integer.numberOfTrailingZeros(segmentSize);
+        this.mask = segmentSize - 1;
+        this.storage = storage != null ? storage : new OffHeapStorage(segmentSize * ELEMENT_BYTES);
+        this.disposer = new Disposer(this, this.storage);
+    }
+
+    /**
+     * Opens or creates a list backed by the given file using the default
+     * segment size.
+     *
+     * @param file
+     *            The file.
+     * @return The list.
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    public static OffHeapLongList map(final File file) throws IOException
+    {
+        return map(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens or creates a list backed by the given file. Existing files must be
+     * reopened with the same segment size.
+     *
+     * @param file
+     *            The file.
+     * @param segmentSize
+     *            The segment size in elements (gets rounded up to next pow2).
+     * @return The list.
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    public static OffHeapLongList map(final File file, final int segmentSize) throws IOException
+    {
+        final int segSize = checkSegmentSize(segmentSize);
+        final OffHeapStorage storage = new OffHeapStorage(file, segSize * ELEMENT_BYTES, false);
+        final OffHeapLongList list = new OffHeapLongList(segSize, storage);
+        try
+        {
+            final long stored = storage.getStoredSize();
+            if (stored < 0 || stored > (file.length() - 8) / ELEMENT_BYTES) throw new IOException("Invalid list file: " + file);
+            final int segs = (int)((stored + list.mask) >>> list.shift);
+            list.segments = new LongBuffer[segs];
+            for (int i = 0; i < segs; i++)
+            {
+                list.segments[i] = storage.segment(i).asLongBuffer();
+            }
+            list.size = stored;
+        }
+        catch (final IOException e)
+        {
+            list.disposer.dispose();
+            throw e;
+        }
+        return list;
+    }
+
+    /**
+     * Gets the size of this list.
+     *
+     * @return The size.
+     */
+    public long size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Checks if this list is empty.
+     *
+     * @return <code>true</code> if this list is empty.
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Checks if this list is mapped to a file.
+     *
+     * @return <code>true</code> if this list is mapped to a file.
+     */
+    public boolean isMapped()
+    {
+        return this.storage.isMapped();
+    }
+
+    /**
+     * Adds a value to the end of this list.
+     *
+     * @param value
+     *            The value.
+     */
+    public void add(final long value)
+    {
+        final int seg = (int)(this.size >>> this.shift);
+        if (seg == this.segments.length) this.grow();
+        this.segments[seg].put((int)this.size & this.mask, value);
+        this.size++;
+    }
+
+    /**
+     * Adds the given values to the end of this list.
+     *
+     * @param values
+     *            The values.
+     * @param offset
+     *            Offset into <code>values</code>.
+     * @param length
+     *            Number of values to add.
+     */
+    public void addAll(final long[] values, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > values.length) throw new ArrayIndexOutOfBoundsException("Invalid range [" + offset + ", " + (offset + length) + "[");
+        int off = offset;
+        int left = length;
+        while (left > 0)
+        {
+            final int seg = (int)(this.size >>> this.shift);
+            if (seg == this.segments.length) this.grow();
+            final int pos = (int)this.size & this.mask;
+            final int todo = Math.min(left, this.segmentSize - pos);
+            final LongBuffer b = this.segments[seg];
+            b.position(pos);
+            b.put(values, off, todo);
+            off += todo;
+            left -= todo;
+            this.size += todo;
+        }
+    }
+
+    /**
+     * Gets the value at the given index.
+     *
+     * @param index
+     *            The index.
+     * @return The value.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if index is out of range
+     */
+    public long get(final long index)
+    {
+        if (index < 0 || index >= this.size) throw new ArrayIndexOutOfBoundsException("Got " + index + ", range is [0, " + this.size + "[");
+        return this.segments[(int)(index >>> this.shift)].get((int)index & this.mask);
+    }
+
+    /**
+     * Copies values starting at the given index into an array.
+     *
+     * @param index
+     *            The start index.
+     * @param dest
+     *            The destination array.
+     * @param offset
+     *            Offset into <code>dest</code>.
+     * @param length
+     *            Number of values to copy.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if a range is invalid
+     */
+    public void get(final long index, final long[] dest, final int offset, final int length)
+    {
+        if (index < 0 || length < 0 || index + length > this.size) throw new ArrayIndexOutOfBoundsException("Invalid range [" + index + ", " + (index + length) + "[, range is [0, " + this.size + "[");
+        if (offset < 0 || offset + length > dest.length) throw new ArrayIndexOutOfBoundsException("Invalid range [" + offset + ", " + (offset + length) + "[");
+        long i = index;
+        int off = offset;
+        int left = length;
+        while (left > 0)
+        {
+            final int pos = (int)i & this.mask;
+            final int todo = Math.min(left, this.segmentSize - pos);
+            final LongBuffer b = this.segments[(int)(i >>> this.shift)];
+            b.position(pos);
+            b.get(dest, off, todo);
+            i += todo;
+            off += todo;
+            left -= todo;
+        }
+    }
+
+    /**
+     * Sets a new value at index.
+     *
+     * @param index
+     *            The index.
+     * @param value
+     *            The value.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if index is out of range
+     */
+    public void set(final long index, final long value)
+    {
+        if (index < 0 || index >= this.size) throw new ArrayIndexOutOfBoundsException("Got " + index + ", range is [0, " + this.size + "[");
+        this.segments[(int)(index >>> this.shift)].put((int)index & this.mask, value);
+    }
+
+    /**
+     * Sets a new value at index, returns the old value at that index.
+     *
+     * @param index
+     *            The index.
+     * @param value
+     *            The value.
+     * @return Old value at index.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if index is out of range
+     */
+    public long getAndSet(final long index, final long value)
+    {
+        if (index < 0 || index >= this.size) throw new ArrayIndexOutOfBoundsException("Got " + index + ", range is [0, " + this.size + "[");
+        final LongBuffer b = this.segments[(int)(index >>> this.shift)];
+        final int pos = (int)index & this.mask;
+        final long ret = b.get(pos);
+        b.put(pos, value);
+        return ret;
+    }
+
+    /**
+     * Removes all elements, keeps allocated segments.
+     */
+    public void clear()
+    {
+        this.size = 0;
+    }
+
+    /**
+     * Sorts this list ascending.
+     *
+     * <p>
+     * Each segment is sorted on heap, sorted segments are then merged using a
+     * temporary storage of the same kind as this list.
+     * </p>
+     */
+    public void sort()
+    {
+        if (this.size < 2) return;
+        final long[] tmp = new long[(int)Math.min(this.segmentSize, this.size)];
+        for (long start = 0; start < this.size; start += this.segmentSize)
+        {
+            final int len = (int)Math.min(this.segmentSize, this.size - start);
+            final LongBuffer b = this.segments[(int)(start >>> this.shift)];
+            b.position(0);
+            b.get(tmp, 0, len);
+            Arrays.sort(tmp, 0, len);
+            b.position(0);
+            b.put(tmp, 0, len);
+        }
+        if (this.size <= this.segmentSize) return;
+
+        OffHeapStorage temp = null;
+        try
+        {
+            temp = this.storage.createTemporary();
+            final LongBuffer[] other = new LongBuffer[this.segments.length];
+            for (int i = 0; i < other.length; i++)
+            {
+                other[i] = temp.segment(i).asLongBuffer();
+            }
+            LongBuffer[] src = this.segments;
+            LongBuffer[] dst = other;
+            for (long width = this.segmentSize; width < this.size; width <<= 1)
+            {
+                for (long lo = 0; lo < this.size; lo += width << 1)
+                {
+                    final long mid = Math.min(lo + width, this.size);
+                    final long hi = Math.min(mid + width, this.size);
+                    this.merge(src, dst, lo, mid, hi);
+                }
+                final LongBuffer[] t = src;
+                src = dst;
+                dst = t;
+            }
+            if (src != this.segments)
+            {
+                for (long start = 0; start < this.size; start += this.segmentSize)
+                {
+                    final int seg = (int)(start >>> this.shift);
+                    final int len = (int)Math.min(this.segmentSize, this.size - start);
+                    src[seg].position(0);
+                    src[seg].get(tmp, 0, len);
+                    this.segments[seg].position(0);
+                    this.segments[seg].put(tmp, 0, len);
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException("Failed to allocate temporary storage", e);
+        }
+        finally
+        {
+            if (temp != null) temp.dispose();
+        }
+    }
+
+    /**
+     * Copies this list's contents into a newly created array.
+     *
+     * @return the array.
+     * @throws IllegalStateException
+     *             if this list is too large for an array
+     */
+    public long[] toArray()
+    {
+        if (this.size > Integer.MAX_VALUE - 8) throw new IllegalStateException("List too large for an array: " + this.size);
+        final long[] ret = new long[(int)this.size];
+        this.get(0, ret, 0, ret.length);
+        return ret;
+    }
+
+    /**
+     * Writes the element count of a mapped list and forces all changes to
+     * disk. Does nothing for direct lists.
+     */
+    public void flush()
+    {
+        this.storage.setStoredSize(this.size);
+        this.storage.force();
+    }
+
+    /**
+     * Releases this list's memory, flushes and closes a mapped list. This
+     * list must not be used afterwards.
+     *
+     * @throws IOException
+     *             if an IO error occurred.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.disposer.isDisposed()) return;
+        this.storage.setStoredSize(this.size);
+        this.segments = new LongBuffer[0];
+        this.size = 0;
+        try
+        {
+            this.storage.close();
+        }
+        finally
+        {
+            this.disposer.dispose();
+        }
+    }
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        final long n = Math.min(this.size, 32);
+        for (long i = 0; i < n; i++)
+        {
+            if (i > 0) sb.append(',');
+            sb.append(this.get(i));
+        }
+        if (n < this.size) sb.append(",...");
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private void grow()
+    {
+        final int seg = this.segments.length;
+        try
+        {
+            final LongBuffer b = this.storage.segment(seg).asLongBuffer();
+            this.segments = Arrays.copyOf(this.segments, seg + 1);
+            this.segments[seg] = b;
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException("Failed to map segment " + seg, e);
+        }
+    }
+
+    private void merge(final LongBuffer[] src, final LongBuffer[] dst, final long lo, final long mid, final long hi)
+    {
+        final int sh = this.shift, m = this.mask;
+        long i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+        {
+            final long a = src[(int)(i >>> sh)].get((int)i & m);
+            final long b = src[(int)(j >>> sh)].get((int)j & m);
+            if (a <= b)
+            {
+                dst[(int)(k >>> sh)].put((int)k & m, a);
+                i++;
+            }
+            else
+            {
+                dst[(int)(k >>> sh)].put((int)k & m, b);
+                j++;
+            }
+            k++;
+        }
+        for (; i < mid; i++, k++)
+        {
+            dst[(int)(k >>> sh)].put((int)k & m, src[(int)(i >>> sh)].get((int)i & m));
+        }
+        for (; j < hi; j++, k++)
+        {
+            dst[(int)(k >>> sh)].put((int)k & m, src[(int)(j >>> sh)].get((int)j & m));
+        }
+    }
+
+    private static int checkSegmentSize(final int segmentSize)
+    {
+        if (segmentSize < 1 || segmentSize > MAX_SEGMENT_SIZE) throw new IllegalArgumentException("Segment size must be in [1, " + MAX_SEGMENT_SIZE + "]");
+        return segmentSize == 1 ? 1 : Integer.highestOneBit(segmentSize - 1) << 1;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.github.rjeschke.neetutils.dispose.Disposable;
+import com.github.rjeschke.neetutils.io.DirectBuffers;
+
+/**
+ * Segmented off-heap storage for the {@code OffHeap*List} classes.
+ *
+ * <p>
+ * Segments are either direct {@code ByteBuffer}s or mappings of a file. Mapped
+ * files start with an 8 byte header holding the element count, followed by the
+ * data in little endian byte order.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+final class OffHeapStorage implements Disposable
+{
+    /** Header size for mapped files. */
+    private final static int HEADER_SIZE = 8;
+
+    private final int        segmentBytes;
+    private final File       file;
+    private final boolean    temporary;
+    private RandomAccessFile raf;
+    private FileChannel      channel;
+    private MappedByteBuffer header;
+    private ByteBuffer[]     segments    = new ByteBuffer[0];
+    private boolean          closed      = false;
+
+    /**
+     * Creates a storage using direct buffers.
+     */
+    OffHeapStorage(final int segmentBytes)
+    {
+        this.segmentBytes = segmentBytes;
+        this.file = null;
+        this.temporary = false;
+    }
+
+    /**
+     * Creates a storage mapping the given file.
+     */
+    OffHeapStorage(final File file, final int segmentBytes, final boolean temporary) throws IOException
+    {
+        this.segmentBytes = segmentBytes;
+        this.file = file;
+        this.temporary = temporary;
+        this.raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            this.channel = this.raf.getChannel();
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.header.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        catch (final IOException e)
+        {
+            this.raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty storage of the same kind (direct or mapped) as this one,
+     * used as scratch space.
+     */
+    OffHeapStorage createTemporary() throws IOException
+    {
+        if (this.file == null)
+        {
+            return new OffHeapStorage(this.segmentBytes);
+        }
+        final File tmp = File.createTempFile("neetutils-", ".tmp", this.file.getAbsoluteFile().getParentFile());
+        tmp.deleteOnExit();
+        return new OffHeapStorage(tmp, this.segmentBytes, true);
+    }
+
+    boolean isMapped()
+    {
+        return this.file != null;
+    }
+
+    /**
+     * Gets the element count stored in the file header, <code>0</code> for
+     * direct storages.
+     */
+    long getStoredSize()
+    {
+        return this.header != null ? this.header.getLong(0) : 0;
+    }
+
+    /**
+     * Writes the element count into the file header.
+     */
+    void setStoredSize(final long size)
+    {
+        if (this.header != null) this.header.putLong(0, size);
+    }
+
+    /**
+     * Gets (and allocates if necessary) the segment with the given index.
+     */
+    ByteBuffer segment(final int index) throws IOException
+    {
+        if (this.closed) throw new IllegalStateException("Storage is closed");
+        if (index >= this.segments.length)
+        {
+            this.segments = Arrays.copyOf(this.segments, Math.max(index + 1, this.segments.length << 1));
+        }
+        ByteBuffer seg = this.segments[index];
+        if (seg == null)
+        {
+            if (this.channel != null)
+            {
+                seg = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long)index * this.segmentBytes, this.segmentBytes);
+                seg.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            else
+            {
+                seg = ByteBuffer.allocateDirect(this.segmentBytes);
+                seg.order(ByteOrder.nativeOrder());
+            }
+            this.segments[index] = seg;
+        }
+        return seg;
+    }
+
+    /**
+     * Forces all changes of a mapped storage to disk.
+     */
+    void force()
+    {
+        if (this.header == null) return;
+        this.header.force();
+        for (final ByteBuffer seg : this.segments)
+        {
+            if (seg != null) ((MappedByteBuffer)seg).force();
+        }
+    }
+
+    /**
+     * Releases all segments and closes the file (if any).
+     */
+    void close() throws IOException
+    {
+        if (this.closed) return;
+        this.closed = true;
+        if (this.header != null && !this.temporary) this.force();
+        for (int i = 0; i < this.segments.length; i++)
+        {
+            DirectBuffers.free(this.segments[i]);
+            this.segments[i] = null;
+        }
+        DirectBuffers.free(this.header);
+        this.header = null;
+        if (this.raf != null)
+        {
+            this.raf.close();
+            this.raf = null;
+            this.channel = null;
+            if (this.temporary) this.file.delete();
+        }
+    }
+
+    /** @see Disposable#dispose() */
+    @Override
+    public void dispose()
+    {
+        try
+        {
+            this.close();
+        }
+        catch (final IOException e)
+        {
+            // ignore
+        }
+    }
+}
@@ -220,6 +220,17 @@ public class ShortList implements RandomAccess, Cloneable, Serializable
         Arrays.sort(this.data, 0, this.size);
     }
 
+    /**
+     * Computes the stable sort order of this list.
+     *
+     * @return The indices of this list's elements in sorted order.
+     * @see Sorts#argsort(short[], int, int)
+     */
+    public int[] argsort()
+    {
+        return Sorts.argsort(this.data, 0, this.size);
+    }
+
     /**
      * Checks if this list contains the given value.
      *
@@ -0,0 +1,1144 @@
+/*
+ * Copyright (C) 2012 René Jeschke <rene_jeschke@yahoo.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rjeschke.neetutils.lists;
+
+import java.util.Arrays;
+
+import com.github.rjeschke.neetutils.concurrent.Parallel;
+import com.github.rjeschke.neetutils.concurrent.ParallelRange;
+
+/**
+ * Sorting of primitive arrays.
+ *
+ * <p>
+ * Picks between {@code Arrays.sort}, LSD radix sort and parallel chunked
+ * sorting with parallel merging depending on size and available cores. Argsort
+ * is a stable radix sort and runs in linear time.
+ * </p>
+ *
+ * @author René Jeschke (rene_jeschke@yahoo.de)
+ */
+public final class Sorts
+{
+    /** Minimum range size for radix sorting. */
+    public final static int   RADIX_THRESHOLD = 1 << 11;
+    /** Sign bit of an int. */
+    private final static int  SIGN_32         = 0x80000000;
+    /** Sign bit of a long. */
+    private final static long SIGN_64         = 0x8000000000000000L;
+
+    private Sorts()
+    {
+        // meh!
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final int[] src, final int[] perm, final int[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final long[] src, final int[] perm, final long[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final float[] src, final int[] perm, final float[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final double[] src, final int[] perm, final double[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final short[] src, final int[] perm, final short[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Applies the given permutation, <code>dest[i] = src[perm[i]]</code>.
+     *
+     * @param src
+     *            Source array.
+     * @param perm
+     *            The permutation.
+     * @param dest
+     *            Destination array.
+     */
+    public static void permute(final byte[] src, final int[] perm, final byte[] dest)
+    {
+        for (int i = 0; i < perm.length; i++)
+        {
+            dest[i] = src[perm[i]];
+        }
+    }
+
+    /**
+     * Sorts the given array ascending.
+     *
+     * @param a
+     *            The array.
+     * @see #sort(int[], int, int)
+     */
+    public static void sort(final int[] a)
+    {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts <code>[from, to[</code> of the given array ascending. Uses
+     * {@code Arrays.sort} for small ranges, LSD radix sort for larger ones
+     * and sorts chunks in parallel followed by parallel merging for large
+     * ranges on multi-core machines.
+     *
+     * @param a
+     *            The array.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     */
+    public static void sort(final int[] a, final int from, final int to)
+    {
+        checkRange(a.length, from, to);
+        final int n = to - from;
+        if (n < RADIX_THRESHOLD)
+        {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        final int chunks = Parallel.chunkCount(n, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2)
+        {
+            radixSort(a, from, to, new int[n], 0, SIGN_32);
+            return;
+        }
+        final int[] buf = new int[n];
+        final int[] bounds = bounds(from, n, chunks);
+        Parallel.forEachChunk(0, chunks, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int c0, final int c1)
+            {
+                final int lo = bounds[chunk], hi = bounds[chunk + 1];
+                radixSort(a, lo, hi, buf, lo - from, SIGN_32);
+            }
+        });
+        mergeRuns(a, buf, from, bounds);
+    }
+
+    /**
+     * Merges the sorted runs given by <code>bounds</code>, pairs of runs are
+     * merged in parallel.
+     */
+    private static void mergeRuns(final int[] a, final int[] buf, final int from, final int[] bounds)
+    {
+        int[] runs = new int[bounds.length];
+        for (int i = 0; i < runs.length; i++)
+        {
+            runs[i] = bounds[i] - from;
+        }
+        final int n = runs[runs.length - 1];
+        int[] src = a, dst = buf;
+        int srcOff = from, dstOff = 0;
+        while (runs.length > 2)
+        {
+            final int count = runs.length - 1;
+            final int merged = (count + 1) >> 1;
+            final int[] r = runs;
+            final int[] s = src, d = dst;
+            final int so = srcOff, dof = dstOff;
+            Parallel.forEachChunk(0, merged, merged, new ParallelRange()
+            {
+                @Override
+                public void apply(final int chunk, final int c0, final int c1)
+                {
+                    final int lo = r[2 * chunk];
+                    final int mid = r[Math.min(2 * chunk + 1, count)];
+                    final int hi = r[Math.min(2 * chunk + 2, count)];
+                    merge(s, so, d, dof, lo, mid, hi);
+                }
+            });
+            final int[] next = new int[merged + 1];
+            for (int i = 0; i < merged; i++)
+            {
+                next[i] = runs[2 * i];
+            }
+            next[merged] = n;
+            runs = next;
+            src = d;
+            dst = s;
+            srcOff = dof;
+            dstOff = so;
+        }
+        if (src != a) System.arraycopy(src, srcOff, a, from, n);
+    }
+
+    /**
+     * Merges <code>[lo, mid[</code> and <code>[mid, hi[</code> of
+     * <code>src</code> into <code>dst</code>, indices are relative to the
+     * given offsets.
+     */
+    private static void merge(final int[] src, final int so, final int[] dst, final int dof, final int lo, final int mid, final int hi)
+    {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+        {
+            final int x = src[so + i], y = src[so + j];
+            if (x <= y)
+            {
+                dst[dof + k++] = x;
+                i++;
+            }
+            else
+            {
+                dst[dof + k++] = y;
+                j++;
+            }
+        }
+        if (i < mid) System.arraycopy(src, so + i, dst, dof + k, mid - i);
+        if (j < hi) System.arraycopy(src, so + j, dst, dof + k, hi - j);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final int[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final int[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final int[] k = new int[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = keys[from + i] ^ SIGN_32;
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * Sorts the given array ascending.
+     *
+     * @param a
+     *            The array.
+     * @see #sort(long[], int, int)
+     */
+    public static void sort(final long[] a)
+    {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts <code>[from, to[</code> of the given array ascending. Uses
+     * {@code Arrays.sort} for small ranges, LSD radix sort for larger ones
+     * and sorts chunks in parallel followed by parallel merging for large
+     * ranges on multi-core machines.
+     *
+     * @param a
+     *            The array.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     */
+    public static void sort(final long[] a, final int from, final int to)
+    {
+        checkRange(a.length, from, to);
+        final int n = to - from;
+        if (n < RADIX_THRESHOLD)
+        {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        final int chunks = Parallel.chunkCount(n, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2)
+        {
+            radixSort(a, from, to, new long[n], 0, SIGN_64);
+            return;
+        }
+        final long[] buf = new long[n];
+        final int[] bounds = bounds(from, n, chunks);
+        Parallel.forEachChunk(0, chunks, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int c0, final int c1)
+            {
+                final int lo = bounds[chunk], hi = bounds[chunk + 1];
+                radixSort(a, lo, hi, buf, lo - from, SIGN_64);
+            }
+        });
+        mergeRuns(a, buf, from, bounds);
+    }
+
+    /**
+     * Merges the sorted runs given by <code>bounds</code>, pairs of runs are
+     * merged in parallel.
+     */
+    private static void mergeRuns(final long[] a, final long[] buf, final int from, final int[] bounds)
+    {
+        int[] runs = new int[bounds.length];
+        for (int i = 0; i < runs.length; i++)
+        {
+            runs[i] = bounds[i] - from;
+        }
+        final int n = runs[runs.length - 1];
+        long[] src = a, dst = buf;
+        int srcOff = from, dstOff = 0;
+        while (runs.length > 2)
+        {
+            final int count = runs.length - 1;
+            final int merged = (count + 1) >> 1;
+            final int[] r = runs;
+            final long[] s = src, d = dst;
+            final int so = srcOff, dof = dstOff;
+            Parallel.forEachChunk(0, merged, merged, new ParallelRange()
+            {
+                @Override
+                public void apply(final int chunk, final int c0, final int c1)
+                {
+                    final int lo = r[2 * chunk];
+                    final int mid = r[Math.min(2 * chunk + 1, count)];
+                    final int hi = r[Math.min(2 * chunk + 2, count)];
+                    merge(s, so, d, dof, lo, mid, hi);
+                }
+            });
+            final int[] next = new int[merged + 1];
+            for (int i = 0; i < merged; i++)
+            {
+                next[i] = runs[2 * i];
+            }
+            next[merged] = n;
+            runs = next;
+            src = d;
+            dst = s;
+            srcOff = dof;
+            dstOff = so;
+        }
+        if (src != a) System.arraycopy(src, srcOff, a, from, n);
+    }
+
+    /**
+     * Merges <code>[lo, mid[</code> and <code>[mid, hi[</code> of
+     * <code>src</code> into <code>dst</code>, indices are relative to the
+     * given offsets.
+     */
+    private static void merge(final long[] src, final int so, final long[] dst, final int dof, final int lo, final int mid, final int hi)
+    {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+        {
+            final long x = src[so + i], y = src[so + j];
+            if (x <= y)
+            {
+                dst[dof + k++] = x;
+                i++;
+            }
+            else
+            {
+                dst[dof + k++] = y;
+                j++;
+            }
+        }
+        if (i < mid) System.arraycopy(src, so + i, dst, dof + k, mid - i);
+        if (j < hi) System.arraycopy(src, so + j, dst, dof + k, hi - j);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final long[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final long[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final long[] k = new long[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = keys[from + i] ^ SIGN_64;
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * Sorts the given array ascending.
+     *
+     * @param a
+     *            The array.
+     * @see #sort(float[], int, int)
+     */
+    public static void sort(final float[] a)
+    {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts <code>[from, to[</code> of the given array ascending. Uses
+     * {@code Arrays.sort} for small ranges, LSD radix sort for larger ones
+     * and sorts chunks in parallel followed by parallel merging for large
+     * ranges on multi-core machines. The ordering is the one of {@code Arrays.sort}, NaNs get canonicalized.
+     *
+     * @param a
+     *            The array.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     */
+    public static void sort(final float[] a, final int from, final int to)
+    {
+        checkRange(a.length, from, to);
+        final int n = to - from;
+        if (n < RADIX_THRESHOLD)
+        {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        final int chunks = Parallel.chunkCount(n, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2)
+        {
+            radixSort(a, from, to);
+            return;
+        }
+        final float[] buf = new float[n];
+        final int[] bounds = bounds(from, n, chunks);
+        Parallel.forEachChunk(0, chunks, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int c0, final int c1)
+            {
+                final int lo = bounds[chunk], hi = bounds[chunk + 1];
+                radixSort(a, lo, hi);
+            }
+        });
+        mergeRuns(a, buf, from, bounds);
+    }
+
+    /**
+     * Merges the sorted runs given by <code>bounds</code>, pairs of runs are
+     * merged in parallel.
+     */
+    private static void mergeRuns(final float[] a, final float[] buf, final int from, final int[] bounds)
+    {
+        int[] runs = new int[bounds.length];
+        for (int i = 0; i < runs.length; i++)
+        {
+            runs[i] = bounds[i] - from;
+        }
+        final int n = runs[runs.length - 1];
+        float[] src = a, dst = buf;
+        int srcOff = from, dstOff = 0;
+        while (runs.length > 2)
+        {
+            final int count = runs.length - 1;
+            final int merged = (count + 1) >> 1;
+            final int[] r = runs;
+            final float[] s = src, d = dst;
+            final int so = srcOff, dof = dstOff;
+            Parallel.forEachChunk(0, merged, merged, new ParallelRange()
+            {
+                @Override
+                public void apply(final int chunk, final int c0, final int c1)
+                {
+                    final int lo = r[2 * chunk];
+                    final int mid = r[Math.min(2 * chunk + 1, count)];
+                    final int hi = r[Math.min(2 * chunk + 2, count)];
+                    merge(s, so, d, dof, lo, mid, hi);
+                }
+            });
+            final int[] next = new int[merged + 1];
+            for (int i = 0; i < merged; i++)
+            {
+                next[i] = runs[2 * i];
+            }
+            next[merged] = n;
+            runs = next;
+            src = d;
+            dst = s;
+            srcOff = dof;
+            dstOff = so;
+        }
+        if (src != a) System.arraycopy(src, srcOff, a, from, n);
+    }
+
+    /**
+     * Merges <code>[lo, mid[</code> and <code>[mid, hi[</code> of
+     * <code>src</code> into <code>dst</code>, indices are relative to the
+     * given offsets.
+     */
+    private static void merge(final float[] src, final int so, final float[] dst, final int dof, final int lo, final int mid, final int hi)
+    {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+        {
+            final float x = src[so + i], y = src[so + j];
+            if (Float.compare(x, y) <= 0)
+            {
+                dst[dof + k++] = x;
+                i++;
+            }
+            else
+            {
+                dst[dof + k++] = y;
+                j++;
+            }
+        }
+        if (i < mid) System.arraycopy(src, so + i, dst, dof + k, mid - i);
+        if (j < hi) System.arraycopy(src, so + j, dst, dof + k, hi - j);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final float[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final float[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final int[] k = new int[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = floatKey(keys[from + i]);
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * Sorts the given array ascending.
+     *
+     * @param a
+     *            The array.
+     * @see #sort(double[], int, int)
+     */
+    public static void sort(final double[] a)
+    {
+        sort(a, 0, a.length);
+    }
+
+    /**
+     * Sorts <code>[from, to[</code> of the given array ascending. Uses
+     * {@code Arrays.sort} for small ranges, LSD radix sort for larger ones
+     * and sorts chunks in parallel followed by parallel merging for large
+     * ranges on multi-core machines. The ordering is the one of {@code Arrays.sort}, NaNs get canonicalized.
+     *
+     * @param a
+     *            The array.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     */
+    public static void sort(final double[] a, final int from, final int to)
+    {
+        checkRange(a.length, from, to);
+        final int n = to - from;
+        if (n < RADIX_THRESHOLD)
+        {
+            Arrays.sort(a, from, to);
+            return;
+        }
+        final int chunks = Parallel.chunkCount(n, Parallel.MIN_CHUNK_SIZE);
+        if (chunks < 2)
+        {
+            radixSort(a, from, to);
+            return;
+        }
+        final double[] buf = new double[n];
+        final int[] bounds = bounds(from, n, chunks);
+        Parallel.forEachChunk(0, chunks, chunks, new ParallelRange()
+        {
+            @Override
+            public void apply(final int chunk, final int c0, final int c1)
+            {
+                final int lo = bounds[chunk], hi = bounds[chunk + 1];
+                radixSort(a, lo, hi);
+            }
+        });
+        mergeRuns(a, buf, from, bounds);
+    }
+
+    /**
+     * Merges the sorted runs given by <code>bounds</code>, pairs of runs are
+     * merged in parallel.
+     */
+    private static void mergeRuns(final double[] a, final double[] buf, final int from, final int[] bounds)
+    {
+        int[] runs = new int[bounds.length];
+        for (int i = 0; i < runs.length; i++)
+        {
+            runs[i] = bounds[i] - from;
+        }
+        final int n = runs[runs.length - 1];
+        double[] src = a, dst = buf;
+        int srcOff = from, dstOff = 0;
+        while (runs.length > 2)
+        {
+            final int count = runs.length - 1;
+            final int merged = (count + 1) >> 1;
+            final int[] r = runs;
+            final double[] s = src, d = dst;
+            final int so = srcOff, dof = dstOff;
+            Parallel.forEachChunk(0, merged, merged, new ParallelRange()
+            {
+                @Override
+                public void apply(final int chunk, final int c0, final int c1)
+                {
+                    final int lo = r[2 * chunk];
+                    final int mid = r[Math.min(2 * chunk + 1, count)];
+                    final int hi = r[Math.min(2 * chunk + 2, count)];
+                    merge(s, so, d, dof, lo, mid, hi);
+                }
+            });
+            final int[] next = new int[merged + 1];
+            for (int i = 0; i < merged; i++)
+            {
+                next[i] = runs[2 * i];
+            }
+            next[merged] = n;
+            runs = next;
+            src = d;
+            dst = s;
+            srcOff = dof;
+            dstOff = so;
+        }
+        if (src != a) System.arraycopy(src, srcOff, a, from, n);
+    }
+
+    /**
+     * Merges <code>[lo, mid[</code> and <code>[mid, hi[</code> of
+     * <code>src</code> into <code>dst</code>, indices are relative to the
+     * given offsets.
+     */
+    private static void merge(final double[] src, final int so, final double[] dst, final int dof, final int lo, final int mid, final int hi)
+    {
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi)
+        {
+            final double x = src[so + i], y = src[so + j];
+            if (Double.compare(x, y) <= 0)
+            {
+                dst[dof + k++] = x;
+                i++;
+            }
+            else
+            {
+                dst[dof + k++] = y;
+                j++;
+            }
+        }
+        if (i < mid) System.arraycopy(src, so + i, dst, dof + k, mid - i);
+        if (j < hi) System.arraycopy(src, so + j, dst, dof + k, hi - j);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final double[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final double[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final long[] k = new long[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = doubleKey(keys[from + i]);
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final short[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final short[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final int[] k = new int[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = keys[from + i] ^ SIGN_32;
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * Computes the stable sort order of the given keys.
+     *
+     * @param keys
+     *            The keys.
+     * @return The indices of the keys in sorted order.
+     */
+    public static int[] argsort(final byte[] keys)
+    {
+        return argsort(keys, 0, keys.length);
+    }
+
+    /**
+     * Computes the stable sort order of <code>[from, to[</code> of the given
+     * keys, in linear time.
+     *
+     * @param keys
+     *            The keys.
+     * @param from
+     *            Start index (inclusive).
+     * @param to
+     *            End index (exclusive).
+     * @return The indices (into <code>keys</code>) of the keys in sorted
+     *         order.
+     */
+    public static int[] argsort(final byte[] keys, final int from, final int to)
+    {
+        checkRange(keys.length, from, to);
+        final int[] k = new int[to - from];
+        for (int i = 0; i < k.length; i++)
+        {
+            k[i] = keys[from + i] ^ SIGN_32;
+        }
+        return argsortUnsigned(k, from);
+    }
+
+    /**
+     * LSD radix sort of <code>[from, to[</code>, 8 bits per pass, passes where
+     * all elements share the same digit are skipped. Keys are xor'ed with
+     * <code>flip</code>, which turns signed into unsigned ordering.
+     */
+    private static void radixSort(final int[] a, final int from, final int to, final int[] buf, final int bufOff, final int flip)
+    {
+        final int n = to - from;
+        final int[] counts = new int[4 << 8];
+        for (int i = from; i < to; i++)
+        {
+            final int v = a[i] ^ flip;
+            for (int p = 0; p < 4; p++)
+            {
+                counts[(p << 8) + ((v >>> (p << 3)) & 255)]++;
+            }
+        }
+        int[] src = a, dst = buf;
+        int so = from, dof = bufOff;
+        for (int p = 0; p < 4; p++)
+        {
+            final int base = p << 8, shift = p << 3;
+            if (counts[base + (((src[so] ^ flip) >>> shift) & 255)] == n) continue;
+            for (int b = 0, sum = 0; b < 256; b++)
+            {
+                final int c = counts[base + b];
+                counts[base + b] = sum;
+                sum += c;
+            }
+            for (int i = so; i < so + n; i++)
+            {
+                final int v = src[i];
+                dst[dof + counts[base + (((v ^ flip) >>> shift) & 255)]++] = v;
+            }
+            final int[] t = src;
+            src = dst;
+            dst = t;
+            final int o = so;
+            so = dof;
+            dof = o;
+        }
+        if (src != a) System.arraycopy(src, so, a, from, n);
+    }
+
+    /**
+     * Stable LSD radix sort of the given unsigned keys carrying their indices
+     * (<code>base + i</code>), returns the sorted indices. Destroys
+     * <code>keys</code>.
+     */
+    private static int[] argsortUnsigned(final int[] keys, final int base)
+    {
+        final int n = keys.length;
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            idx[i] = base + i;
+        }
+        if (n < 2) return idx;
+        final int[] counts = new int[4 << 8];
+        for (int i = 0; i < n; i++)
+        {
+            final int v = keys[i];
+            for (int p = 0; p < 4; p++)
+            {
+                counts[(p << 8) + ((v >>> (p << 3)) & 255)]++;
+            }
+        }
+        int[] k = keys, k2 = new int[n];
+        int[] idx2 = new int[n];
+        for (int p = 0; p < 4; p++)
+        {
+            final int cb = p << 8, shift = p << 3;
+            if (counts[cb + ((k[0] >>> shift) & 255)] == n) continue;
+            for (int b = 0, sum = 0; b < 256; b++)
+            {
+                final int c = counts[cb + b];
+                counts[cb + b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                final int v = k[i];
+                final int pos = counts[cb + ((v >>> shift) & 255)]++;
+                k2[pos] = v;
+                idx2[pos] = idx[i];
+            }
+            final int[] tk = k;
+            k = k2;
+            k2 = tk;
+            final int[] ti = idx;
+            idx = idx2;
+            idx2 = ti;
+        }
+        return idx;
+    }
+
+    /**
+     * LSD radix sort of <code>[from, to[</code>, 8 bits per pass, passes where
+     * all elements share the same digit are skipped. Keys are xor'ed with
+     * <code>flip</code>, which turns signed into unsigned ordering.
+     */
+    private static void radixSort(final long[] a, final int from, final int to, final long[] buf, final int bufOff, final long flip)
+    {
+        final int n = to - from;
+        final int[] counts = new int[8 << 8];
+        for (int i = from; i < to; i++)
+        {
+            final long v = a[i] ^ flip;
+            for (int p = 0; p < 8; p++)
+            {
+                counts[(p << 8) + (int)((v >>> (p << 3)) & 255)]++;
+            }
+        }
+        long[] src = a, dst = buf;
+        int so = from, dof = bufOff;
+        for (int p = 0; p < 8; p++)
+        {
+            final int base = p << 8, shift = p << 3;
+            if (counts[base + (int)(((src[so] ^ flip) >>> shift) & 255)] == n) continue;
+            for (int b = 0, sum = 0; b < 256; b++)
+            {
+                final int c = counts[base + b];
+                counts[base + b] = sum;
+                sum += c;
+            }
+            for (int i = so; i < so + n; i++)
+            {
+                final long v = src[i];
+                dst[dof + counts[base + (int)(((v ^ flip) >>> shift) & 255)]++] = v;
+            }
+            final long[] t = src;
+            src = dst;
+            dst = t;
+            final int o = so;
+            so = dof;
+            dof = o;
+        }
+        if (src != a) System.arraycopy(src, so, a, from, n);
+    }
+
+    /**
+     * Stable LSD radix sort of the given unsigned keys carrying their indices
+     * (<code>base + i</code>), returns the sorted indices. Destroys
+     * <code>keys</code>.
+     */
+    private static int[] argsortUnsigned(final long[] keys, final int base)
+    {
+        final int n = keys.length;
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            idx[i] = base + i;
+        }
+        if (n < 2) return idx;
+        final int[] counts = new int[8 << 8];
+        for (int i = 0; i < n; i++)
+        {
+            final long v = keys[i];
+            for (int p = 0; p < 8; p++)
+            {
+                counts[(p << 8) + (int)((v >>> (p << 3)) & 255)]++;
+            }
+        }
+        long[] k = keys, k2 = new long[n];
+        int[] idx2 = new int[n];
+        for (int p = 0; p < 8; p++)
+        {
+            final int cb = p << 8, shift = p << 3;
+            if (counts[cb + (int)((k[0] >>> shift) & 255)] == n) continue;
+            for (int b = 0, sum = 0; b < 256; b++)
+            {
+                final int c = counts[cb + b];
+                counts[cb + b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                final long v = k[i];
+                final int pos = counts[cb + (int)((v >>> shift) & 255)]++;
+                k2[pos] = v;
+                idx2[pos] = idx[i];
+            }
+            final long[] tk = k;
+            k = k2;
+            k2 = tk;
+            final int[] ti = idx;
+            idx = idx2;
+            idx2 = ti;
+        }
+        return idx;
+    }
+
+    /**
+     * Maps a float to an unsigned int key with the ordering of
+     * {@code Float.compare}.
+     */
+    private static int floatKey(final float v)
+    {
+        final int b = Float.floatToIntBits(v);
+        return b ^ ((b >> 31) | SIGN_32);
+    }
+
+    /**
+     * Radix sorts <code>[from, to[</code> using unsigned int keys.
+     */
+    private static void radixSort(final float[] a, final int from, final int to)
+    {
+        final int n = to - from;
+        final int[] keys = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            keys[i] = floatKey(a[from + i]);
+        }
+        radixSort(keys, 0, n, new int[n], 0, 0);
+        for (int i = 0; i < n; i++)
+        {
+            final int k = keys[i];
+            a[from + i] = Float.intBitsToFloat(k ^ ((~k >> 31) | SIGN_32));
+        }
+    }
+
+    /**
+     * Maps a double to an unsigned long key with the ordering of
+     * {@code Double.compare}.
+     */
+    private static long doubleKey(final double v)
+    {
+        final long b = Double.doubleToLongBits(v);
+        return b ^ ((b >> 63) | SIGN_64);
+    }
+
+    /**
+     * Radix sorts <code>[from, to[</code> using unsigned long keys.
+     */
+    private static void radixSort(final double[] a, final int from, final int to)
+    {
+        final int n = to - from;
+        final long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+        {
+            keys[i] = doubleKey(a[from + i]);
+        }
+        radixSort(keys, 0, n, new long[n], 0, 0);
+        for (int i = 0; i < n; i++)
+        {
+            final long k = keys[i];
+            a[from + i] = Double.longBitsToDouble(k ^ ((~k >> 63) | SIGN_64));
+        }
+    }
+
+    private static int[] bounds(final int from, final int n, final int chunks)
+    {
+        final int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++)
+        {
+            bounds[i] = from + (int)((long)n * i / chunks);
+        }
+        return bounds;
+    }
+
+    private static void checkRange(final int length, final int from, final int to)
+    {
+        if (from < 0 || to > length || from > to) throw new ArrayIndexOutOfBoundsException("Invalid range [" + from + ", " + to + "[, length is " + length);
+    }
+}